@@ -0,0 +1,113 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class with functions to find delimiters ('\n', '|') within raw ASCII bytes of logs.
+ * The bytes are scanned 8 at a time as long-words (SWAR: SIMD within a register), the remaining bytes are scanned one at a time (scalar).
+ * The first SCALAR_PREFIX_LENGTH bytes of a range are scanned one at a time, so short distances to the next delimiter (e.g. columns of a sample line) do not pay for the long-words.
+ * Long-words of byte[] (and of ByteBuffers backed by a byte[]) are assembled from the bytes (little-endian, Java 8, no ByteBuffer created); long-words of other ByteBuffers (e.g. memory-mapped) are read with ByteBuffer.getLong() in the byte order of the buffer.
+ */
+public class ByteScanner {
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+	public static final int SCALAR_PREFIX_LENGTH = 16;		// bytes at the beginning of a range scanned one at a time
+
+	private ByteScanner() {
+	}
+
+	/**
+	 * Returns the position of the first occurrence of value within data[from..to-1] (SWAR)
+	 * @param data Bytes to scan
+	 * @param from Start position (inclusive)
+	 * @param to End position (exclusive)
+	 * @param value Byte to find
+	 * @return Position of the first occurrence; -1 if value is not found
+	 */
+	public static int indexOf(byte[] data, int from, int to, byte value) {
+		int i = from;
+		int scalarEnd = Math.min(to, from+SCALAR_PREFIX_LENGTH);
+		for(; i<scalarEnd; i++)
+			if(data[i] == value)
+				return i;
+		long pattern = LOW_BITS * (value & 0xFF);
+		for(; i+8<=to; i+=8) {
+			long match = matchBytes(getLongLittleEndian(data, i), pattern);
+			if(match != 0)
+				return i + (Long.numberOfTrailingZeros(match) >>> 3);
+		}
+		for(; i<to; i++)
+			if(data[i] == value)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the position of the first occurrence of value within buffer[from..to-1] (SWAR; absolute positions, position of the buffer is not changed)
+	 * @param buffer Bytes to scan
+	 * @param from Start position (inclusive)
+	 * @param to End position (exclusive)
+	 * @param value Byte to find
+	 * @return Position of the first occurrence; -1 if value is not found
+	 */
+	public static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+		if(buffer.hasArray()) {
+			int index = indexOf(buffer.array(), buffer.arrayOffset()+from, buffer.arrayOffset()+to, value);
+			return (index == -1) ? -1 : index-buffer.arrayOffset();
+		}
+		int i = from;
+		int scalarEnd = Math.min(to, from+SCALAR_PREFIX_LENGTH);
+		for(; i<scalarEnd; i++)
+			if(buffer.get(i) == value)
+				return i;
+		long pattern = LOW_BITS * (value & 0xFF);
+		boolean bigEndian = (buffer.order() == ByteOrder.BIG_ENDIAN);		// (first byte within the most significant byte of the long-word)
+		for(; i+8<=to; i+=8) {
+			long match = matchBytes(buffer.getLong(i), pattern);
+			if(match != 0)
+				return i + ((bigEndian ? Long.numberOfLeadingZeros(match) : Long.numberOfTrailingZeros(match)) >>> 3);
+		}
+		for(; i<to; i++)
+			if(buffer.get(i) == value)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Scalar version of indexOf(byte[] data, int from, int to, byte value) (one byte at a time)
+	 */
+	public static int indexOfScalar(byte[] data, int from, int to, byte value) {
+		for(int i=from; i<to; i++)
+			if(data[i] == value)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Scalar version of indexOf(ByteBuffer buffer, int from, int to, byte value) (one byte at a time)
+	 */
+	public static int indexOfScalar(ByteBuffer buffer, int from, int to, byte value) {
+		for(int i=from; i<to; i++)
+			if(buffer.get(i) == value)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Assembles the long-word of data[i..i+7] (data[i] within the least significant byte)
+	 */
+	private static long getLongLittleEndian(byte[] data, int i) {
+		return (data[i] & 0xFFL) | ((data[i+1] & 0xFFL) << 8) | ((data[i+2] & 0xFFL) << 16) | ((data[i+3] & 0xFFL) << 24)
+				| ((data[i+4] & 0xFFL) << 32) | ((data[i+5] & 0xFFL) << 40) | ((data[i+6] & 0xFFL) << 48) | ((long)data[i+7] << 56);
+	}
+
+	/**
+	 * Marks the bytes of word equal to the bytes of pattern: the high bit of each matching byte is set (exact, no carries between the bytes, so the byte order of word does not matter)
+	 */
+	private static long matchBytes(long word, long pattern) {
+		long difference = word ^ pattern;		// matching bytes are 0
+		return ~(((difference & LOW_7_BITS) + LOW_7_BITS) | difference | LOW_7_BITS);
+	}
+
+}
@@ -0,0 +1,63 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Table of interned callsigns (one String-object per distinct callsign, identified by an int id) shared by the trajectories of a batch, 
+ * e.g. of a ParallelParser between setDirs()/setCombinedDir() calls or of a read-in of TrajectoryDemultiplexer. 
+ * The table belongs to the batch (it is released with the trajectories of the batch), so ids are only comparable within the same table. 
+ * Methods are synchronized per table (callsigns are interned once per trajectory only). 
+ */
+public class CallsignTable {
+	private HashMap<String, Integer> callsignIds = new HashMap<String, Integer>();
+	private ArrayList<String> callsigns = new ArrayList<String>();
+
+	public CallsignTable() {
+	}
+
+	/**
+	 * Interns a callsign
+	 * @param callsign Callsign
+	 * @return Id of the callsign (equal callsigns get equal ids); FlightIdentity.NO_CALLSIGN_ID if callsign is null
+	 */
+	public synchronized int intern(String callsign) {
+		if(callsign == null)
+			return FlightIdentity.NO_CALLSIGN_ID;
+		Integer callsignId = callsignIds.get(callsign);
+		if(callsignId == null) {
+			callsignId = callsigns.size();
+			callsignIds.put(callsign, callsignId);
+			callsigns.add(callsign);
+		}
+		return callsignId;
+	}
+
+	/**
+	 * Returns the interned String-object of a callsign
+	 * @param callsignId Id of the callsign (see intern())
+	 * @return Callsign; null if callsignId is FlightIdentity.NO_CALLSIGN_ID
+	 */
+	public synchronized String getCallsign(int callsignId) {
+		if(callsignId == FlightIdentity.NO_CALLSIGN_ID)
+			return null;
+		return callsigns.get(callsignId);
+	}
+
+	/**
+	 * Returns the number of interned callsigns
+	 * @return Number of callsigns
+	 */
+	public synchronized int size() {
+		return callsigns.size();
+	}
+
+	/**
+	 * Removes all callsigns (ids handed out before are not valid anymore)
+	 */
+	public synchronized void clear() {
+		callsignIds.clear();
+		callsigns.clear();
+	}
+
+}
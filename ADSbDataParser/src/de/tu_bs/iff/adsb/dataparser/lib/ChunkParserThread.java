@@ -0,0 +1,43 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Thread to read in one chunk (byte range beginning at a line start) of a log file into a partial table (see function readInInterfaceDataFileParallel() of class TrajectoryStateVectorsData4).
+ */
+public class ChunkParserThread extends Thread {
+	private String fileDir;
+	private long chunkStart;
+	private long chunkEnd;
+
+	SampleTableBuilder tableBuilder;		// partial table of the chunk
+	int errorCode = 0;						// 0: success; -1: file not found; -2: IOException; -3: lineBuffer too small
+
+	/**
+	 * @param fileDir Directory to the text file
+	 * @param chunkStart Start of the chunk within the file (inclusive)
+	 * @param chunkEnd End of the chunk within the file (exclusive)
+	 * @param tableBuilder Table builder for the samples of the chunk (with icao24 and callsign of the first sample of the file)
+	 */
+	public ChunkParserThread(String fileDir, long chunkStart, long chunkEnd, SampleTableBuilder tableBuilder) {
+		this.fileDir = fileDir;
+		this.chunkStart = chunkStart;
+		this.chunkEnd = chunkEnd;
+		this.tableBuilder = tableBuilder;
+	}
+
+	@Override public void run() {
+		try {
+			SampleLineReader dataReader = SampleLineReader.fromMappedFile(fileDir, chunkStart, chunkEnd);
+			if(!tableBuilder.addSampleLines(dataReader))
+				errorCode = -3;
+			dataReader.close();
+		} catch(FileNotFoundException e) {
+			errorCode = -1;
+		} catch(IOException e) {
+			errorCode = -2;
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Class containing a time channel (integer seconds) in compact form: the differences of consecutive timestamps (mostly 1 to 10 s) are stored as variable-length integers (zigzag, 7 bits per byte), i.e. mostly 1 byte per sample instead of 8 (double[]).
+ * Checkpoints (timestamp and byte position of every CHECKPOINT_INTERVAL-th sample) provide random access with at most CHECKPOINT_INTERVAL-1 decoded differences.
+ * The column is built up timestamp by timestamp with append() and has to be trimmed with trim() after the last timestamp was appended.
+ * Within the parsing pipeline, one column is built per trajectory (see TrajectoryStateVectorsData4.getCompactTime()) and kept with the raw tables of TrajectoryVertical and TrajectoryHorizontal, which decode their time channels from it. 
+ * The double[] time channels (raw and parsed tables of both trajectories, TableMerged) remain allocated, the column does not replace them.
+ */
+public class CompactTimeColumn {
+	public static final int CHECKPOINT_INTERVAL = 64;		// samples per checkpoint (power of 2)
+	private static final int CHECKPOINT_SHIFT = 6;			// log2(CHECKPOINT_INTERVAL)
+
+	private byte[] deltas;				// zigzag varint differences to the previous timestamp (difference of the first sample to 0)
+	private int byteCount = 0;
+	private int[] checkpointTimes;		// timestamp of sample i*CHECKPOINT_INTERVAL
+	private int[] checkpointPositions;	// position of the difference of sample i*CHECKPOINT_INTERVAL within deltas
+	private int size = 0;
+	private int lastTime = 0;
+
+	/**
+	 * @param initialCapacity Number of samples allocated initially (column grows when required)
+	 */
+	public CompactTimeColumn(int initialCapacity) {
+		deltas = new byte[Math.max(initialCapacity, 16)];
+		checkpointTimes = new int[(initialCapacity >> CHECKPOINT_SHIFT) + 1];
+		checkpointPositions = new int[checkpointTimes.length];
+	}
+
+	/**
+	 * Creates a column from timestamps
+	 * @param time Timestamps [s]
+	 * @return Column
+	 */
+	public static CompactTimeColumn fromArray(int[] time) {
+		CompactTimeColumn column = new CompactTimeColumn(time.length);
+		for(int i=0; i<time.length; i++)
+			column.append(time[i]);
+		column.trim();
+		return column;
+	}
+
+	/**
+	 * Appends a timestamp
+	 * @param time Timestamp [s]
+	 */
+	public void append(int time) {
+		if((size & (CHECKPOINT_INTERVAL-1)) == 0) {
+			int checkpoint = size >> CHECKPOINT_SHIFT;
+			if(checkpoint == checkpointTimes.length) {
+				checkpointTimes = Arrays.copyOf(checkpointTimes, 2*checkpointTimes.length);
+				checkpointPositions = Arrays.copyOf(checkpointPositions, checkpointTimes.length);
+			}
+			checkpointTimes[checkpoint] = time;
+			checkpointPositions[checkpoint] = byteCount;
+		}
+
+		if(byteCount+5 > deltas.length)		// (5 bytes: maximum length of a varint of 32 bits)
+			deltas = Arrays.copyOf(deltas, 2*deltas.length + 5);
+		int delta = time - lastTime;
+		int zigzag = (delta << 1) ^ (delta >> 31);
+		while((zigzag & ~0x7F) != 0) {
+			deltas[byteCount++] = (byte)((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		deltas[byteCount++] = (byte)zigzag;
+
+		lastTime = time;
+		size++;
+	}
+
+	/**
+	 * Trims the arrays of the column to the appended samples
+	 */
+	public void trim() {
+		deltas = Arrays.copyOf(deltas, byteCount);
+		int checkpointCount = (size + CHECKPOINT_INTERVAL-1) >> CHECKPOINT_SHIFT;
+		checkpointTimes = Arrays.copyOf(checkpointTimes, checkpointCount);
+		checkpointPositions = Arrays.copyOf(checkpointPositions, checkpointCount);
+	}
+
+	/**
+	 * Returns the number of samples
+	 * @return Number of samples
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the timestamp of a sample (random access through the checkpoints; use iterator() for sequential access)
+	 * @param index Index of the sample
+	 * @return Timestamp [s]
+	 */
+	public int get(int index) {
+		if((index < 0) || (index >= size))
+			throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for length %d", index, size));
+		int checkpoint = index >> CHECKPOINT_SHIFT;
+		int time = checkpointTimes[checkpoint];
+		int position = skipVarint(checkpointPositions[checkpoint]);
+		for(int i=checkpoint << CHECKPOINT_SHIFT; i<index; i++) {
+			int zigzag = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = deltas[position++];
+				zigzag |= (b & 0x7F) << shift;
+				shift += 7;
+			} while(b < 0);
+			time += (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+		return time;
+	}
+
+	private int skipVarint(int position) {
+		while(deltas[position] < 0)
+			position++;
+		return position+1;
+	}
+
+	/**
+	 * Returns an iterator decoding the timestamps in order
+	 * @return Iterator
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return iterator(0);
+	}
+
+	/**
+	 * Returns an iterator decoding the timestamps in order, starting at a sample (positioned through the checkpoints)
+	 * @param startIndex Index of the first sample returned
+	 * @return Iterator
+	 */
+	public PrimitiveIterator.OfInt iterator(final int startIndex) {
+		return new PrimitiveIterator.OfInt() {
+			private int index = 0;
+			private int position = 0;
+			private int time = 0;
+			{
+				if((startIndex > 0) && (startIndex < size)) {
+					int checkpoint = startIndex >> CHECKPOINT_SHIFT;
+					index = checkpoint << CHECKPOINT_SHIFT;
+					position = checkpointPositions[checkpoint];
+					time = (index == 0) ? 0 : get(index-1);
+				}
+				while(index < startIndex)
+					nextInt();
+			}
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public int nextInt() {
+				if(index >= size)
+					throw new NoSuchElementException();
+				int zigzag = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = deltas[position++];
+					zigzag |= (b & 0x7F) << shift;
+					shift += 7;
+				} while(b < 0);
+				time += (zigzag >>> 1) ^ -(zigzag & 1);
+				index++;
+				return time;
+			}
+		};
+	}
+
+	/**
+	 * Decodes all timestamps
+	 * @return Timestamps [s] as double[] (as used for the time channels of TableVertical, TableHorizontal and TableMerged)
+	 */
+	public double[] toDoubleArray() {
+		double[] time = new double[size];
+		decode(time);
+		return time;
+	}
+
+	/**
+	 * Decodes all timestamps into an array
+	 * @param time Array for the timestamps [s] (length at least size())
+	 */
+	public void decode(double[] time) {
+		PrimitiveIterator.OfInt iterator = iterator();
+		for(int i=0; i<size; i++)
+			time[i] = iterator.nextInt();
+	}
+
+	/**
+	 * Decodes the timestamps of a selection of samples into an array (e.g. the samples of a column shared by TrajectoryVertical and TrajectoryHorizontal used by one of them)
+	 * @param selection Selected samples (validity mask, see class ValidityMask); null: all samples
+	 * @param time Array for the timestamps [s] of the selected samples, in order (length at least the number of selected samples)
+	 */
+	public void decode(long[] selection, double[] time) {
+		if(selection == null) {
+			decode(time);
+			return;
+		}
+		PrimitiveIterator.OfInt iterator = iterator();
+		int timeIndex = 0;
+		for(int i=0; i<size; i++) {
+			int timestamp = iterator.nextInt();
+			if(ValidityMask.get(selection, i))
+				time[timeIndex++] = timestamp;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of the arrays of the column
+	 * @return Number of bytes
+	 */
+	public long getMemorySize() {
+		return deltas.length + 4L*checkpointTimes.length + 4L*checkpointPositions.length;
+	}
+
+}
@@ -0,0 +1,87 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+/**
+ * Class to detect exact duplicate rows of a table (class: TableStateVectorsData4), e.g. rows contained twice within a log due to overlapping hour partitions of a query.
+ * Rows are duplicates if time and all available channels are equal (see TableStateVectorsData4.tableLineEquals()).
+ * The rows added so far are kept within a hash table (open addressing, linear probing) over (time, row hash); only the sample index of the row is stored, the row itself remains within the table.
+ */
+public class DuplicateRowFilter {
+	private static final int MIN_HASH_TABLE_SIZE = 16;		// (power of 2; small, as there is one filter per flight within TrajectoryDemultiplexer)
+
+	private int[] slotIndexes;		// sample index + 1 of the row within a slot (0: empty slot)
+	private int[] slotTimes;		// time of the row within a slot
+	private long[] slotRowHashCodes;		// row hash of the row within a slot
+	private int numberOfRows = 0;
+
+	/**
+	 * @param expectedNumberOfRows Number of rows expected to be added (hash table grows when required)
+	 */
+	public DuplicateRowFilter(int expectedNumberOfRows) {
+		int size = MIN_HASH_TABLE_SIZE;
+		while(size < 2*expectedNumberOfRows)
+			size *= 2;
+		allocateHashTable(size);
+	}
+
+	private void allocateHashTable(int size) {
+		slotIndexes = new int[size];
+		slotTimes = new int[size];
+		slotRowHashCodes = new long[size];
+	}
+
+	/**
+	 * Adds a row of a table, if it is not a duplicate of a row added before.
+	 * Rows added before have to remain unchanged within the table.
+	 * @param table Table containing the row
+	 * @param index Sample index of the row
+	 * @return True if the row is added; false if the row is a duplicate of a row added before (row not added)
+	 */
+	public boolean addRow(TableStateVectorsData4 table, int index) {
+		int time = table.time[index];
+		long rowHashCode = table.tableLineHashCode(index);
+
+		int mask = slotIndexes.length-1;
+		int slot = mix(rowHashCode) & mask;
+		while(slotIndexes[slot] != 0) {
+			if((slotTimes[slot] == time) && (slotRowHashCodes[slot] == rowHashCode))
+				if(table.tableLineEquals(slotIndexes[slot]-1, index))
+					return false;
+			slot = (slot+1) & mask;
+		}
+
+		slotIndexes[slot] = index+1;
+		slotTimes[slot] = time;
+		slotRowHashCodes[slot] = rowHashCode;
+		numberOfRows++;
+
+		if(2*numberOfRows > slotIndexes.length)		// keep load factor of the hash table below 0.5
+			growHashTable();
+
+		return true;
+	}
+
+	private void growHashTable() {
+		int[] oldSlotIndexes = slotIndexes;
+		int[] oldSlotTimes = slotTimes;
+		long[] oldSlotRowHashCodes = slotRowHashCodes;
+
+		allocateHashTable(2*oldSlotIndexes.length);
+		int mask = slotIndexes.length-1;
+		for(int i=0; i<oldSlotIndexes.length; i++) {
+			if(oldSlotIndexes[i] == 0)
+				continue;
+			int slot = mix(oldSlotRowHashCodes[i]) & mask;
+			while(slotIndexes[slot] != 0)
+				slot = (slot+1) & mask;
+			slotIndexes[slot] = oldSlotIndexes[i];
+			slotTimes[slot] = oldSlotTimes[i];
+			slotRowHashCodes[slot] = oldSlotRowHashCodes[i];
+		}
+	}
+
+	private static int mix(long hashCode) {
+		hashCode *= 0x9E3779B97F4A7C15L;
+		return (int)(hashCode ^ (hashCode >>> 32));
+	}
+
+}
@@ -0,0 +1,76 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+/**
+ * Class with compact representations of the identity (icao24, callsign) of a flight, so identity checks are int/long compares instead of String compares:
+ * - icao24: 24-bit address (6 lower case hex digits) packed into an int
+ * - callsign: interned within the CallsignTable of a batch of trajectories (one String-object per distinct callsign, identified by an int id); while reading in, callsigns of up to 8 ASCII characters are compared as packed long key
+ * Values without compact representation (e.g. icao24 in upper case, callsigns with more than 8 characters) get NO_ICAO24/NO_CALLSIGN_KEY and have to be compared as String.
+ */
+public class FlightIdentity {
+	public static final int NO_ICAO24 = -1;				// icao24 not packable (or not available)
+	public static final long NO_CALLSIGN_KEY = -1;		// callsign not packable (or not available)
+	public static final int NO_CALLSIGN_ID = -1;		// callsign not interned (or not available)
+
+	private FlightIdentity() {
+	}
+
+	/**
+	 * Packs an icao24 address into an int
+	 * @param icao24 Icao24 address (6 lower case hex digits, as within state_vectors_data4)
+	 * @return Packed icao24 (0 ... 0xFFFFFF); NO_ICAO24 if icao24 is null or no address of 6 lower case hex digits
+	 */
+	public static int packIcao24(String icao24) {
+		if((icao24 == null) || (icao24.length() != 6))
+			return NO_ICAO24;
+		int packedIcao24 = 0;
+		for(int i=0; i<6; i++) {
+			int digit = hexDigit(icao24.charAt(i));
+			if(digit < 0)
+				return NO_ICAO24;
+			packedIcao24 = (packedIcao24 << 4) | digit;
+		}
+		return packedIcao24;
+	}
+
+	/**
+	 * Returns the value of a lower case hex digit
+	 * @param character Character
+	 * @return Value 0 ... 15; -1 if character is no lower case hex digit
+	 */
+	static int hexDigit(int character) {
+		if((character >= '0') && (character <= '9'))
+			return character - '0';
+		if((character >= 'a') && (character <= 'f'))
+			return character - 'a' + 10;
+		return -1;
+	}
+
+	/**
+	 * Packs a callsign into a long key (for compares while reading in)
+	 * @param callsign Callsign (spaces removed)
+	 * @return Key (characters in the bytes of the key, from the most significant byte); NO_CALLSIGN_KEY if callsign is null, has more than 8 characters or contains characters other than ASCII 0x01 ... 0x7F
+	 */
+	public static long packCallsign(String callsign) {
+		if((callsign == null) || (callsign.length() > 8))
+			return NO_CALLSIGN_KEY;
+		long callsignKey = 0;
+		for(int i=0; i<callsign.length(); i++) {
+			char character = callsign.charAt(i);
+			if((character == 0) || (character > 0x7F))
+				return NO_CALLSIGN_KEY;
+			callsignKey |= (long)character << (56-8*i);
+		}
+		return callsignKey;
+	}
+
+	/**
+	 * Compares the icao24 addresses of two trajectories (packed, if available for both)
+	 * @return True if the icao24 addresses are equal
+	 */
+	static boolean icao24Equals(int packedIcao24A, String icao24A, int packedIcao24B, String icao24B) {
+		if((packedIcao24A != NO_ICAO24) && (packedIcao24B != NO_ICAO24))
+			return packedIcao24A == packedIcao24B;
+		return icao24A.equals(icao24B);
+	}
+
+}
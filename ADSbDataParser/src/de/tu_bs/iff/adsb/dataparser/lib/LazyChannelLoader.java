@@ -0,0 +1,220 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Class to load the channels of a table read in with lazy channels (see TableStateVectorsData4.lazyChannels).
+ * The sample lines are read in again from the source (memory-mapped file or ByteBuffer) at their line offsets, and the requested sample-values are parsed in bulk (one pass over the lines for all requested channels).
+ * The source must not be changed between the read-in and the loading of the channels: a changed file is detected by its length and last modification time (see openReader()), a changed ByteBuffer is not detected.
+ */
+public class LazyChannelLoader {
+	private String fileDir = null;			// source: memory-mapped file
+	private long fileLength = 0;			// length of the file at the read-in
+	private long fileLastModified = 0;		// last modification time of the file at the read-in
+	private ByteBuffer byteBuffer = null;	// source: ByteBuffer
+	private SampleColumnMap columnMap = null;		// columns of the sample-values within the sample lines
+
+	private LazyChannelLoader() {
+	}
+
+	/**
+	 * Creates a LazyChannelLoader for a text file (read in memory-mapped); length and last modification time of the file are recorded, so it has to be created before the file is read in
+	 * @param fileDir Directory to the text file
+	 * @return LazyChannelLoader
+	 */
+	public static LazyChannelLoader forMappedFile(String fileDir) {
+		LazyChannelLoader lazyChannelLoader = new LazyChannelLoader();
+		lazyChannelLoader.fileDir = fileDir;
+		File file = new File(fileDir);
+		lazyChannelLoader.fileLength = file.length();
+		lazyChannelLoader.fileLastModified = file.lastModified();
+		return lazyChannelLoader;
+	}
+
+	/**
+	 * Creates a LazyChannelLoader for a ByteBuffer (the content of the ByteBuffer is kept referenced until all channels are loaded)
+	 * @param byteBuffer ByteBuffer containing the data
+	 * @return LazyChannelLoader
+	 */
+	public static LazyChannelLoader forByteBuffer(ByteBuffer byteBuffer) {
+		LazyChannelLoader lazyChannelLoader = new LazyChannelLoader();
+		lazyChannelLoader.byteBuffer = byteBuffer.duplicate();
+		return lazyChannelLoader;
+	}
+
+	/**
+	 * Opens a SampleLineReader of the source (positions of the lines: see SampleLineReader.getLineStart())
+	 * @return SampleLineReader
+	 * @throws FileNotFoundException If the file does not exist
+	 * @throws IOException If the file cannot be mapped or was changed since the LazyChannelLoader was created (length or last modification time differ)
+	 */
+	public SampleLineReader openReader() throws FileNotFoundException, IOException {
+		if(fileDir != null) {
+			File file = new File(fileDir);
+			if(!file.isFile())
+				throw new FileNotFoundException(fileDir);
+			if((file.length() != fileLength) || (file.lastModified() != fileLastModified))
+				throw new IOException("File changed since the read-in: " + fileDir);
+			return SampleLineReader.fromMappedFile(fileDir);
+		}
+		return SampleLineReader.fromByteBuffer(byteBuffer);
+	}
+
+	/**
+	 * Sets the columns of the sample-values within the sample lines (equal for all samples of the table)
+	 * @param columnMap Columns of the sample-values
+	 */
+	public void setColumnMap(SampleColumnMap columnMap) {
+		this.columnMap = columnMap;
+	}
+
+	/**
+	 * Tests if a channel is loaded (or parsed at read-in) within a table
+	 * @param table Table
+	 * @param valueIndex Value-index of the channel (see SampleColumnMap.VALUE_NAMES)
+	 * @return True if the channel is allocated; true for time, icao24 and callsign (no channels)
+	 */
+	public static boolean isChannelLoaded(TableStateVectorsData4 table, int valueIndex) {
+		switch(valueIndex) {
+		case 2: return table.lat != null;
+		case 3: return table.lon != null;
+		case 4: return table.velocity != null;
+		case 5: return table.heading != null;
+		case 6: return table.vertRate != null;
+		case 8: return table.onGround != null;
+		case 9: return table.alert != null;
+		case 10: return table.spi != null;
+		case 11: return table.squawk != null;
+		case 12: return table.baroAlt != null;
+		case 13: return table.geoAltitude != null;
+		case 14: return table.lastPosUpdate != null;
+		case 15: return table.lastContact != null;
+		default: return true;
+		}
+	}
+
+	/**
+	 * Tests if a channel is used by TrajectoryVertical and TrajectoryHorizontal (allocated if TableStateVectorsData4.pipelineChannelsOnly is true)
+	 * @param valueIndex Value-index of the channel (see SampleColumnMap.VALUE_NAMES)
+	 * @return True for lat, lon, baroaltitude, lastposupdate and lastcontact
+	 */
+	public static boolean isPipelineChannel(int valueIndex) {
+		return (valueIndex == 2) || (valueIndex == 3) || (valueIndex == 12) || (valueIndex == 14) || (valueIndex == 15);
+	}
+
+	/**
+	 * Loads channels of a table with lazy channels: the channels are allocated and the sample-values are parsed from the sample lines at table.lineOffsets.
+	 * Channels already loaded and channels not allocated due to table.pipelineChannelsOnly are skipped.
+	 * @param table Table with lazy channels (time and lineOffsets of the samples)
+	 * @param valueIndexes Value-indexes of the channels to load (see SampleColumnMap.VALUE_NAMES)
+	 * @return Error code; 0: successful; -1: file not found; -2: IOException or file changed since the read-in (see openReader(); no channel loaded); 10xx: one or more sample-values (value-index: xx) not parseable (corresponding vaValue[index] set to false)
+	 */
+	public int loadChannels(TableStateVectorsData4 table, int[] valueIndexes) {
+		int errorCode = 0;
+
+		int numberOfSamples = table.time.length;
+		boolean[] load = new boolean[SampleColumnMap.VALUE_NAMES.length];
+		boolean anyChannel = false;
+		for(int i=0; i<valueIndexes.length; i++) {
+			int valueIndex = valueIndexes[i];
+			if(isChannelLoaded(table, valueIndex) || (table.pipelineChannelsOnly && !isPipelineChannel(valueIndex)))
+				continue;
+			load[valueIndex] = true;
+			anyChannel = true;
+		}
+		if(!anyChannel)
+			return errorCode;
+
+		// channels are parsed into loaded and moved to table after all lines were parsed successfully
+		TableStateVectorsData4 loaded = new TableStateVectorsData4();
+		allocateChannels(loaded, load, numberOfSamples);
+
+		byte[] line = new byte[SampleTableBuilder.INPUT_DATA_SIZE];
+		SampleLineTokenizer tokenizer = new SampleLineTokenizer();
+		try {
+			SampleLineReader dataReader = openReader();
+			try {
+				for(int i=0; i<numberOfSamples; i++) {
+					dataReader.seek(table.lineOffsets[i]);
+					int lineEnd = dataReader.readLine(line);
+					if(lineEnd < 0)
+						return -2;
+					tokenizer.tokenize(line, lineEnd);
+					for(int valueIndex=0; valueIndex<load.length; valueIndex++)
+						if(load[valueIndex])
+							if(!parseSampleValue(line, tokenizer, valueIndex, loaded, i))
+								errorCode = 1000+valueIndex;
+				}
+			} finally {
+				dataReader.close();
+			}
+		} catch(FileNotFoundException e) {
+			return -1;
+		} catch(IOException e) {
+			return -2;
+		}
+
+		moveChannels(loaded, load, table);
+		return errorCode;
+	}
+
+	private static void allocateChannels(TableStateVectorsData4 table, boolean[] load, int numberOfSamples) {
+		if(load[2]) { table.lat = new double[numberOfSamples]; table.vaLat = ValidityMask.allocate(numberOfSamples); }
+		if(load[3]) { table.lon = new double[numberOfSamples]; table.vaLon = ValidityMask.allocate(numberOfSamples); }
+		if(load[4]) { table.velocity = new double[numberOfSamples]; table.vaVelocity = ValidityMask.allocate(numberOfSamples); }
+		if(load[5]) { table.heading = new double[numberOfSamples]; table.vaHeading = ValidityMask.allocate(numberOfSamples); }
+		if(load[6]) { table.vertRate = new double[numberOfSamples]; table.vaVertRate = ValidityMask.allocate(numberOfSamples); }
+		if(load[8]) { table.onGround = new boolean[numberOfSamples]; table.vaOnGround = ValidityMask.allocate(numberOfSamples); }
+		if(load[9]) { table.alert = new boolean[numberOfSamples]; table.vaAlert = ValidityMask.allocate(numberOfSamples); }
+		if(load[10]) { table.spi = new boolean[numberOfSamples]; table.vaSpi = ValidityMask.allocate(numberOfSamples); }
+		if(load[11]) { table.squawk = new int[numberOfSamples]; table.vaSquawk = ValidityMask.allocate(numberOfSamples); }
+		if(load[12]) { table.baroAlt = new double[numberOfSamples]; table.vaBaroAlt = ValidityMask.allocate(numberOfSamples); }
+		if(load[13]) { table.geoAltitude = new double[numberOfSamples]; table.vaGeoAltitude = ValidityMask.allocate(numberOfSamples); }
+		if(load[14]) { table.lastPosUpdate = new double[numberOfSamples]; table.vaLastPosUpdate = ValidityMask.allocate(numberOfSamples); }
+		if(load[15]) { table.lastContact = new double[numberOfSamples]; table.vaLastContact = ValidityMask.allocate(numberOfSamples); }
+	}
+
+	private static void moveChannels(TableStateVectorsData4 source, boolean[] load, TableStateVectorsData4 table) {
+		if(load[2]) { table.lat = source.lat; table.vaLat = source.vaLat; }
+		if(load[3]) { table.lon = source.lon; table.vaLon = source.vaLon; }
+		if(load[4]) { table.velocity = source.velocity; table.vaVelocity = source.vaVelocity; }
+		if(load[5]) { table.heading = source.heading; table.vaHeading = source.vaHeading; }
+		if(load[6]) { table.vertRate = source.vertRate; table.vaVertRate = source.vaVertRate; }
+		if(load[8]) { table.onGround = source.onGround; table.vaOnGround = source.vaOnGround; }
+		if(load[9]) { table.alert = source.alert; table.vaAlert = source.vaAlert; }
+		if(load[10]) { table.spi = source.spi; table.vaSpi = source.vaSpi; }
+		if(load[11]) { table.squawk = source.squawk; table.vaSquawk = source.vaSquawk; }
+		if(load[12]) { table.baroAlt = source.baroAlt; table.vaBaroAlt = source.vaBaroAlt; }
+		if(load[13]) { table.geoAltitude = source.geoAltitude; table.vaGeoAltitude = source.vaGeoAltitude; }
+		if(load[14]) { table.lastPosUpdate = source.lastPosUpdate; table.vaLastPosUpdate = source.vaLastPosUpdate; }
+		if(load[15]) { table.lastContact = source.lastContact; table.vaLastContact = source.vaLastContact; }
+	}
+
+	/**
+	 * Parses a sample-value of a sample line (as within SampleTableBuilder.addSampleLine())
+	 * @return Status; true: success; false: error (line-element not "NULL" and parsing of value not successful; boolean values are not checked)
+	 */
+	private boolean parseSampleValue(byte[] line, SampleLineTokenizer tokenizer, int valueIndex, TableStateVectorsData4 table, int index) {
+		int column = columnMap.getColumn(valueIndex);
+		switch(valueIndex) {
+		case 2: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.lat, table.vaLat, index);
+		case 3: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.lon, table.vaLon, index);
+		case 4: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.velocity, table.vaVelocity, index);
+		case 5: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.heading, table.vaHeading, index);
+		case 6: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.vertRate, table.vaVertRate, index);
+		case 8: SampleTableBuilder.parseBooleanSample(line, tokenizer, column, table.onGround, table.vaOnGround, index); return true;
+		case 9: SampleTableBuilder.parseBooleanSample(line, tokenizer, column, table.alert, table.vaAlert, index); return true;
+		case 10: SampleTableBuilder.parseBooleanSample(line, tokenizer, column, table.spi, table.vaSpi, index); return true;
+		case 11: return SampleTableBuilder.parseIntSample(line, tokenizer, column, table.squawk, table.vaSquawk, index);
+		case 12: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.baroAlt, table.vaBaroAlt, index);
+		case 13: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.geoAltitude, table.vaGeoAltitude, index);
+		case 14: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.lastPosUpdate, table.vaLastPosUpdate, index);
+		case 15: return SampleTableBuilder.parseDoubleSample(line, tokenizer, column, table.lastContact, table.vaLastContact, index);
+		default: return true;
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.util.Arrays;
+
+/**
+ * Class containing the timestamps of the retained samples (vaSample[] == true and vrSample[] == false) of a parsed trajectory table in compacted form, for the interpolation of channels (see TrajectoryVertical.interpolateBaroAlt(), TrajectoryHorizontal.interpolatePos()).
+ * Single lookups are served by binary search (O(log n)); sequences of lookups with non-decreasing timestamps (e.g. merging of trajectories) are served by a Cursor, which only moves forward (O(n) for the whole sequence).
+ */
+public class RetainedSampleIndex {
+	public double[] time;			// timestamps of the retained samples (in order of the table)
+	public int[] tableIndexes;		// indexes of the retained samples within the table
+
+	/**
+	 * @param time Time channel of the table
+	 * @param vaSample Valid samples of the table
+	 * @param vrSample Removed samples of the table
+	 */
+	public RetainedSampleIndex(double[] time, boolean[] vaSample, boolean[] vrSample) {
+		int retainedCount = 0;
+		for(int i=0; i<vaSample.length; i++)
+			if(vaSample[i] && !vrSample[i])
+				retainedCount++;
+
+		this.time = new double[retainedCount];
+		tableIndexes = new int[retainedCount];
+		int retainedIndex = 0;
+		for(int i=0; i<vaSample.length; i++)
+			if(vaSample[i] && !vrSample[i]) {
+				this.time[retainedIndex] = time[i];
+				tableIndexes[retainedIndex] = i;
+				retainedIndex++;
+			}
+	}
+
+	/**
+	 * Returns the number of retained samples
+	 * @return Number of retained samples
+	 */
+	public int size() {
+		return time.length;
+	}
+
+	/**
+	 * Determines the first retained sample with a timestamp not smaller than timestamp (binary search)
+	 * @param timestamp Timestamp [s]
+	 * @return Index of the retained sample (the retained sample before is the left neighbour for interpolation); size() if timestamp lies right-off all retained samples
+	 */
+	public int findRightIndex(double timestamp) {
+		int low = 0;
+		int high = time.length;
+		while(low < high) {
+			int middle = (low+high) >>> 1;
+			if(time[middle] < timestamp)
+				low = middle+1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Determines the order of timestamps for lookups in one pass (e.g. unsorted query timestamps of a batch interpolation); stable merge sort of an index permutation, the timestamps are not changed.
+	 * @param timestamps Timestamps [s]
+	 * @return Indexes of the timestamps in ascending order of the timestamps (NaN timestamps are left out)
+	 */
+	public static int[] sortedOrder(double[] timestamps) {
+		int count = 0;
+		int[] order = new int[timestamps.length];
+		double[] keys = new double[timestamps.length];		// timestamps in the order of order[] (moved along, so the merges access memory sequentially)
+		for(int i=0; i<timestamps.length; i++)
+			if(!Double.isNaN(timestamps[i])) {
+				order[count] = i;
+				keys[count] = timestamps[i];
+				count++;
+			}
+
+		// bottom-up merge sort ...
+		int[] orderBuffer = new int[count];
+		double[] keysBuffer = new double[count];
+		for(int width=1; width<count; width*=2) {
+			for(int start=0; start<count; start+=2*width) {
+				int middle = Math.min(start+width, count);
+				int end = Math.min(start+2*width, count);
+				int left = start;
+				int right = middle;
+				for(int i=start; i<end; i++)
+					if((left < middle) && ((right >= end) || (keys[left] <= keys[right]))) {
+						orderBuffer[i] = order[left];
+						keysBuffer[i] = keys[left++];
+					} else {
+						orderBuffer[i] = order[right];
+						keysBuffer[i] = keys[right++];
+					}
+			}
+			int[] orderSwap = order;
+			order = orderBuffer;
+			orderBuffer = orderSwap;
+			double[] keysSwap = keys;
+			keys = keysBuffer;
+			keysBuffer = keysSwap;
+		}
+		// ... bottom-up merge sort
+
+		if(order.length > count)
+			order = Arrays.copyOf(order, count);
+		return order;
+	}
+
+	/**
+	 * Returns a cursor for a sequence of lookups with non-decreasing timestamps
+	 * @return Cursor (positioned at the first retained sample)
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Cursor of a RetainedSampleIndex: lookups with non-decreasing timestamps move the cursor forward sample by sample; a decreasing timestamp repositions the cursor by binary search.
+	 */
+	public class Cursor {
+		private int rightIndex = 0;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Determines the first retained sample with a timestamp not smaller than timestamp (equal to RetainedSampleIndex.findRightIndex())
+		 * @param timestamp Timestamp [s]
+		 * @return Index of the retained sample; size() if timestamp lies right-off all retained samples
+		 */
+		public int findRightIndex(double timestamp) {
+			if((rightIndex > 0) && !(time[rightIndex-1] < timestamp))
+				rightIndex = RetainedSampleIndex.this.findRightIndex(timestamp);		// (timestamp decreased)
+			else
+				while((rightIndex < time.length) && (time[rightIndex] < timestamp))
+					rightIndex++;
+			return rightIndex;
+		}
+	}
+
+}
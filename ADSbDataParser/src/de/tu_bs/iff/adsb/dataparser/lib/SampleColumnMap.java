@@ -0,0 +1,126 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.util.Arrays;
+
+/**
+ * Class to map the sample-values of state_vectors_data4 (value-index: see VALUE_NAMES) to the columns of sample lines.
+ * The default maps correspond to "SELECT * FROM state_vectors_data4 ..." (all values in fixed order behind the column-offset of the line format),
+ * other maps are built from the header line of a log, so any subset of the values (at least time, icao24 and callsign) in any order can be read in.
+ */
+public class SampleColumnMap {
+	/** Column names of the sample-values within the header line (index: value-index, as used for error codes 10xx) */
+	public static final String[] VALUE_NAMES = {
+		"time", "icao24", "lat", "lon", "velocity", "heading", "vertrate", "callsign",
+		"onground", "alert", "spi", "squawk", "baroaltitude", "geoaltitude", "lastposupdate", "lastcontact"
+	};
+	public static final int NO_COLUMN = -1;		// column of sample-values not contained within the sample lines
+
+	private static final SampleColumnMap[] DEFAULT_MAPS = {createDefault(0), createDefault(1)};
+
+	private int[] columns = new int[VALUE_NAMES.length];		// column index of each sample-value
+	private int minimumColumnCount;		// number of columns up to the last column of a sample-value (0 for default maps)
+
+	private SampleColumnMap() {
+	}
+
+	private static SampleColumnMap createDefault(int valueIndexOffset) {
+		SampleColumnMap columnMap = new SampleColumnMap();
+		for(int i=0; i<VALUE_NAMES.length; i++)
+			columnMap.columns[i] = i+valueIndexOffset;
+		columnMap.minimumColumnCount = 0;
+		return columnMap;
+	}
+
+	/**
+	 * Returns the default map of a line format (all sample-values in fixed order)
+	 * @param valueIndexOffset Column-offset of the sample-values (see SampleTableBuilder.getValueIndexOffset())
+	 * @return Default map
+	 */
+	public static SampleColumnMap getDefault(int valueIndexOffset) {
+		return DEFAULT_MAPS[valueIndexOffset];
+	}
+
+	/**
+	 * Builds the map from a header line (columns named as VALUE_NAMES; unknown columns, e.g. "hour", are ignored)
+	 * @param line Line buffer containing the line
+	 * @param tokenizer Tokenizer holding the columns of the line
+	 * @return Map; null if the line is not a header line (columns "time", "icao24" and "callsign" required)
+	 */
+	public static SampleColumnMap fromHeaderLine(byte[] line, SampleLineTokenizer tokenizer) {
+		SampleColumnMap columnMap = null;
+		for(int column=0; column<tokenizer.getColumnCount(); column++) {
+			if(tokenizer.getColumnStart(column) == tokenizer.getColumnEnd(column))
+				continue;
+			if(line[tokenizer.getColumnStart(column)] < 'a')		// (names start with a lower case letter; quick test for sample values)
+				continue;
+			for(int i=0; i<VALUE_NAMES.length; i++)
+				if(tokenizer.columnEquals(column, VALUE_NAMES[i])) {
+					if(columnMap == null) {
+						columnMap = new SampleColumnMap();
+						for(int j=0; j<VALUE_NAMES.length; j++)
+							columnMap.columns[j] = NO_COLUMN;
+					}
+					columnMap.columns[i] = column;
+					break;
+				}
+		}
+		if(columnMap == null)
+			return null;
+		if((columnMap.columns[0] == NO_COLUMN) || (columnMap.columns[1] == NO_COLUMN) || (columnMap.columns[7] == NO_COLUMN))
+			return null;
+		columnMap.minimumColumnCount = 0;
+		for(int i=0; i<VALUE_NAMES.length; i++)
+			columnMap.minimumColumnCount = Math.max(columnMap.minimumColumnCount, columnMap.columns[i]+1);
+		return columnMap;
+	}
+
+	/**
+	 * Returns the column of a sample-value
+	 * @param valueIndex Value-index (see VALUE_NAMES)
+	 * @return Column index; NO_COLUMN if the sample-value is not contained
+	 */
+	public int getColumn(int valueIndex) {
+		return columns[valueIndex];
+	}
+
+	/**
+	 * Returns the number of columns a sample line needs to contain all mapped sample-values (up to the last column of a sample-value)
+	 * @return Number of columns; 0 for default maps
+	 */
+	public int getMinimumColumnCount() {
+		return minimumColumnCount;
+	}
+
+	/**
+	 * Tests if the map equals a default map (all sample-values in fixed order behind the time column in column 0 or 1)
+	 * @return True if the map equals the default map with the column-offset of the time column
+	 */
+	public boolean isDefault() {
+		if(columns[0] >= DEFAULT_MAPS.length)
+			return false;
+		for(int i=0; i<VALUE_NAMES.length; i++)
+			if(columns[i] != columns[0]+i)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Compares the columns of the sample-values with another map (e.g. maps built from repeated header lines)
+	 * @param object Other map
+	 * @return True if all sample-values are in equal columns
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if(this == object)
+			return true;
+		if(!(object instanceof SampleColumnMap))
+			return false;
+		return Arrays.equals(columns, ((SampleColumnMap)object).columns);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(columns);
+	}
+
+}
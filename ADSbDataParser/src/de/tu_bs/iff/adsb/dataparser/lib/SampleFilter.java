@@ -0,0 +1,100 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+/**
+ * Class containing predicates evaluated during read-in of samples (see class SampleTableBuilder): time window, lat/lon bounding box and on-ground exclusion.
+ * Rejected samples are not added to the table (no soft errors are reported for them), so data outside the region/time of interest is not stored at all.
+ */
+public class SampleFilter {
+	public int minTime = Integer.MIN_VALUE;		// earliest accepted time (inclusive)
+	public int maxTime = Integer.MAX_VALUE;		// latest accepted time (inclusive)
+
+	public boolean boundingBoxSet = false;		// true: samples without position or with position outside the bounding box are rejected
+	public double minLat = -90;
+	public double maxLat = 90;
+	public double minLon = -180;		// if minLon > maxLon, the bounding box crosses the antimeridian (lon >= minLon or lon <= maxLon)
+	public double maxLon = 180;
+
+	public boolean excludeOnGround = false;		// true: samples with onground = true are rejected
+
+	public SampleFilter() {
+	}
+
+	/**
+	 * Sets the time window of accepted samples
+	 * @param minTime Earliest accepted time (inclusive)
+	 * @param maxTime Latest accepted time (inclusive)
+	 */
+	public void setTimeWindow(int minTime, int maxTime) {
+		this.minTime = minTime;
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Sets the bounding box of accepted samples (samples without position are rejected)
+	 * @param minLat Southern boundary [deg]
+	 * @param maxLat Northern boundary [deg]
+	 * @param minLon Western boundary [deg]
+	 * @param maxLon Eastern boundary [deg] (less than minLon for a bounding box crossing the antimeridian)
+	 */
+	public void setBoundingBox(double minLat, double maxLat, double minLon, double maxLon) {
+		boundingBoxSet = true;
+		this.minLat = minLat;
+		this.maxLat = maxLat;
+		this.minLon = minLon;
+		this.maxLon = maxLon;
+	}
+
+	/**
+	 * Sets the exclusion of samples on ground
+	 * @param excludeOnGround True: samples with onground = true are rejected (samples with onground "NULL" are accepted)
+	 */
+	public void setExcludeOnGround(boolean excludeOnGround) {
+		this.excludeOnGround = excludeOnGround;
+	}
+
+	/**
+	 * Tests the time of a sample
+	 * @param time Time of the sample
+	 * @return True if the sample is accepted
+	 */
+	public boolean acceptsTime(int time) {
+		return (time >= minTime) && (time <= maxTime);
+	}
+
+	/**
+	 * Tests the position of a sample
+	 * @param positionAvailable True if lat and lon of the sample are available
+	 * @param lat Latitude of the sample [deg]
+	 * @param lon Longitude of the sample [deg]
+	 * @return True if the sample is accepted
+	 */
+	public boolean acceptsPosition(boolean positionAvailable, double lat, double lon) {
+		if(!boundingBoxSet)
+			return true;
+		if(!positionAvailable)
+			return false;
+		if((lat < minLat) || (lat > maxLat))
+			return false;
+		if(minLon <= maxLon)
+			return (lon >= minLon) && (lon <= maxLon);
+		return (lon >= minLon) || (lon <= maxLon);
+	}
+
+	/**
+	 * Tests the onground-value of a sample
+	 * @param onGround True if onground of the sample is true (false if onground is false or "NULL")
+	 * @return True if the sample is accepted
+	 */
+	public boolean acceptsOnGround(boolean onGround) {
+		return !(excludeOnGround && onGround);
+	}
+
+	/**
+	 * Tests if the predicates need sample-values besides time (e.g. a read-in with lazy channels parses only time, see TrajectoryStateVectorsData4.setLazyChannels())
+	 * @return True if a bounding box or the on-ground exclusion is set
+	 */
+	public boolean requiresSampleValues() {
+		return boundingBoxSet || excludeOnGround;
+	}
+
+}
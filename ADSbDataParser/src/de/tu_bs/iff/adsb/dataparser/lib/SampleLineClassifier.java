@@ -0,0 +1,63 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+/**
+ * Class to identify the sample lines of a log and the columns of their sample-values, line by line.
+ * As long as no header line with a column order other than "SELECT * FROM state_vectors_data4 ..." is found, sample lines are identified by their format (see SampleTableBuilder.testForSampleLine()).
+ * Behind such a header line (see SampleColumnMap.fromHeaderLine()), all lines containing the columns of all sample-values of the header line are sample lines.
+ */
+public class SampleLineClassifier {
+	private SampleColumnMap headerColumnMap = null;		// map of the last header line; null: default maps
+
+	public SampleLineClassifier() {
+	}
+
+	/**
+	 * @param headerColumnMap Map of a header line read in before (e.g. by another classifier for a previous part of the log); null: default maps
+	 */
+	public SampleLineClassifier(SampleColumnMap headerColumnMap) {
+		this.headerColumnMap = headerColumnMap;
+	}
+
+	/**
+	 * Returns the map of the last header line with a column order other than the default
+	 * @return Map; null if sample lines are identified by their format (default maps)
+	 */
+	public SampleColumnMap getHeaderColumnMap() {
+		return headerColumnMap;
+	}
+
+	/**
+	 * Identifies a line; sample lines are split into columns by tokenizer
+	 * @param line Line buffer containing the line
+	 * @param lineEnd Position of the end of the line within the line buffer
+	 * @param tokenizer Tokenizer to split the line into columns
+	 * @return Map of the columns of the sample-values; null if the line is not a sample line
+	 */
+	public SampleColumnMap classify(byte[] line, int lineEnd, SampleLineTokenizer tokenizer) {
+		if(headerColumnMap == null) {
+			int sampleLineFormat;
+			if((sampleLineFormat = SampleTableBuilder.testForSampleLine(line, lineEnd)) != 0) {
+				tokenizer.tokenize(line, lineEnd);
+				SampleColumnMap columnMap = SampleColumnMap.getDefault(SampleTableBuilder.getValueIndexOffset(sampleLineFormat));
+				int timeStart = tokenizer.getColumnStart(columnMap.getColumn(0));
+				if((timeStart == tokenizer.getColumnEnd(columnMap.getColumn(0))) || (line[timeStart] < 'a'))		// (header lines of other column orders may pass testForSampleLine())
+					return columnMap;
+			}
+		}
+
+		tokenizer.tokenize(line, lineEnd);
+		SampleColumnMap columnMap = SampleColumnMap.fromHeaderLine(line, tokenizer);
+		if(columnMap != null) {
+			if(columnMap.isDefault())
+				headerColumnMap = null;
+			else
+				headerColumnMap = columnMap;
+			return null;
+		}
+
+		if((headerColumnMap != null) && (tokenizer.getColumnCount() >= headerColumnMap.getMinimumColumnCount()))
+			return headerColumnMap;
+		return null;
+	}
+
+}
@@ -0,0 +1,361 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Class to read in the lines of state_vectors_data4 logs (line by line) into a line buffer.
+ * Lines are either read from a Reader-object (characters) or scanned as raw ASCII bytes from a memory-mapped file, an InputStream/ReadableByteChannel or a ByteBuffer.
+ * Memory-mapped files are mapped in windows of MAPPED_WINDOW_SIZE bytes, so files larger than 2 GB can be read in as well.
+ * InputStreams/ReadableByteChannels are read incrementally into a buffer of fixed size (bounded memory, independent of the size of the data).
+ * Compressed files (gzip: *.gz; zip: *.zip, first file entry) are decompressed while reading (see fromCompressedFile()).
+ */
+public class SampleLineReader {
+	public static final int END_OF_DATA = -1;				// return value of readLine() if no further line is available
+	public static final int LINE_BUFFER_OVERFLOW = -2;		// return value of readLine() if a line does not fit into the line buffer
+
+	private static final long MAPPED_WINDOW_SIZE = 256L*1024*1024;		// size of a memory-mapped window of a file
+	public static final int DEFAULT_CHANNEL_BUFFER_SIZE = 1024*1024;	// default size of the buffer for InputStreams/ReadableByteChannels
+	private static final int COMPRESSED_READ_AHEAD_SIZE = 4*1024*1024;	// size of the read-ahead buffer for compressed files (few large reads, e.g. for network file systems)
+
+	private enum Source {
+		READER, MAPPED_FILE, CHANNEL, BYTE_BUFFER
+	}
+	private Source source;
+
+	// source READER:
+	private Reader reader = null;
+
+	// source MAPPED_FILE:
+	private RandomAccessFile file = null;
+	private FileChannel fileChannel = null;
+	private long sourceEnd;				// end of the byte range to read (exclusive)
+	private long windowStart = 0;		// source position of the beginning of buffer: file position of the currently mapped window (MAPPED_FILE), stream position of the buffered data (CHANNEL)
+	private ByteBuffer buffer = null;	// currently mapped window (MAPPED_FILE), currently buffered data (CHANNEL) or data (BYTE_BUFFER)
+	private long lineStart = -1;		// source position of the line read last (see getLineStart())
+
+	// source CHANNEL:
+	private ReadableByteChannel channel = null;
+	private boolean endOfChannel;		// true if the end of the channel has been reached (no further data beyond buffer)
+
+	private SampleLineReader() {
+	}
+
+	/**
+	 * Creates a SampleLineReader reading characters from a Reader-object
+	 * @param reader Reader-object to read-in data
+	 * @return SampleLineReader
+	 */
+	public static SampleLineReader fromReader(Reader reader) {
+		SampleLineReader sampleLineReader = new SampleLineReader();
+		sampleLineReader.source = Source.READER;
+		sampleLineReader.reader = reader;
+		return sampleLineReader;
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of a memory-mapped file
+	 * @param fileDir Directory to the text file
+	 * @return SampleLineReader
+	 * @throws FileNotFoundException If the file does not exist
+	 * @throws IOException If the file cannot be mapped
+	 */
+	public static SampleLineReader fromMappedFile(String fileDir) throws FileNotFoundException, IOException {
+		return fromMappedFile(fileDir, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of a byte range of a memory-mapped file (e.g. a chunk of a file read in by multiple threads).
+	 * The byte range should start at the beginning of a line and end behind a '\n' (or at the end of the file).
+	 * @param fileDir Directory to the text file
+	 * @param rangeStart Start of the byte range (inclusive)
+	 * @param rangeEnd End of the byte range (exclusive); limited to the size of the file
+	 * @return SampleLineReader
+	 * @throws FileNotFoundException If the file does not exist
+	 * @throws IOException If the file cannot be mapped
+	 */
+	public static SampleLineReader fromMappedFile(String fileDir, long rangeStart, long rangeEnd) throws FileNotFoundException, IOException {
+		SampleLineReader sampleLineReader = new SampleLineReader();
+		sampleLineReader.source = Source.MAPPED_FILE;
+		sampleLineReader.file = new RandomAccessFile(fileDir, "r");
+		sampleLineReader.fileChannel = sampleLineReader.file.getChannel();
+		sampleLineReader.sourceEnd = Math.min(rangeEnd, sampleLineReader.fileChannel.size());
+		sampleLineReader.mapWindow(Math.min(rangeStart, sampleLineReader.sourceEnd));
+		return sampleLineReader;
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of an InputStream, which is read incrementally into a buffer of DEFAULT_CHANNEL_BUFFER_SIZE bytes
+	 * @param inputStream InputStream to read-in data (closed by close())
+	 * @return SampleLineReader
+	 */
+	public static SampleLineReader fromInputStream(InputStream inputStream) {
+		return fromChannel(Channels.newChannel(inputStream), DEFAULT_CHANNEL_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of an InputStream, which is read incrementally into a buffer of bufferSize bytes
+	 * @param inputStream InputStream to read-in data (closed by close())
+	 * @param bufferSize Size of the buffer (at least SampleTableBuilder.INPUT_DATA_SIZE; lines longer than the buffer cause LINE_BUFFER_OVERFLOW)
+	 * @return SampleLineReader
+	 */
+	public static SampleLineReader fromInputStream(InputStream inputStream, int bufferSize) {
+		return fromChannel(Channels.newChannel(inputStream), bufferSize);
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of a (blocking) ReadableByteChannel, which is read incrementally into a buffer of bufferSize bytes
+	 * @param channel ReadableByteChannel to read-in data (closed by close())
+	 * @param bufferSize Size of the buffer (at least SampleTableBuilder.INPUT_DATA_SIZE; lines longer than the buffer cause LINE_BUFFER_OVERFLOW)
+	 * @return SampleLineReader
+	 */
+	public static SampleLineReader fromChannel(ReadableByteChannel channel, int bufferSize) {
+		SampleLineReader sampleLineReader = new SampleLineReader();
+		sampleLineReader.source = Source.CHANNEL;
+		sampleLineReader.channel = channel;
+		sampleLineReader.endOfChannel = false;
+		sampleLineReader.buffer = ByteBuffer.allocate(Math.max(bufferSize, SampleTableBuilder.INPUT_DATA_SIZE));
+		sampleLineReader.buffer.limit(0);		// (no data buffered yet)
+		return sampleLineReader;
+	}
+
+	/**
+	 * Tests if a file is compressed (by its file extension: *.gz or *.zip) and has to be read in with fromCompressedFile()
+	 * @param fileDir Directory to the file
+	 * @return True if the file is compressed
+	 */
+	public static boolean isCompressedFile(String fileDir) {
+		String lowerCaseFileDir = fileDir.toLowerCase(Locale.ROOT);
+		return lowerCaseFileDir.endsWith(".gz") || lowerCaseFileDir.endsWith(".zip");
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of a compressed file, which is decompressed incrementally (gzip: *.gz; zip: *.zip, the first file entry is read)
+	 * @param fileDir Directory to the compressed file
+	 * @return SampleLineReader
+	 * @throws FileNotFoundException If the file does not exist
+	 * @throws IOException If the file is not a valid gzip/zip file
+	 */
+	public static SampleLineReader fromCompressedFile(String fileDir) throws FileNotFoundException, IOException {
+		InputStream fileInputStream = new FileInputStream(fileDir);
+		try {
+			if(fileDir.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+				ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(fileInputStream, COMPRESSED_READ_AHEAD_SIZE));
+				ZipEntry zipEntry;
+				while(((zipEntry = zipInputStream.getNextEntry()) != null) && zipEntry.isDirectory());
+				return fromInputStream(zipInputStream);		// (no file entry: no data)
+			}
+			return fromInputStream(new GZIPInputStream(fileInputStream, COMPRESSED_READ_AHEAD_SIZE));
+		} catch(IOException e) {
+			fileInputStream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a SampleLineReader scanning the raw bytes of a ByteBuffer (from its position to its limit; position and limit of the ByteBuffer itself are not changed)
+	 * @param byteBuffer ByteBuffer containing the data
+	 * @return SampleLineReader
+	 */
+	public static SampleLineReader fromByteBuffer(ByteBuffer byteBuffer) {
+		SampleLineReader sampleLineReader = new SampleLineReader();
+		sampleLineReader.source = Source.BYTE_BUFFER;
+		sampleLineReader.buffer = byteBuffer.duplicate();
+		return sampleLineReader;
+	}
+
+	/**
+	 * Reads the next line (including '\n') into the line buffer.
+	 * Characters beyond ISO-8859-1 (READER) are stored as '?', as sample lines only contain ASCII characters.
+	 * @param lineBuffer Line buffer to store the line
+	 * @return Position of the end of the line within lineBuffer ('\n' or last character of the data); END_OF_DATA; LINE_BUFFER_OVERFLOW
+	 * @throws IOException If reading from the source fails
+	 */
+	public int readLine(byte[] lineBuffer) throws IOException {
+		switch(source) {
+		case READER:
+			return readLineFromReader(lineBuffer);
+		case MAPPED_FILE:
+		case CHANNEL:
+		case BYTE_BUFFER:
+			return readLineFromBuffer(lineBuffer);
+		default:
+			return END_OF_DATA;
+		}
+	}
+
+	/**
+	 * Returns the source position of the line read last by readLine() (e.g. to read in the line again with seek(), see class LazyChannelLoader)
+	 * @return Position of the first byte of the line: file position (MAPPED_FILE), position within the ByteBuffer (BYTE_BUFFER), stream position (CHANNEL); -1 for Reader-objects
+	 */
+	public long getLineStart() {
+		return lineStart;
+	}
+
+	/**
+	 * Sets the source position of the next line to read by readLine() (only memory-mapped files and ByteBuffers can be read in random order)
+	 * @param position Source position (see getLineStart())
+	 * @return Status; true: successful; false: source cannot be read in random order (no effect)
+	 * @throws IOException If mapping the file fails
+	 */
+	public boolean seek(long position) throws IOException {
+		switch(source) {
+		case MAPPED_FILE:
+			if((position >= windowStart) && (position < windowStart+buffer.limit()))
+				buffer.position((int)(position-windowStart));
+			else
+				mapWindow(Math.min(position, sourceEnd));
+			return true;
+		case BYTE_BUFFER:
+			buffer.position((int)position);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private int readLineFromReader(byte[] lineBuffer) throws IOException {
+		int lineEnd = -1;			// -1: no new line available; >=0: new line
+		int c;						// temporary variable to read in single characters
+		while((c = reader.read()) != -1) {
+			lineEnd++;
+			if(c <= 0xFF)
+				lineBuffer[lineEnd] = (byte)c;
+			else
+				lineBuffer[lineEnd] = '?';
+			if((char)c == '\n')		// end of line ...
+				break;				// ... line readin finished
+			if(lineEnd >= lineBuffer.length-1)
+				return LINE_BUFFER_OVERFLOW;
+		}
+		return lineEnd;
+	}
+
+	private int readLineFromBuffer(byte[] lineBuffer) throws IOException {
+		if(!buffer.hasRemaining()) {
+			if(!hasDataBehindBuffer())
+				return END_OF_DATA;
+			loadNextBuffer(buffer.limit());
+			if(!buffer.hasRemaining())
+				return END_OF_DATA;
+		}
+
+		// scan for the end of the line ...
+		int lineStart = buffer.position();
+		int newlinePosition = findNewline(buffer, lineStart, buffer.limit());
+		if((newlinePosition == -1) && hasDataBehindBuffer()) {
+			// line continues behind the buffer: load next buffer beginning with this line
+			int scannedLength = buffer.limit()-lineStart;
+			loadNextBuffer(lineStart);
+			lineStart = 0;
+			newlinePosition = findNewline(buffer, scannedLength, buffer.limit());
+			if((newlinePosition == -1) && hasDataBehindBuffer())
+				return LINE_BUFFER_OVERFLOW;		// line longer than a whole buffer
+		}
+		// ... scan for the end of the line
+
+		int lineLength;		// length of the line including '\n'
+		if(newlinePosition == -1)
+			lineLength = buffer.limit()-lineStart;
+		else
+			lineLength = newlinePosition-lineStart+1;
+
+		// same limits as for READER: at most lineBuffer.length-1 characters in front of '\n'
+		if((lineLength > lineBuffer.length) || ((newlinePosition == -1) && (lineLength >= lineBuffer.length)))
+			return LINE_BUFFER_OVERFLOW;
+
+		this.lineStart = windowStart+lineStart;
+		buffer.get(lineBuffer, 0, lineLength);
+		return lineLength-1;
+	}
+
+	private static int findNewline(ByteBuffer buffer, int from, int to) {
+		return ByteScanner.indexOf(buffer, from, to, (byte)'\n');
+	}
+
+	/**
+	 * Returns if the source contains further data behind the current buffer
+	 */
+	private boolean hasDataBehindBuffer() {
+		switch(source) {
+		case MAPPED_FILE:
+			return windowStart+buffer.limit() < sourceEnd;
+		case CHANNEL:
+			return !endOfChannel;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Loads the next buffer, beginning with the data at position keepFrom of the current buffer (new position of the buffer: 0)
+	 * @param keepFrom Position within the current buffer to continue from
+	 */
+	private void loadNextBuffer(int keepFrom) throws IOException {
+		switch(source) {
+		case MAPPED_FILE:
+			mapWindow(windowStart+keepFrom);
+			break;
+		case CHANNEL:
+			// move the remaining data to the beginning of the buffer and fill up the buffer from the channel
+			windowStart += keepFrom;
+			buffer.position(keepFrom);
+			buffer.compact();
+			while(buffer.hasRemaining())
+				if(channel.read(buffer) < 0) {
+					endOfChannel = true;
+					break;
+				}
+			buffer.flip();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void mapWindow(long position) throws IOException {
+		long size = sourceEnd-position;
+		if(size > MAPPED_WINDOW_SIZE)
+			size = MAPPED_WINDOW_SIZE;
+		windowStart = position;
+		buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Closes the source of the SampleLineReader
+	 * @throws IOException If closing the source fails
+	 */
+	public void close() throws IOException {
+		switch(source) {
+		case READER:
+			reader.close();
+			break;
+		case MAPPED_FILE:
+			buffer = null;			// (mapped windows are released by the garbage collector)
+			fileChannel.close();
+			file.close();
+			break;
+		case CHANNEL:
+			buffer = null;
+			channel.close();
+			break;
+		case BYTE_BUFFER:
+			buffer = null;
+			break;
+		}
+	}
+
+}
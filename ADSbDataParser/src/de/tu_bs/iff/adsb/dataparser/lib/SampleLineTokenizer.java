@@ -0,0 +1,188 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class to split sample lines of state_vectors_data4 logs (Impala-Shell / PuTTY format and Trino format) into columns.
+ * The columns are stored as start/end offsets within the line buffer, no String-objects are created. Delimiters are found 8 bytes at a time (see class ByteScanner).
+ * Columns are separated by '|'; the text in front of the first '|' is column 0 (empty in Impala-Shell / PuTTY format).
+ * Blanks (' ', '\t', '\r') at the beginning and the end of a column are not part of the column.
+ */
+public class SampleLineTokenizer {
+	public static final int MAX_COLUMN_COUNT = 64;		// columns behind this count are ignored
+
+	private byte[] line = null;
+	private int columnCount = 0;
+	private int[] columnStart = new int[MAX_COLUMN_COUNT];
+	private int[] columnEnd = new int[MAX_COLUMN_COUNT];
+
+	public SampleLineTokenizer() {
+	}
+
+	/**
+	 * Splits the line into columns.
+	 * @param line Line buffer
+	 * @param lineEnd Position of the end of the line within the line buffer (exclusive)
+	 * @return Number of columns found
+	 */
+	public int tokenize(byte[] line, int lineEnd) {
+		this.line = line;
+		columnCount = 0;
+
+		int position = 0;
+		while(columnCount < MAX_COLUMN_COUNT) {
+			// skip leading blanks ...
+			while((position < lineEnd) && isBlank(line[position]))
+				position++;
+			// ... skip leading spaces
+
+			int start = position;
+			position = ByteScanner.indexOf(line, position, lineEnd, (byte)'|');
+			if(position == -1)
+				position = lineEnd;
+			int end = position;		// end of column without trailing blanks
+			while((end > start) && isBlank(line[end-1]))
+				end--;
+			columnStart[columnCount] = start;
+			columnEnd[columnCount] = end;
+			columnCount++;
+
+			if(position >= lineEnd)
+				break;
+			position++;			// skip '|'
+		}
+
+		return columnCount;
+	}
+
+	private static boolean isBlank(byte character) {
+		return (character == ' ') || (character == '\t') || (character == '\r');
+	}
+
+	/**
+	 * Returns the number of columns found with the last call of tokenize()
+	 * @return Number of columns
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * Returns the start position of a column within the line buffer
+	 * @param column Column index
+	 * @return Start position (inclusive); if the column does not exist, start and end position are equal (empty column)
+	 */
+	public int getColumnStart(int column) {
+		if(column >= columnCount)
+			return 0;
+		return columnStart[column];
+	}
+
+	/**
+	 * Returns the end position of a column within the line buffer
+	 * @param column Column index
+	 * @return End position (exclusive); if the column does not exist, start and end position are equal (empty column)
+	 */
+	public int getColumnEnd(int column) {
+		if(column >= columnCount)
+			return 0;
+		return columnEnd[column];
+	}
+
+	/**
+	 * Returns the content of a column as String (spaces within the column are removed)
+	 * @param column Column index
+	 * @return Content of the column
+	 */
+	public String getColumnString(int column) {
+		int start = getColumnStart(column);
+		int end = getColumnEnd(column);
+
+		byte[] content = new byte[end-start];
+		int length = 0;
+		for(int i=start; i<end; i++)
+			if(line[i] != ' ')
+				content[length++] = line[i];
+
+		return new String(content, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Compares the content of a column (spaces within the column are ignored) with a String, without creating a String-object of the column
+	 * @param column Column index
+	 * @param value String to compare the column with
+	 * @return True if the content of the column equals value
+	 */
+	public boolean columnEquals(int column, String value) {
+		int end = getColumnEnd(column);
+		int valueIndex = 0;
+		for(int i=getColumnStart(column); i<end; i++) {
+			if(line[i] == ' ')
+				continue;
+			if(valueIndex >= value.length())
+				return false;
+			if((line[i] & 0xFF) != value.charAt(valueIndex))
+				return false;
+			valueIndex++;
+		}
+		return valueIndex == value.length();
+	}
+
+	/**
+	 * Returns the hash code of the content of a column (spaces within the column are ignored), without creating a String-object of the column
+	 * @param column Column index
+	 * @return Hash code; equal to getColumnString(column).hashCode()
+	 */
+	public int columnHashCode(int column) {
+		int end = getColumnEnd(column);
+		int hashCode = 0;
+		for(int i=getColumnStart(column); i<end; i++)
+			if(line[i] != ' ')
+				hashCode = 31*hashCode + (line[i] & 0xFF);
+		return hashCode;
+	}
+
+	/**
+	 * Returns the content of a column as packed icao24 (spaces within the column are ignored), without creating a String-object of the column
+	 * @param column Column index
+	 * @return Packed icao24; equal to FlightIdentity.packIcao24(getColumnString(column))
+	 */
+	public int getColumnIcao24(int column) {
+		int end = getColumnEnd(column);
+		int packedIcao24 = 0;
+		int digitCount = 0;
+		for(int i=getColumnStart(column); i<end; i++) {
+			if(line[i] == ' ')
+				continue;
+			int digit = FlightIdentity.hexDigit(line[i] & 0xFF);
+			if((digit < 0) || (digitCount == 6))
+				return FlightIdentity.NO_ICAO24;
+			packedIcao24 = (packedIcao24 << 4) | digit;
+			digitCount++;
+		}
+		if(digitCount != 6)
+			return FlightIdentity.NO_ICAO24;
+		return packedIcao24;
+	}
+
+	/**
+	 * Returns the content of a column as packed callsign key (spaces within the column are ignored), without creating a String-object of the column
+	 * @param column Column index
+	 * @return Callsign key; equal to FlightIdentity.packCallsign(getColumnString(column))
+	 */
+	public long getColumnCallsignKey(int column) {
+		int end = getColumnEnd(column);
+		long callsignKey = 0;
+		int characterCount = 0;
+		for(int i=getColumnStart(column); i<end; i++) {
+			if(line[i] == ' ')
+				continue;
+			if((line[i] <= 0) || (characterCount == 8))		// (bytes > 0x7F are negative)
+				return FlightIdentity.NO_CALLSIGN_KEY;
+			callsignKey |= (long)line[i] << (56-8*characterCount);
+			characterCount++;
+		}
+		return callsignKey;
+	}
+
+}
@@ -0,0 +1,362 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.IOException;
+
+/**
+ * Class to build up the table of a StateVectorsData4-trajectory (class: TrajectoryStateVectorsData4) sample line by sample line.
+ * The table grows while adding samples and has to be trimmed with trimTable() after the last sample was added.
+ */
+public class SampleTableBuilder {
+	public static final int INPUT_DATA_SIZE = 2048;			// size of line buffer for to read in lines from the input file
+
+	public String callsign = null;
+	public String icao24 = null;
+	public int packedIcao24 = FlightIdentity.NO_ICAO24;			// icao24 packed (see class FlightIdentity), for compares of the samples
+	public long callsignKey = FlightIdentity.NO_CALLSIGN_KEY;		// callsign packed (see class FlightIdentity), for compares of the samples
+
+	public TableStateVectorsData4 table = new TableStateVectorsData4();		// table with data values (arrays may be greater than sampleCount until trimTable() is called)
+	public int sampleCount = 0;
+
+	public int errorCode = 0;
+		// errorCode of the samples added so far (see function readInInterfaceData(String dataSource, InputDataType inputDataType) of class TrajectoryStateVectorsData4)
+		// 0: success
+		// -4: time vector not consistent (no further samples are added)
+		// 1: icao24 vector not consistent
+		// 2: callsign vector not consistent
+		// 10xx: one or more sample-values (value-index: xx) not parseable (corresponding vaValue[index] set to false; channels not parsed due to pipelineChannelsOnly are not checked)
+
+	public SampleLineClassifier lineClassifier = new SampleLineClassifier();		// identifies sample lines and their columns (keeps the header line of the log)
+
+	public SampleFilter sampleFilter = null;		// predicates for samples to be added (null: all samples are added)
+	public int rejectedSampleCount = 0;			// number of sample lines rejected by sampleFilter
+
+	public DuplicateRowFilter duplicateRowFilter = null;		// detects exact duplicate rows to be dropped (null: duplicate rows are kept)
+	public int droppedDuplicateRowCount = 0;		// number of sample lines dropped as duplicate of a sample added before
+
+	public long lineStart = -1;		// source position of the sample line to be added (stored within table.lineOffsets if table.lazyChannels is true)
+	public SampleColumnMap lazyColumnMap = null;		// columns of the sample-values of the added samples (if table.lazyChannels is true)
+	public boolean lazyColumnMapChanged = false;		// true: samples with different columns added (lazyColumnMap not valid for all samples; the channels cannot be loaded lazily)
+
+	private boolean[] onGroundValue = new boolean[1];		// (onground-value for sampleFilter)
+
+	/**
+	 * @param initialSampleCapacity Number of samples allocated initially (table grows when required)
+	 */
+	public SampleTableBuilder(int initialSampleCapacity) {
+		this(initialSampleCapacity, false);
+	}
+
+	/**
+	 * @param initialSampleCapacity Number of samples allocated initially (table grows when required)
+	 * @param pipelineChannelsOnly True: only the channels used by TrajectoryVertical and TrajectoryHorizontal are parsed and allocated (see TableStateVectorsData4.pipelineChannelsOnly)
+	 */
+	public SampleTableBuilder(int initialSampleCapacity, boolean pipelineChannelsOnly) {
+		this(initialSampleCapacity, pipelineChannelsOnly, false);
+	}
+
+	/**
+	 * @param initialSampleCapacity Number of samples allocated initially (table grows when required)
+	 * @param pipelineChannelsOnly True: only the channels used by TrajectoryVertical and TrajectoryHorizontal are parsed and allocated (see TableStateVectorsData4.pipelineChannelsOnly)
+	 * @param lazyChannels True: only time is parsed, the source position of each sample line is stored instead of the other channels (see TableStateVectorsData4.lazyChannels); lineStart has to be set for each sample line
+	 */
+	public SampleTableBuilder(int initialSampleCapacity, boolean pipelineChannelsOnly, boolean lazyChannels) {
+		table.pipelineChannelsOnly = pipelineChannelsOnly;
+		table.lazyChannels = lazyChannels;
+		table.allocateArrayMemory(initialSampleCapacity);
+	}
+
+	/**
+	 * Function to test data-string-line if it contains a data-sample
+	 * @param inputData Byte-Array of data-string
+	 * @param lineEnd Line-end information
+	 * @return Result: 0: no data-sample, else: identified format of data-string
+	 */
+	public static int testForSampleLine(byte[] inputData, int lineEnd) {
+		// return value:
+		// 0: not a line containing a data-sample
+		// 1: Impala-Shell / PuTTY format
+		// 2: Trino format
+
+		if(lineEnd < 13)
+			return 0;
+
+		// check for Impala-Shell / PuTTY format syntax ...
+		if(inputData[0] == '|')			// potential line with sample starts with '|'
+			if(inputData[2] != 't')		// header line starts with "time" at char[2] --> skip this line
+				return 1;
+		// ... check for Impala-Shell / PuTTY format syntax
+
+		// check for Trino format syntax ...
+		if(inputData[0] == ' ')			// potential line with sample starts with ' '
+			if((inputData[1] >= '0') && (inputData[1] <= '9'))		// time-value should start at char[1]
+				if(inputData[12] == '|')			// check for value-separator at char[12]
+					return 2;
+		// ... check for Trino format syntax
+
+		return 0;
+	}
+
+	/**
+	 * Returns the column-offset of the sample-values within a sample line
+	 * @param sampleLineFormat Format of the sample line (see testForSampleLine())
+	 * @return Column-offset (column index of time-value)
+	 */
+	public static int getValueIndexOffset(int sampleLineFormat) {
+		if(sampleLineFormat == 1)		// Impala-Shell / PuTTY format
+			return 1;
+		return 0;
+	}
+
+	/**
+	 * Reads in all lines of dataReader and adds the sample lines to the table (columns of the sample-values: see lineClassifier).
+	 * After a fatal error -4 (time vector not consistent) no further samples are added, but the remaining lines are still checked for their length 
+	 * (error -3 (lineBuffer too small) takes precedence over error -4).
+	 * @param dataReader SampleLineReader to read the lines from
+	 * @return Status; true: success; false: a line does not fit into the line buffer (error -3)
+	 * @throws IOException If reading from dataReader fails
+	 */
+	public boolean addSampleLines(SampleLineReader dataReader) throws IOException {
+		byte[] inputData = new byte[INPUT_DATA_SIZE];	// line buffer for to read in lines from the input file
+		SampleLineTokenizer tokenizer = new SampleLineTokenizer();		// splits the lines within the line buffer into columns
+
+		int lineEnd;				// position of the end of the file-line read into the line buffer (inputData)
+		while((lineEnd = dataReader.readLine(inputData)) != SampleLineReader.END_OF_DATA) {
+			if(lineEnd == SampleLineReader.LINE_BUFFER_OVERFLOW)
+				return false;
+			if(errorCode < 0)		// (time vector not consistent: only check the length of the remaining lines)
+				continue;
+			SampleColumnMap columnMap;
+			if((columnMap = lineClassifier.classify(inputData, lineEnd, tokenizer)) != null) {
+				lineStart = dataReader.getLineStart();
+				addSampleLine(inputData, tokenizer, columnMap);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses a sample line (already split into columns by tokenizer) and adds the sample to the table.
+	 * @param line Line buffer containing the sample line
+	 * @param tokenizer Tokenizer holding the columns of the sample line
+	 * @param columnMap Columns of the sample-values (sample-values not contained are set as not available)
+	 * @return Status; true: sample added (or rejected by sampleFilter or dropped as duplicate row); false: fatal error (errorCode -4), no further samples are added
+	 */
+	public boolean addSampleLine(byte[] line, SampleLineTokenizer tokenizer, SampleColumnMap columnMap) {
+		if(errorCode < 0)
+			return false;
+
+		table.ensureArrayCapacity(sampleCount+1);
+
+		if(!parseTimeSample(line, tokenizer.getColumnStart(columnMap.getColumn(0)), tokenizer.getColumnEnd(columnMap.getColumn(0)), table.time, sampleCount)) {
+			errorCode = -4;			// (if a sample is not valid, whole trajectory data will be lost at this point --> fatal error)
+			return false;
+		}
+		if((sampleFilter != null) && !sampleFilter.acceptsTime(table.time[sampleCount])) {
+			rejectedSampleCount++;
+			return true;
+		}
+
+		if(table.lazyChannels) {
+			// (only icao24 and callsign are checked, the other sample-values are parsed from the line at lineStart when required; no errors 10xx)
+			if(lazyColumnMap == null)
+				lazyColumnMap = columnMap;
+			else if((columnMap != lazyColumnMap) && !columnMap.equals(lazyColumnMap))
+				lazyColumnMapChanged = true;
+			if(!checkIcao24(tokenizer, columnMap.getColumn(1)))
+				errorCode = 1;
+			if(!checkCallsign(tokenizer, columnMap.getColumn(7)))
+				errorCode = 2;
+			table.lineOffsets[sampleCount] = lineStart;
+			sampleCount++;
+			return true;
+		}
+
+		// (position is parsed in front of icao24 for sampleFilter; error codes are set in the order of the columns)
+		boolean latParseable = parseDoubleSample(line, tokenizer, columnMap.getColumn(2), table.lat, table.vaLat, sampleCount);
+		boolean lonParseable = parseDoubleSample(line, tokenizer, columnMap.getColumn(3), table.lon, table.vaLon, sampleCount);
+		if(sampleFilter != null) {
+			boolean positionAvailable = ValidityMask.get(table.vaLat, sampleCount) && ValidityMask.get(table.vaLon, sampleCount);
+			if(!sampleFilter.acceptsPosition(positionAvailable, table.lat[sampleCount], table.lon[sampleCount]) || !sampleFilter.acceptsOnGround(isOnGround(line, tokenizer, columnMap.getColumn(8)))) {
+				rejectedSampleCount++;
+				return true;
+			}
+		}
+
+		if(!checkIcao24(tokenizer, columnMap.getColumn(1)))
+			errorCode = 1;
+
+		if(!latParseable)
+			errorCode = 1000+2;
+		if(!lonParseable)
+			errorCode = 1000+3;
+		if(!table.pipelineChannelsOnly) {
+			if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(4), table.velocity, table.vaVelocity, sampleCount))
+				errorCode = 1000+4;
+			if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(5), table.heading, table.vaHeading, sampleCount))
+				errorCode = 1000+5;
+			if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(6), table.vertRate, table.vaVertRate, sampleCount))
+				errorCode = 1000+6;
+		}
+
+		if(!checkCallsign(tokenizer, columnMap.getColumn(7)))
+			errorCode = 2;
+
+		if(!table.pipelineChannelsOnly) {
+			parseBooleanSample(line, tokenizer, columnMap.getColumn(8), table.onGround, table.vaOnGround, sampleCount);
+			parseBooleanSample(line, tokenizer, columnMap.getColumn(9), table.alert, table.vaAlert, sampleCount);
+			parseBooleanSample(line, tokenizer, columnMap.getColumn(10), table.spi, table.vaSpi, sampleCount);
+
+			if(!parseIntSample(line, tokenizer, columnMap.getColumn(11), table.squawk, table.vaSquawk, sampleCount))
+				errorCode = 1000+11;
+		}
+
+		if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(12), table.baroAlt, table.vaBaroAlt, sampleCount))
+			errorCode = 1000+12;
+		if(!table.pipelineChannelsOnly)
+			if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(13), table.geoAltitude, table.vaGeoAltitude, sampleCount))
+				errorCode = 1000+13;
+		if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(14), table.lastPosUpdate, table.vaLastPosUpdate, sampleCount))
+			errorCode = 1000+14;
+		if(!parseDoubleSample(line, tokenizer, columnMap.getColumn(15), table.lastContact, table.vaLastContact, sampleCount))
+			errorCode = 1000+15;
+
+		if((duplicateRowFilter != null) && !duplicateRowFilter.addRow(table, sampleCount)) {
+			droppedDuplicateRowCount++;
+			return true;
+		}
+
+		sampleCount++;
+		return true;
+	}
+
+	/**
+	 * Sets icao24 and callsign the samples are checked against (e.g. of the first sample of a file or of a flight within a log with multiple flights)
+	 * @param icao24 Icao24 of the samples
+	 * @param callsign Callsign of the samples
+	 */
+	public void setFlightIdentity(String icao24, String callsign) {
+		this.icao24 = icao24;
+		this.callsign = callsign;
+		packedIcao24 = FlightIdentity.packIcao24(icao24);
+		callsignKey = FlightIdentity.packCallsign(callsign);
+	}
+
+	/**
+	 * Checks the icao24 of a sample line (the first sample line sets icao24); int compare if icao24 is packable, else String compare
+	 * @return True if icao24 of the sample line equals icao24
+	 */
+	private boolean checkIcao24(SampleLineTokenizer tokenizer, int column) {
+		if(icao24 == null) {
+			icao24 = tokenizer.getColumnString(column);
+			packedIcao24 = FlightIdentity.packIcao24(icao24);
+			return true;
+		}
+		if(packedIcao24 != FlightIdentity.NO_ICAO24)
+			return tokenizer.getColumnIcao24(column) == packedIcao24;
+		return tokenizer.columnEquals(column, icao24);
+	}
+
+	/**
+	 * Checks the callsign of a sample line (the first sample line sets callsign); long compare if callsign is packable, else String compare
+	 * @return True if callsign of the sample line equals callsign
+	 */
+	private boolean checkCallsign(SampleLineTokenizer tokenizer, int column) {
+		if(callsign == null) {
+			callsign = tokenizer.getColumnString(column);
+			callsignKey = FlightIdentity.packCallsign(callsign);
+			return true;
+		}
+		if(callsignKey != FlightIdentity.NO_CALLSIGN_KEY)
+			return tokenizer.getColumnCallsignKey(column) == callsignKey;
+		return tokenizer.columnEquals(column, callsign);
+	}
+
+	/**
+	 * Trims the arrays of the table to the number of added samples
+	 */
+	public void trimTable() {
+		table.trimArrayMemory(sampleCount);
+	}
+
+	/**
+	 * Parses time (integer) from line-element (line[start] to line[end-1]) and saves result within Array (value[valueIndex])
+	 * @param line Line buffer containing the line-element to parse
+	 * @param start Start position of the line-element (inclusive)
+	 * @param end End position of the line-element (exclusive)
+	 * @param value Value-array to store value
+	 * @param valueIndex Index within array value to store result
+	 * @return Status; true: success; false: error (parsing of value not successful, also for "NULL")
+	 */
+	private boolean parseTimeSample(byte[] line, int start, int end, int[] value, int valueIndex) {
+		return SampleValueParser.parseInt(line, start, end, value, valueIndex) == SampleValueParser.STATUS_VALUE;
+	}
+	/**
+	 * Tests if onground of a sample line is true (for sampleFilter; the onground-channel itself is parsed separately)
+	 * @param line Line buffer containing the sample line
+	 * @param tokenizer Tokenizer holding the columns of the line
+	 * @param column Column of onground; SampleColumnMap.NO_COLUMN: not available
+	 * @return True if onground is true; false if onground is false, "NULL", not parseable or not available
+	 */
+	private boolean isOnGround(byte[] line, SampleLineTokenizer tokenizer, int column) {
+		if(!sampleFilter.excludeOnGround || (column == SampleColumnMap.NO_COLUMN))
+			return false;
+		if(SampleValueParser.parseBoolean(line, tokenizer.getColumnStart(column), tokenizer.getColumnEnd(column), onGroundValue, 0) != SampleValueParser.STATUS_VALUE)
+			return false;
+		return onGroundValue[0];
+	}
+	/**
+	 * Parses double from line-element (column of the line) and saves result within Array (value[valueIndex]) and indicates availability of value (va[valueIndex])
+	 * @param line Line buffer containing the line-element to parse
+	 * @param tokenizer Tokenizer holding the columns of the line
+	 * @param column Column of the line-element; SampleColumnMap.NO_COLUMN: value not available
+	 * @param value Value-array to store value
+	 * @param va Validity mask indicating if a value is available within the value-array
+	 * @param valueIndex Index within arrays value and va to store result
+	 * @return Status; true: success; false: error (line-element not "NULL" and parsing of value not successful)
+	 */
+	static boolean parseDoubleSample(byte[] line, SampleLineTokenizer tokenizer, int column, double[] value, long[] va, int valueIndex) {
+		if(column == SampleColumnMap.NO_COLUMN) {
+			ValidityMask.set(va, valueIndex, false);
+			return true;
+		}
+		int status = SampleValueParser.parseDouble(line, tokenizer.getColumnStart(column), tokenizer.getColumnEnd(column), value, valueIndex);
+		ValidityMask.set(va, valueIndex, status == SampleValueParser.STATUS_VALUE);
+		return status != SampleValueParser.STATUS_ERROR;
+	}
+	/**
+	 * Parses integer from line-element (column of the line) and saves result within Array (value[valueIndex]) and indicates availability of value (va[valueIndex])
+	 * @param line Line buffer containing the line-element to parse
+	 * @param tokenizer Tokenizer holding the columns of the line
+	 * @param column Column of the line-element; SampleColumnMap.NO_COLUMN: value not available
+	 * @param value Value-array to store value
+	 * @param va Validity mask indicating if a value is available within the value-array
+	 * @param valueIndex Index within arrays value and va to store result
+	 * @return Status; true: success; false: error (line-element not "NULL" and parsing of value not successful)
+	 */
+	static boolean parseIntSample(byte[] line, SampleLineTokenizer tokenizer, int column, int[] value, long[] va, int valueIndex) {
+		if(column == SampleColumnMap.NO_COLUMN) {
+			ValidityMask.set(va, valueIndex, false);
+			return true;
+		}
+		int status = SampleValueParser.parseInt(line, tokenizer.getColumnStart(column), tokenizer.getColumnEnd(column), value, valueIndex);
+		ValidityMask.set(va, valueIndex, status == SampleValueParser.STATUS_VALUE);
+		return status != SampleValueParser.STATUS_ERROR;
+	}
+	/**
+	 * Parses boolean from line-element (column of the line) and saves result within Array (value[valueIndex]) and indicates availability of value (va[valueIndex])
+	 * @param line Line buffer containing the line-element to parse
+	 * @param tokenizer Tokenizer holding the columns of the line
+	 * @param column Column of the line-element; SampleColumnMap.NO_COLUMN: value not available
+	 * @param value Value-array to store value
+	 * @param va Validity mask indicating if a value is available within the value-array
+	 * @param valueIndex Index within arrays value and va to store result
+	 */
+	static void parseBooleanSample(byte[] line, SampleLineTokenizer tokenizer, int column, boolean[] value, long[] va, int valueIndex) {
+		if(column == SampleColumnMap.NO_COLUMN) {
+			ValidityMask.set(va, valueIndex, false);
+			return;
+		}
+		ValidityMask.set(va, valueIndex, SampleValueParser.parseBoolean(line, tokenizer.getColumnStart(column), tokenizer.getColumnEnd(column), value, valueIndex) == SampleValueParser.STATUS_VALUE);
+	}
+
+}
@@ -0,0 +1,231 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class with functions to parse sample-values (line-elements) directly from a line buffer (byte-range line[start] to line[end-1]).
+ * Success or failure of the parsing is reported with a status (STATUS_VALUE, STATUS_NULL, STATUS_ERROR), no exceptions are used.
+ * Results of parseDouble() are bit-identical to Double.parseDouble(): decimal values with a mantissa up to 2^53 (all values with up to 15 and most values with 16 significant
+ * digits) and a decimal exponent within +-22 are calculated directly (Clinger's fast path: both operands are exactly representable and only
+ * one correctly rounded operation is done), all other syntactically valid values are passed on to Double.parseDouble().
+ */
+public class SampleValueParser {
+	public static final int STATUS_VALUE = 0;		// value parsed and stored
+	public static final int STATUS_NULL = 1;		// line-element is "NULL" (no value stored)
+	public static final int STATUS_ERROR = -1;		// line-element not parseable (no value stored)
+
+	private static final int MAX_FAST_PATH_DIGITS = 16;				// mantissas with more digits are greater than MAX_FAST_PATH_MANTISSA
+	private static final long MAX_FAST_PATH_MANTISSA = 1L << 53;		// greatest mantissa, up to which all integers are exactly representable as double
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};		// powers of ten exactly representable as double
+
+	private SampleValueParser() {
+	}
+
+	/**
+	 * Tests if the line-element is "NULL"
+	 * @param line Line buffer
+	 * @param start Start position of the line-element (inclusive)
+	 * @param end End position of the line-element (exclusive)
+	 * @return True if the line-element is "NULL"
+	 */
+	public static boolean isNull(byte[] line, int start, int end) {
+		return (end-start == 4) && (line[start] == 'N') && (line[start+1] == 'U') && (line[start+2] == 'L') && (line[start+3] == 'L');
+	}
+
+	/**
+	 * Parses a double value (same syntax as Double.parseDouble(), except for surrounding whitespace and hexadecimal values) and stores it in value[valueIndex]
+	 * @param line Line buffer
+	 * @param start Start position of the line-element (inclusive)
+	 * @param end End position of the line-element (exclusive)
+	 * @param value Value-array to store value
+	 * @param valueIndex Index within array value to store result
+	 * @return Status; STATUS_VALUE, STATUS_NULL or STATUS_ERROR
+	 */
+	public static int parseDouble(byte[] line, int start, int end, double[] value, int valueIndex) {
+		if(isNull(line, start, end))
+			return STATUS_NULL;
+
+		int position = start;
+		boolean negative = false;
+		if((position < end) && ((line[position] == '-') || (line[position] == '+'))) {
+			negative = (line[position] == '-');
+			position++;
+		}
+		if(position >= end)
+			return STATUS_ERROR;
+
+		if((line[position] == 'N') || (line[position] == 'I'))
+			return parseNaNInfinity(line, position, end, negative, value, valueIndex);
+
+		// mantissa ...
+		long mantissa = 0;
+		int mantissaDigits = 0;			// significant digits within mantissa (leading zeros not counted)
+		int digitCount = 0;				// all digits (integer and fraction part)
+		int decimalExponent = 0;		// decimal exponent to be applied to mantissa
+		boolean fastPath = true;
+		boolean fractionPart = false;
+		for(; position<end; position++) {
+			byte character = line[position];
+			if((character >= '0') && (character <= '9')) {
+				digitCount++;
+				if(fractionPart)
+					decimalExponent--;
+				if((mantissaDigits == 0) && (character == '0'))
+					continue;
+				if(mantissaDigits < MAX_FAST_PATH_DIGITS) {
+					mantissa = 10*mantissa + (character-'0');
+					mantissaDigits++;
+				} else {
+					fastPath = false;
+					mantissaDigits++;
+				}
+				continue;
+			}
+			if((character == '.') && !fractionPart) {
+				fractionPart = true;
+				continue;
+			}
+			break;
+		}
+		if(digitCount == 0)
+			return STATUS_ERROR;
+		// ... mantissa
+
+		// exponent ...
+		if((position < end) && ((line[position] == 'e') || (line[position] == 'E'))) {
+			position++;
+			boolean negativeExponent = false;
+			if((position < end) && ((line[position] == '-') || (line[position] == '+'))) {
+				negativeExponent = (line[position] == '-');
+				position++;
+			}
+			int exponent = 0;
+			int exponentDigits = 0;
+			for(; (position<end) && (line[position] >= '0') && (line[position] <= '9'); position++) {
+				if(exponent < 100000)
+					exponent = 10*exponent + (line[position]-'0');
+				exponentDigits++;
+			}
+			if(exponentDigits == 0)
+				return STATUS_ERROR;
+			if(negativeExponent)
+				decimalExponent -= exponent;
+			else
+				decimalExponent += exponent;
+		}
+		// ... exponent
+
+		// optional type suffix (accepted by Double.parseDouble()):
+		if((position < end) && ((line[position] == 'd') || (line[position] == 'D') || (line[position] == 'f') || (line[position] == 'F')))
+			position++;
+		if(position != end)
+			return STATUS_ERROR;
+
+		if(fastPath && (mantissa <= MAX_FAST_PATH_MANTISSA) && (decimalExponent >= -22) && (decimalExponent <= 22)) {
+			double result = (double)mantissa;
+			if(decimalExponent < 0)
+				result /= POWERS_OF_TEN[-decimalExponent];
+			else
+				result *= POWERS_OF_TEN[decimalExponent];
+			if(negative)
+				result = -result;
+			value[valueIndex] = result;
+			return STATUS_VALUE;
+		}
+
+		// syntax already checked, Double.parseDouble() will not throw an exception at this point
+		value[valueIndex] = Double.parseDouble(new String(line, start, end-start, StandardCharsets.ISO_8859_1));
+		return STATUS_VALUE;
+	}
+
+	private static int parseNaNInfinity(byte[] line, int position, int end, boolean negative, double[] value, int valueIndex) {
+		if(equalsAscii(line, position, end, "NaN")) {
+			value[valueIndex] = Double.NaN;
+			return STATUS_VALUE;
+		}
+		if(equalsAscii(line, position, end, "Infinity")) {
+			if(negative)
+				value[valueIndex] = Double.NEGATIVE_INFINITY;
+			else
+				value[valueIndex] = Double.POSITIVE_INFINITY;
+			return STATUS_VALUE;
+		}
+		return STATUS_ERROR;
+	}
+
+	/**
+	 * Parses an integer value (same syntax as Integer.parseInt() for decimal ASCII digits) and stores it in value[valueIndex]
+	 * @param line Line buffer
+	 * @param start Start position of the line-element (inclusive)
+	 * @param end End position of the line-element (exclusive)
+	 * @param value Value-array to store value
+	 * @param valueIndex Index within array value to store result
+	 * @return Status; STATUS_VALUE, STATUS_NULL or STATUS_ERROR (also in case of overflow)
+	 */
+	public static int parseInt(byte[] line, int start, int end, int[] value, int valueIndex) {
+		if(isNull(line, start, end))
+			return STATUS_NULL;
+
+		int position = start;
+		boolean negative = false;
+		if((position < end) && ((line[position] == '-') || (line[position] == '+'))) {
+			negative = (line[position] == '-');
+			position++;
+		}
+		if(position >= end)
+			return STATUS_ERROR;
+
+		long result = 0;
+		for(; position<end; position++) {
+			byte character = line[position];
+			if((character < '0') || (character > '9'))
+				return STATUS_ERROR;
+			result = 10*result + (character-'0');
+			if(result > (long)Integer.MAX_VALUE+1)
+				return STATUS_ERROR;
+		}
+		if(negative)
+			result = -result;
+		if(result > Integer.MAX_VALUE)
+			return STATUS_ERROR;
+
+		value[valueIndex] = (int)result;
+		return STATUS_VALUE;
+	}
+
+	/**
+	 * Parses a boolean value ("true" or "false") and stores it in value[valueIndex]
+	 * @param line Line buffer
+	 * @param start Start position of the line-element (inclusive)
+	 * @param end End position of the line-element (exclusive)
+	 * @param value Value-array to store value
+	 * @param valueIndex Index within array value to store result
+	 * @return Status; STATUS_VALUE, STATUS_NULL or STATUS_ERROR
+	 */
+	public static int parseBoolean(byte[] line, int start, int end, boolean[] value, int valueIndex) {
+		if(equalsAscii(line, start, end, "true")) {
+			value[valueIndex] = true;
+			return STATUS_VALUE;
+		}
+		if(equalsAscii(line, start, end, "false")) {
+			value[valueIndex] = false;
+			return STATUS_VALUE;
+		}
+		if(isNull(line, start, end))
+			return STATUS_NULL;
+		return STATUS_ERROR;
+	}
+
+	private static boolean equalsAscii(byte[] line, int start, int end, String text) {
+		if(end-start != text.length())
+			return false;
+		for(int i=0; i<text.length(); i++)
+			if(line[start+i] != text.charAt(i))
+				return false;
+		return true;
+	}
+
+}
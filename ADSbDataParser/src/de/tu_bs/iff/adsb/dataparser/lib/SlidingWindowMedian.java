@@ -0,0 +1,163 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+/**
+ * Class to determine the median of a sliding window of values (e.g. moving median filter, see TrajectoryVertical.filterMovingMedianBaroAlt()).
+ * The values are kept within two heaps (max-heap of the lower half, min-heap of the upper half); insert and evict cost O(log w), the median O(1).
+ * Values are identified by an id (e.g. the sample index) for eviction; the position of each id within the heaps is tracked, so no lazy deletion is required.
+ */
+public class SlidingWindowMedian {
+	private double[] values;		// value of each id
+	private int[] heapPositions;	// position of each id within lowHeap (>= 0) or highHeap (-1-position)
+	private int[] lowHeap;			// ids of the lower half of the values (max-heap; contains the median for an odd number of values)
+	private int lowSize = 0;
+	private int[] highHeap;			// ids of the upper half of the values (min-heap)
+	private int highSize = 0;
+
+	/**
+	 * @param idCount Number of ids (ids: 0 ... idCount-1)
+	 * @param windowCapacity Maximum number of values within the window at a time
+	 */
+	public SlidingWindowMedian(int idCount, int windowCapacity) {
+		values = new double[idCount];
+		heapPositions = new int[idCount];
+		lowHeap = new int[windowCapacity/2+1];
+		highHeap = new int[windowCapacity/2+1];
+	}
+
+	/**
+	 * Returns the number of values within the window
+	 * @return Number of values
+	 */
+	public int size() {
+		return lowSize + highSize;
+	}
+
+	/**
+	 * Inserts a value into the window
+	 * @param id Id of the value (must not be within the window)
+	 * @param value Value
+	 */
+	public void add(int id, double value) {
+		values[id] = value;
+		if((lowSize == 0) || (value <= values[lowHeap[0]])) {
+			lowHeap[lowSize] = id;
+			heapPositions[id] = lowSize;
+			lowSize++;
+			siftUp(lowHeap, lowSize-1, true);
+		} else {
+			highHeap[highSize] = id;
+			heapPositions[id] = -1-highSize;
+			highSize++;
+			siftUp(highHeap, highSize-1, false);
+		}
+		rebalance();
+	}
+
+	/**
+	 * Evicts a value from the window
+	 * @param id Id of the value (must be within the window)
+	 */
+	public void remove(int id) {
+		int position = heapPositions[id];
+		if(position >= 0) {
+			lowSize--;
+			removeAt(lowHeap, lowSize, position, true);
+		} else {
+			highSize--;
+			removeAt(highHeap, highSize, -1-position, false);
+		}
+		rebalance();
+	}
+
+	/**
+	 * Returns the median of the values within the window
+	 * @return Median (mean of the two middle values for an even number of values); NaN if the window is empty
+	 */
+	public double median() {
+		if(lowSize == 0)
+			return Double.NaN;
+		if(lowSize > highSize)
+			return values[lowHeap[0]];
+		return (values[highHeap[0]]+values[lowHeap[0]])/2;
+	}
+
+	private void rebalance() {
+		// lowSize is highSize or highSize+1
+		if(lowSize > highSize+1) {
+			int id = lowHeap[0];
+			lowSize--;
+			removeAt(lowHeap, lowSize, 0, true);
+			highHeap[highSize] = id;
+			heapPositions[id] = -1-highSize;
+			highSize++;
+			siftUp(highHeap, highSize-1, false);
+		} else if(highSize > lowSize) {
+			int id = highHeap[0];
+			highSize--;
+			removeAt(highHeap, highSize, 0, false);
+			lowHeap[lowSize] = id;
+			heapPositions[id] = lowSize;
+			lowSize++;
+			siftUp(lowHeap, lowSize-1, true);
+		}
+	}
+
+	/**
+	 * Removes the id at position of a heap (the size of the heap is already decreased to lastPosition)
+	 */
+	private void removeAt(int[] heap, int lastPosition, int position, boolean maxHeap) {
+		if(position == lastPosition)
+			return;
+		heap[position] = heap[lastPosition];
+		setPosition(heap[position], position, maxHeap);
+		position = siftUp(heap, position, maxHeap);
+		siftDown(heap, lastPosition, position, maxHeap);
+	}
+
+	/**
+	 * @return Position of the id after sifting
+	 */
+	private int siftUp(int[] heap, int position, boolean maxHeap) {
+		int id = heap[position];
+		while(position > 0) {
+			int parent = (position-1)/2;
+			if(!before(id, heap[parent], maxHeap))
+				break;
+			heap[position] = heap[parent];
+			setPosition(heap[position], position, maxHeap);
+			position = parent;
+		}
+		heap[position] = id;
+		setPosition(id, position, maxHeap);
+		return position;
+	}
+
+	private void siftDown(int[] heap, int size, int position, boolean maxHeap) {
+		int id = heap[position];
+		while(true) {
+			int child = 2*position+1;
+			if(child >= size)
+				break;
+			if((child+1 < size) && before(heap[child+1], heap[child], maxHeap))
+				child++;
+			if(!before(heap[child], id, maxHeap))
+				break;
+			heap[position] = heap[child];
+			setPosition(heap[position], position, maxHeap);
+			position = child;
+		}
+		heap[position] = id;
+		setPosition(id, position, maxHeap);
+	}
+
+	private boolean before(int id, int otherId, boolean maxHeap) {
+		if(maxHeap)
+			return values[id] > values[otherId];
+		return values[id] < values[otherId];
+	}
+
+	private void setPosition(int id, int position, boolean maxHeap) {
+		heapPositions[id] = maxHeap ? position : -1-position;
+	}
+
+}
@@ -11,12 +11,28 @@ public class TableHorizontal {
 	public double lastPosUpdate[];
 	public boolean vaSample[];		// indicates whether the sample is valid (used for filtration of samples)
 	public boolean vrSample[];		// value redundant (used for redundancy filtration)
+	public CompactTimeColumn compactTime = null;		// time channel in compact form which time was decoded from (see allocateArrayMemory(int numberOfSamples, CompactTimeColumn compactTime, long[] compactTimeSelection)); column may be shared with other tables
+	public long[] compactTimeSelection = null;		// samples of compactTime belonging to this table (validity mask, see class ValidityMask); null: all samples
 	
 	public TableHorizontal() {
 	}
 
 	public void allocateArrayMemory(int numberOfSamples) {
+		allocateArrayMemory(numberOfSamples, null, null);
+	}
+
+	/**
+	 * Allocates the channels
+	 * @param numberOfSamples Number of samples
+	 * @param compactTime Time channel in compact form, decoded into time (the column is kept with the table); null: time is only allocated
+	 * @param compactTimeSelection Samples of compactTime belonging to the table (numberOfSamples samples); null: all samples
+	 */
+	public void allocateArrayMemory(int numberOfSamples, CompactTimeColumn compactTime, long[] compactTimeSelection) {
 		time = new double[numberOfSamples];
+		if(compactTime != null)
+			compactTime.decode(compactTimeSelection, time);
+		this.compactTime = compactTime;
+		this.compactTimeSelection = compactTimeSelection;
 		lat = new double[numberOfSamples];
 		lon = new double[numberOfSamples];
 		lastPosUpdate = new double[numberOfSamples];
@@ -26,6 +42,8 @@ public class TableHorizontal {
 
 	public void freeArrayMemory() {
 		time = null;
+		compactTime = null;
+		compactTimeSelection = null;
 		lat = null;
 		lon = null;
 		lastPosUpdate = null;
@@ -1,5 +1,7 @@
 package de.tu_bs.iff.adsb.dataparser.lib;
 
+import java.util.Arrays;
+
 /**
  * Class containing one trajectory-table for StateVectorsData4-trajectory (class: TrajectoryStateVectorsData4) to store trajectory data channels
  */
@@ -20,57 +22,150 @@ public class TableStateVectorsData4 {
 	public double[] lastPosUpdate = null;
 	public double[] lastContact = null;
 	
-	// va[Value] indicates, if at the specific sample (Array) a value is available/valid: 
-	public boolean[] vaLat = null;
-	public boolean[] vaLon = null;
-	public boolean[] vaVelocity = null;
-	public boolean[] vaHeading = null;
-	public boolean[] vaVertRate = null;
-	public boolean[] vaOnGround = null;
-	public boolean[] vaAlert = null;
-	public boolean[] vaSpi = null;
-	public boolean[] vaSquawk = null;
-	public boolean[] vaBaroAlt = null;
-	public boolean[] vaGeoAltitude = null;
-	public boolean[] vaLastPosUpdate = null;
-	public boolean[] vaLastContact = null;
+	// va[Value] indicates, if at the specific sample (Array) a value is available/valid (validity masks: packed bitsets, see class ValidityMask): 
+	public long[] vaLat = null;
+	public long[] vaLon = null;
+	public long[] vaVelocity = null;
+	public long[] vaHeading = null;
+	public long[] vaVertRate = null;
+	public long[] vaOnGround = null;
+	public long[] vaAlert = null;
+	public long[] vaSpi = null;
+	public long[] vaSquawk = null;
+	public long[] vaBaroAlt = null;
+	public long[] vaGeoAltitude = null;
+	public long[] vaLastPosUpdate = null;
+	public long[] vaLastContact = null;
+	
+	// column projection: if true, only the channels used by TrajectoryVertical and TrajectoryHorizontal (time, lat, lon, baroAlt, lastPosUpdate, lastContact) are allocated, 
+	// the other channels (velocity, heading, vertRate, onGround, alert, spi, squawk, geoAltitude) remain null: 
+	public boolean pipelineChannelsOnly = false;
+	
+	// lazy channels: if true, only time and lineOffsets are allocated (and handled by the functions of this class), 
+	// the other channels remain null until they are parsed from the lines of the source (see class LazyChannelLoader): 
+	public boolean lazyChannels = false;
+	public long[] lineOffsets = null;		// source position of the line of each sample (only if lazyChannels is true)
+	
+	// time channel in compact form, built from time when it is required for the first time and shared by TrajectoryVertical and TrajectoryHorizontal (see TrajectoryStateVectorsData4.getCompactTime()): 
+	public CompactTimeColumn compactTime = null;
 	
 	public TableStateVectorsData4() {
 	}
 	
 	public void allocateArrayMemory(int numberOfSamples) {
 		time = new int[numberOfSamples];
+		compactTime = null;
+		if(lazyChannels) {
+			lineOffsets = new long[numberOfSamples];
+			return;
+		}
 		lat = new double[numberOfSamples];
 		lon = new double[numberOfSamples];
-		velocity = new double[numberOfSamples];
-		heading = new double[numberOfSamples];
-		vertRate = new double[numberOfSamples];
-		onGround = new boolean[numberOfSamples];
-		alert = new boolean[numberOfSamples];
-		spi = new boolean[numberOfSamples];
-		squawk = new int[numberOfSamples];
 		baroAlt = new double[numberOfSamples];
-		geoAltitude = new double[numberOfSamples];
 		lastPosUpdate = new double[numberOfSamples];
 		lastContact = new double[numberOfSamples];
 		
-		vaLat = new boolean[numberOfSamples];
-		vaLon = new boolean[numberOfSamples];
-		vaVelocity = new boolean[numberOfSamples];
-		vaHeading = new boolean[numberOfSamples];
-		vaVertRate = new boolean[numberOfSamples];
-		vaOnGround = new boolean[numberOfSamples];
-		vaAlert = new boolean[numberOfSamples];
-		vaSpi = new boolean[numberOfSamples];
-		vaSquawk = new boolean[numberOfSamples];
-		vaBaroAlt = new boolean[numberOfSamples];
-		vaGeoAltitude = new boolean[numberOfSamples];
-		vaLastPosUpdate = new boolean[numberOfSamples];
-		vaLastContact = new boolean[numberOfSamples];
+		vaLat = ValidityMask.allocate(numberOfSamples);
+		vaLon = ValidityMask.allocate(numberOfSamples);
+		vaBaroAlt = ValidityMask.allocate(numberOfSamples);
+		vaLastPosUpdate = ValidityMask.allocate(numberOfSamples);
+		vaLastContact = ValidityMask.allocate(numberOfSamples);
+
+		if(!pipelineChannelsOnly) {
+			velocity = new double[numberOfSamples];
+			heading = new double[numberOfSamples];
+			vertRate = new double[numberOfSamples];
+			onGround = new boolean[numberOfSamples];
+			alert = new boolean[numberOfSamples];
+			spi = new boolean[numberOfSamples];
+			squawk = new int[numberOfSamples];
+			geoAltitude = new double[numberOfSamples];
+
+			vaVelocity = ValidityMask.allocate(numberOfSamples);
+			vaHeading = ValidityMask.allocate(numberOfSamples);
+			vaVertRate = ValidityMask.allocate(numberOfSamples);
+			vaOnGround = ValidityMask.allocate(numberOfSamples);
+			vaAlert = ValidityMask.allocate(numberOfSamples);
+			vaSpi = ValidityMask.allocate(numberOfSamples);
+			vaSquawk = ValidityMask.allocate(numberOfSamples);
+			vaGeoAltitude = ValidityMask.allocate(numberOfSamples);
+		}
+	}
+
+	/**
+	 * Ensures that the table can hold at least minNumberOfSamples samples.
+	 * If the arrays are too small, they are grown (at least doubled) and already contained samples are kept.
+	 * @param minNumberOfSamples Minimum number of samples the table needs to be able to hold
+	 */
+	public void ensureArrayCapacity(int minNumberOfSamples) {
+		if(time == null) {
+			allocateArrayMemory(minNumberOfSamples);
+			return;
+		}
+		if(time.length >= minNumberOfSamples)
+			return;
+
+		int numberOfSamples = 2*time.length;
+		if(numberOfSamples < minNumberOfSamples)
+			numberOfSamples = minNumberOfSamples;
+		resizeArrayMemory(numberOfSamples);
+	}
+
+	/**
+	 * Trims the arrays of the table to numberOfSamples samples (e.g. after the table was filled with ensureArrayCapacity()).
+	 * @param numberOfSamples Number of samples (beginning with index 0) to keep
+	 */
+	public void trimArrayMemory(int numberOfSamples) {
+		if(time == null)
+			return;
+		if(time.length == numberOfSamples)
+			return;
+
+		resizeArrayMemory(numberOfSamples);
+	}
+
+	private void resizeArrayMemory(int numberOfSamples) {
+		time = Arrays.copyOf(time, numberOfSamples);
+		if(lazyChannels) {
+			lineOffsets = Arrays.copyOf(lineOffsets, numberOfSamples);
+			return;
+		}
+		lat = Arrays.copyOf(lat, numberOfSamples);
+		lon = Arrays.copyOf(lon, numberOfSamples);
+		baroAlt = Arrays.copyOf(baroAlt, numberOfSamples);
+		lastPosUpdate = Arrays.copyOf(lastPosUpdate, numberOfSamples);
+		lastContact = Arrays.copyOf(lastContact, numberOfSamples);
+
+		vaLat = ValidityMask.copyOf(vaLat, numberOfSamples);
+		vaLon = ValidityMask.copyOf(vaLon, numberOfSamples);
+		vaBaroAlt = ValidityMask.copyOf(vaBaroAlt, numberOfSamples);
+		vaLastPosUpdate = ValidityMask.copyOf(vaLastPosUpdate, numberOfSamples);
+		vaLastContact = ValidityMask.copyOf(vaLastContact, numberOfSamples);
+
+		if(!pipelineChannelsOnly) {
+			velocity = Arrays.copyOf(velocity, numberOfSamples);
+			heading = Arrays.copyOf(heading, numberOfSamples);
+			vertRate = Arrays.copyOf(vertRate, numberOfSamples);
+			onGround = Arrays.copyOf(onGround, numberOfSamples);
+			alert = Arrays.copyOf(alert, numberOfSamples);
+			spi = Arrays.copyOf(spi, numberOfSamples);
+			squawk = Arrays.copyOf(squawk, numberOfSamples);
+			geoAltitude = Arrays.copyOf(geoAltitude, numberOfSamples);
+
+			vaVelocity = ValidityMask.copyOf(vaVelocity, numberOfSamples);
+			vaHeading = ValidityMask.copyOf(vaHeading, numberOfSamples);
+			vaVertRate = ValidityMask.copyOf(vaVertRate, numberOfSamples);
+			vaOnGround = ValidityMask.copyOf(vaOnGround, numberOfSamples);
+			vaAlert = ValidityMask.copyOf(vaAlert, numberOfSamples);
+			vaSpi = ValidityMask.copyOf(vaSpi, numberOfSamples);
+			vaSquawk = ValidityMask.copyOf(vaSquawk, numberOfSamples);
+			vaGeoAltitude = ValidityMask.copyOf(vaGeoAltitude, numberOfSamples);
+		}
 	}
 
 	public void freeArrayMemory() {
 		time = null;
+		compactTime = null;
 		lat = null;
 		lon = null;
 		velocity = null;
@@ -99,6 +194,8 @@ public class TableStateVectorsData4 {
 		vaLastPosUpdate = null;
 		vaLastContact = null;
 		
+		lineOffsets = null;
+		
 		System.gc();
 	}
 	
@@ -110,33 +207,242 @@ public class TableStateVectorsData4 {
 	 */
 	public void copyTableLine(TableStateVectorsData4 source, int sourceIndex, int index) {
 		this.time[index] = source.time[sourceIndex];
+		if(lazyChannels) {
+			this.lineOffsets[index] = source.lineOffsets[sourceIndex];
+			return;
+		}
 		this.lat[index] = source.lat[sourceIndex];
 		this.lon[index] = source.lon[sourceIndex];
-		this.velocity[index] = source.velocity[sourceIndex];
-		this.heading[index] = source.heading[sourceIndex];
-		this.vertRate[index] = source.vertRate[sourceIndex];
-		this.onGround[index] = source.onGround[sourceIndex];
-		this.alert[index] = source.alert[sourceIndex];
-		this.spi[index] = source.spi[sourceIndex];
-		this.squawk[index] = source.squawk[sourceIndex];
 		this.baroAlt[index] = source.baroAlt[sourceIndex];
-		this.geoAltitude[index] = source.geoAltitude[sourceIndex];
 		this.lastPosUpdate[index] = source.lastPosUpdate[sourceIndex];
 		this.lastContact[index] = source.lastContact[sourceIndex];
 
-		this.vaLat[index] = source.vaLat[sourceIndex];
-		this.vaLon[index] = source.vaLon[sourceIndex];
-		this.vaVelocity[index] = source.vaVelocity[sourceIndex];
-		this.vaHeading[index] = source.vaHeading[sourceIndex];
-		this.vaVertRate[index] = source.vaVertRate[sourceIndex];
-		this.vaOnGround[index] = source.vaOnGround[sourceIndex];
-		this.vaAlert[index] = source.vaAlert[sourceIndex];
-		this.vaSpi[index] = source.vaSpi[sourceIndex];
-		this.vaSquawk[index] = source.vaSquawk[sourceIndex];
-		this.vaBaroAlt[index] = source.vaBaroAlt[sourceIndex];
-		this.vaGeoAltitude[index] = source.vaGeoAltitude[sourceIndex];
-		this.vaLastPosUpdate[index] = source.vaLastPosUpdate[sourceIndex];
-		this.vaLastContact[index] = source.vaLastContact[sourceIndex];
+		ValidityMask.set(this.vaLat, index, ValidityMask.get(source.vaLat, sourceIndex));
+		ValidityMask.set(this.vaLon, index, ValidityMask.get(source.vaLon, sourceIndex));
+		ValidityMask.set(this.vaBaroAlt, index, ValidityMask.get(source.vaBaroAlt, sourceIndex));
+		ValidityMask.set(this.vaLastPosUpdate, index, ValidityMask.get(source.vaLastPosUpdate, sourceIndex));
+		ValidityMask.set(this.vaLastContact, index, ValidityMask.get(source.vaLastContact, sourceIndex));
+
+		if(!pipelineChannelsOnly) {
+			this.velocity[index] = source.velocity[sourceIndex];
+			this.heading[index] = source.heading[sourceIndex];
+			this.vertRate[index] = source.vertRate[sourceIndex];
+			this.onGround[index] = source.onGround[sourceIndex];
+			this.alert[index] = source.alert[sourceIndex];
+			this.spi[index] = source.spi[sourceIndex];
+			this.squawk[index] = source.squawk[sourceIndex];
+			this.geoAltitude[index] = source.geoAltitude[sourceIndex];
+
+			ValidityMask.set(this.vaVelocity, index, ValidityMask.get(source.vaVelocity, sourceIndex));
+			ValidityMask.set(this.vaHeading, index, ValidityMask.get(source.vaHeading, sourceIndex));
+			ValidityMask.set(this.vaVertRate, index, ValidityMask.get(source.vaVertRate, sourceIndex));
+			ValidityMask.set(this.vaOnGround, index, ValidityMask.get(source.vaOnGround, sourceIndex));
+			ValidityMask.set(this.vaAlert, index, ValidityMask.get(source.vaAlert, sourceIndex));
+			ValidityMask.set(this.vaSpi, index, ValidityMask.get(source.vaSpi, sourceIndex));
+			ValidityMask.set(this.vaSquawk, index, ValidityMask.get(source.vaSquawk, sourceIndex));
+			ValidityMask.set(this.vaGeoAltitude, index, ValidityMask.get(source.vaGeoAltitude, sourceIndex));
+		}
+	}
+	
+	/**
+	 * Copies numberOfLines lines from source (beginning with sourceIndex) to this (beginning with index). 
+	 * @param source Source table
+	 * @param sourceIndex Line index of the first line to copy from source
+	 * @param index Line index of this object to copy the first line from source-table to
+	 * @param numberOfLines Number of lines to copy
+	 */
+	public void copyTableLines(TableStateVectorsData4 source, int sourceIndex, int index, int numberOfLines) {
+		System.arraycopy(source.time, sourceIndex, this.time, index, numberOfLines);
+		if(lazyChannels) {
+			System.arraycopy(source.lineOffsets, sourceIndex, this.lineOffsets, index, numberOfLines);
+			return;
+		}
+		System.arraycopy(source.lat, sourceIndex, this.lat, index, numberOfLines);
+		System.arraycopy(source.lon, sourceIndex, this.lon, index, numberOfLines);
+		System.arraycopy(source.baroAlt, sourceIndex, this.baroAlt, index, numberOfLines);
+		System.arraycopy(source.lastPosUpdate, sourceIndex, this.lastPosUpdate, index, numberOfLines);
+		System.arraycopy(source.lastContact, sourceIndex, this.lastContact, index, numberOfLines);
+
+		ValidityMask.copy(source.vaLat, sourceIndex, this.vaLat, index, numberOfLines);
+		ValidityMask.copy(source.vaLon, sourceIndex, this.vaLon, index, numberOfLines);
+		ValidityMask.copy(source.vaBaroAlt, sourceIndex, this.vaBaroAlt, index, numberOfLines);
+		ValidityMask.copy(source.vaLastPosUpdate, sourceIndex, this.vaLastPosUpdate, index, numberOfLines);
+		ValidityMask.copy(source.vaLastContact, sourceIndex, this.vaLastContact, index, numberOfLines);
+
+		if(!pipelineChannelsOnly) {
+			System.arraycopy(source.velocity, sourceIndex, this.velocity, index, numberOfLines);
+			System.arraycopy(source.heading, sourceIndex, this.heading, index, numberOfLines);
+			System.arraycopy(source.vertRate, sourceIndex, this.vertRate, index, numberOfLines);
+			System.arraycopy(source.onGround, sourceIndex, this.onGround, index, numberOfLines);
+			System.arraycopy(source.alert, sourceIndex, this.alert, index, numberOfLines);
+			System.arraycopy(source.spi, sourceIndex, this.spi, index, numberOfLines);
+			System.arraycopy(source.squawk, sourceIndex, this.squawk, index, numberOfLines);
+			System.arraycopy(source.geoAltitude, sourceIndex, this.geoAltitude, index, numberOfLines);
+
+			ValidityMask.copy(source.vaVelocity, sourceIndex, this.vaVelocity, index, numberOfLines);
+			ValidityMask.copy(source.vaHeading, sourceIndex, this.vaHeading, index, numberOfLines);
+			ValidityMask.copy(source.vaVertRate, sourceIndex, this.vaVertRate, index, numberOfLines);
+			ValidityMask.copy(source.vaOnGround, sourceIndex, this.vaOnGround, index, numberOfLines);
+			ValidityMask.copy(source.vaAlert, sourceIndex, this.vaAlert, index, numberOfLines);
+			ValidityMask.copy(source.vaSpi, sourceIndex, this.vaSpi, index, numberOfLines);
+			ValidityMask.copy(source.vaSquawk, sourceIndex, this.vaSquawk, index, numberOfLines);
+			ValidityMask.copy(source.vaGeoAltitude, sourceIndex, this.vaGeoAltitude, index, numberOfLines);
+		}
+	}
+	
+	/**
+	 * Copies numberOfLines lines from source (with line indexes sourceIndexes[0] to sourceIndexes[numberOfLines-1]) to this (beginning with index 0), e.g. to apply a permutation. 
+	 * The lines are copied column by column. 
+	 * @param source Source table
+	 * @param sourceIndexes Line indexes of the lines to copy from source
+	 * @param numberOfLines Number of lines to copy
+	 */
+	public void copyTableLines(TableStateVectorsData4 source, int[] sourceIndexes, int numberOfLines) {
+		for(int i=0; i<numberOfLines; i++)
+			this.time[i] = source.time[sourceIndexes[i]];
+		if(lazyChannels) {
+			for(int i=0; i<numberOfLines; i++)
+				this.lineOffsets[i] = source.lineOffsets[sourceIndexes[i]];
+			return;
+		}
+		for(int i=0; i<numberOfLines; i++)
+			this.lat[i] = source.lat[sourceIndexes[i]];
+		for(int i=0; i<numberOfLines; i++)
+			this.lon[i] = source.lon[sourceIndexes[i]];
+		for(int i=0; i<numberOfLines; i++)
+			this.baroAlt[i] = source.baroAlt[sourceIndexes[i]];
+		for(int i=0; i<numberOfLines; i++)
+			this.lastPosUpdate[i] = source.lastPosUpdate[sourceIndexes[i]];
+		for(int i=0; i<numberOfLines; i++)
+			this.lastContact[i] = source.lastContact[sourceIndexes[i]];
+
+		for(int i=0; i<numberOfLines; i++)
+			ValidityMask.set(this.vaLat, i, ValidityMask.get(source.vaLat, sourceIndexes[i]));
+		for(int i=0; i<numberOfLines; i++)
+			ValidityMask.set(this.vaLon, i, ValidityMask.get(source.vaLon, sourceIndexes[i]));
+		for(int i=0; i<numberOfLines; i++)
+			ValidityMask.set(this.vaBaroAlt, i, ValidityMask.get(source.vaBaroAlt, sourceIndexes[i]));
+		for(int i=0; i<numberOfLines; i++)
+			ValidityMask.set(this.vaLastPosUpdate, i, ValidityMask.get(source.vaLastPosUpdate, sourceIndexes[i]));
+		for(int i=0; i<numberOfLines; i++)
+			ValidityMask.set(this.vaLastContact, i, ValidityMask.get(source.vaLastContact, sourceIndexes[i]));
+
+		if(!pipelineChannelsOnly) {
+			for(int i=0; i<numberOfLines; i++)
+				this.velocity[i] = source.velocity[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.heading[i] = source.heading[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.vertRate[i] = source.vertRate[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.onGround[i] = source.onGround[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.alert[i] = source.alert[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.spi[i] = source.spi[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.squawk[i] = source.squawk[sourceIndexes[i]];
+			for(int i=0; i<numberOfLines; i++)
+				this.geoAltitude[i] = source.geoAltitude[sourceIndexes[i]];
+
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaVelocity, i, ValidityMask.get(source.vaVelocity, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaHeading, i, ValidityMask.get(source.vaHeading, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaVertRate, i, ValidityMask.get(source.vaVertRate, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaOnGround, i, ValidityMask.get(source.vaOnGround, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaAlert, i, ValidityMask.get(source.vaAlert, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaSpi, i, ValidityMask.get(source.vaSpi, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaSquawk, i, ValidityMask.get(source.vaSquawk, sourceIndexes[i]));
+			for(int i=0; i<numberOfLines; i++)
+				ValidityMask.set(this.vaGeoAltitude, i, ValidityMask.get(source.vaGeoAltitude, sourceIndexes[i]));
+		}
+	}
+	
+	/**
+	 * Returns a hash code of a line (time and all available values; values not available are not included). 
+	 * Equal lines (see tableLineEquals()) have equal hash codes. 
+	 * @param index Line index
+	 * @return Hash code of the line
+	 */
+	public long tableLineHashCode(int index) {
+		long hashCode = time[index];
+		hashCode = hashValue(hashCode, lat, vaLat, index);
+		hashCode = hashValue(hashCode, lon, vaLon, index);
+		hashCode = hashValue(hashCode, baroAlt, vaBaroAlt, index);
+		hashCode = hashValue(hashCode, lastPosUpdate, vaLastPosUpdate, index);
+		hashCode = hashValue(hashCode, lastContact, vaLastContact, index);
+
+		if(!pipelineChannelsOnly) {
+			hashCode = hashValue(hashCode, velocity, vaVelocity, index);
+			hashCode = hashValue(hashCode, heading, vaHeading, index);
+			hashCode = hashValue(hashCode, vertRate, vaVertRate, index);
+			hashCode = hashValue(hashCode, geoAltitude, vaGeoAltitude, index);
+			long flags = 0;		// (boolean values and availability of squawk)
+			if(ValidityMask.get(vaOnGround, index))
+				flags |= onGround[index] ? 3 : 1;
+			if(ValidityMask.get(vaAlert, index))
+				flags |= alert[index] ? 12 : 4;
+			if(ValidityMask.get(vaSpi, index))
+				flags |= spi[index] ? 48 : 16;
+			if(ValidityMask.get(vaSquawk, index))
+				flags |= 64 | ((long)squawk[index] << 7);
+			hashCode = 31*hashCode + flags;
+		}
+		return hashCode;
+	}
+	
+	private static long hashValue(long hashCode, double[] value, long[] va, int index) {
+		if(!ValidityMask.get(va, index))
+			return 31*hashCode + 1;
+		return 31*hashCode + Double.doubleToLongBits(value[index]);
+	}
+	
+	/**
+	 * Compares two lines of this table: lines are equal if time and the availability of all values are equal and all available values are equal (values not available are not compared)
+	 * @param index1 Line index of the first line
+	 * @param index2 Line index of the second line
+	 * @return True if the lines are equal
+	 */
+	public boolean tableLineEquals(int index1, int index2) {
+		if(time[index1] != time[index2])
+			return false;
+		if(!valueEquals(lat, vaLat, index1, index2) || !valueEquals(lon, vaLon, index1, index2) || !valueEquals(baroAlt, vaBaroAlt, index1, index2)
+				|| !valueEquals(lastPosUpdate, vaLastPosUpdate, index1, index2) || !valueEquals(lastContact, vaLastContact, index1, index2))
+			return false;
+
+		if(!pipelineChannelsOnly) {
+			if(!valueEquals(velocity, vaVelocity, index1, index2) || !valueEquals(heading, vaHeading, index1, index2)
+					|| !valueEquals(vertRate, vaVertRate, index1, index2) || !valueEquals(geoAltitude, vaGeoAltitude, index1, index2))
+				return false;
+			if(!valueEquals(onGround, vaOnGround, index1, index2) || !valueEquals(alert, vaAlert, index1, index2) || !valueEquals(spi, vaSpi, index1, index2))
+				return false;
+			boolean squawkAvailable = ValidityMask.get(vaSquawk, index1);
+			if(squawkAvailable != ValidityMask.get(vaSquawk, index2))
+				return false;
+			if(squawkAvailable && (squawk[index1] != squawk[index2]))
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean valueEquals(double[] value, long[] va, int index1, int index2) {
+		boolean available = ValidityMask.get(va, index1);
+		if(available != ValidityMask.get(va, index2))
+			return false;
+		return !available || (Double.doubleToLongBits(value[index1]) == Double.doubleToLongBits(value[index2]));
+	}
+	
+	private static boolean valueEquals(boolean[] value, long[] va, int index1, int index2) {
+		boolean available = ValidityMask.get(va, index1);
+		if(available != ValidityMask.get(va, index2))
+			return false;
+		return !available || (value[index1] == value[index2]);
 	}
 	
 }
@@ -10,12 +10,28 @@ public class TableVertical {
 	public double lastContact[];
 	public boolean vaSample[];		// indicates whether the sample is valid (used for filtration of samples)
 	public boolean vrSample[];		// value redundant (used for redundancy filtration)
+	public CompactTimeColumn compactTime = null;		// time channel in compact form which time was decoded from (see allocateArrayMemory(int numberOfSamples, CompactTimeColumn compactTime, long[] compactTimeSelection)); column may be shared with other tables
+	public long[] compactTimeSelection = null;		// samples of compactTime belonging to this table (validity mask, see class ValidityMask); null: all samples
 	
 	public TableVertical() {
 	}
 
 	public void allocateArrayMemory(int numberOfSamples) {
+		allocateArrayMemory(numberOfSamples, null, null);
+	}
+
+	/**
+	 * Allocates the channels
+	 * @param numberOfSamples Number of samples
+	 * @param compactTime Time channel in compact form, decoded into time (the column is kept with the table); null: time is only allocated
+	 * @param compactTimeSelection Samples of compactTime belonging to the table (numberOfSamples samples); null: all samples
+	 */
+	public void allocateArrayMemory(int numberOfSamples, CompactTimeColumn compactTime, long[] compactTimeSelection) {
 		time = new double[numberOfSamples];
+		if(compactTime != null)
+			compactTime.decode(compactTimeSelection, time);
+		this.compactTime = compactTime;
+		this.compactTimeSelection = compactTimeSelection;
 		baroAlt = new double[numberOfSamples];
 		lastContact = new double[numberOfSamples];
 		vaSample = new boolean[numberOfSamples];
@@ -24,6 +40,8 @@ public class TableVertical {
 
 	public void freeArrayMemory() {
 		time = null;
+		compactTime = null;
+		compactTimeSelection = null;
 		baroAlt = null;
 		lastContact = null;
 		vaSample = null;
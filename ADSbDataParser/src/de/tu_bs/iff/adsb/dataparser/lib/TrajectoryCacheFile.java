@@ -0,0 +1,376 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Class with functions to write and read binary cache files of read in StateVectorsData4-trajectories (class: TrajectoryStateVectorsData4).
+ * Cache files are column-major (little endian), so the channels can be loaded with bulk copies from a memory-mapped file instead of parsing the text log again:
+ * header (magic, version, number of samples, flags, duplicate timestamp policy, read-in error code, number of dropped duplicate rows, icao24, callsign),
+ * time (first timestamp and deltas with 1, 2 or 4 bytes per sample), double/int channels (raw), boolean channels and va-channels (packed bitsets, see class ValidityMask).
+ * Channels not read in due to pipelineChannelsOnly are not contained.
+ */
+public class TrajectoryCacheFile {
+	public static final String FILE_EXTENSION = ".svd4cache";		// extension appended to the log file directory for the cache file directory
+
+	private static final int MAGIC = 0x34445653;		// "SVD4"
+	private static final int VERSION = 2;
+	private static final int FLAG_PIPELINE_CHANNELS_ONLY = 1;
+	private static final int FLAG_DUPLICATE_ROWS_DROPPED = 2;
+
+	private TrajectoryCacheFile() {
+	}
+
+	/**
+	 * Returns the directory of the cache file of a log file
+	 * @param fileDir Directory to the log file
+	 * @return Directory to the cache file
+	 */
+	public static String getCacheFileDir(String fileDir) {
+		return fileDir + FILE_EXTENSION;
+	}
+
+	/**
+	 * Tests if a cache file exists and is newer than the log file
+	 * @param cacheFileDir Directory to the cache file
+	 * @param fileDir Directory to the log file
+	 * @return True if the cache file can be used instead of the log file
+	 */
+	public static boolean isUpToDate(String cacheFileDir, String fileDir) {
+		File cacheFile = new File(cacheFileDir);
+		File file = new File(fileDir);
+		if(!cacheFile.isFile())
+			return false;
+		return cacheFile.lastModified() >= file.lastModified();
+	}
+
+	/**
+	 * Writes a read in trajectory to a cache file (the file is written to a temporary file first and renamed afterwards)
+	 * @param trajectory Read in trajectory
+	 * @param readInErrorCode Error code of the read-in of the trajectory (returned again when the cache file is read)
+	 * @param cacheFileDir Directory to the cache file
+	 * @return Error code; 0: successful; -1: no trajectory data available; -2: IOException; -3: trajectory read in with lazy channels and sample-values not parseable 
+	 * 		(the error code of a read-in parsing all channels is not known, see TrajectoryStateVectorsData4.setLazyChannels(); no cache file written, so the cache file does not change the error code)
+	 */
+	public static int write(TrajectoryStateVectorsData4 trajectory, int readInErrorCode, String cacheFileDir) {
+		TableStateVectorsData4 table = trajectory.table;
+		if((table.time == null) || (trajectory.icao24 == null) || (trajectory.callsign == null))
+			return -1;
+		int materializeErrorCode = trajectory.materializeChannels(TrajectoryStateVectorsData4.ALL_CHANNELS);		// (read-in with lazy channels)
+		if(materializeErrorCode < 0)
+			return -2;
+		if(materializeErrorCode > 0)
+			return -3;
+		table = trajectory.table;
+
+		int numberOfSamples = table.time.length;
+		boolean pipelineChannelsOnly = table.pipelineChannelsOnly;
+		byte[] icao24 = trajectory.icao24.getBytes(StandardCharsets.UTF_8);
+		byte[] callsign = trajectory.callsign.getBytes(StandardCharsets.UTF_8);
+
+		// width of time deltas ...
+		int timeDeltaWidth = 1;
+		for(int i=1; i<numberOfSamples; i++) {
+			long delta = (long)table.time[i] - table.time[i-1];
+			if((delta < 0) || (delta > 0xFFFF)) {
+				timeDeltaWidth = 4;
+				break;
+			}
+			if(delta > 0xFF)
+				timeDeltaWidth = 2;
+		}
+		// ... width of time deltas
+
+		int maskLength = ValidityMask.allocate(numberOfSamples).length;
+		int numberOfDoubleChannels = pipelineChannelsOnly ? 5 : 10;
+		int numberOfBooleanChannels = pipelineChannelsOnly ? 0 : 3;
+		int numberOfIntChannels = pipelineChannelsOnly ? 0 : 1;
+		int numberOfMasks = pipelineChannelsOnly ? 5 : 13;
+		long size = 7*4 + 2*4 + icao24.length + callsign.length
+				+ 4 + 1 + (long)timeDeltaWidth*numberOfSamples
+				+ 8L*numberOfDoubleChannels*numberOfSamples
+				+ 4L*numberOfIntChannels*numberOfSamples
+				+ 8L*(numberOfBooleanChannels+numberOfMasks)*maskLength;
+		if(size > Integer.MAX_VALUE)
+			return -2;
+
+		ByteBuffer buffer = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+
+		// header:
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(numberOfSamples);
+		buffer.putInt((pipelineChannelsOnly ? FLAG_PIPELINE_CHANNELS_ONLY : 0) | (trajectory.dropDuplicateRows ? FLAG_DUPLICATE_ROWS_DROPPED : 0));
+		buffer.putInt(trajectory.duplicateTimestampPolicy.ordinal());
+		buffer.putInt(readInErrorCode);
+		buffer.putInt(trajectory.droppedDuplicateRowCount);
+		buffer.putInt(icao24.length);
+		buffer.put(icao24);
+		buffer.putInt(callsign.length);
+		buffer.put(callsign);
+
+		// time (delta-encoded):
+		buffer.putInt(numberOfSamples > 0 ? table.time[0] : 0);
+		buffer.put((byte)timeDeltaWidth);
+		for(int i=1; i<numberOfSamples; i++) {
+			int delta = table.time[i] - table.time[i-1];
+			if(timeDeltaWidth == 1)
+				buffer.put((byte)delta);
+			else if(timeDeltaWidth == 2)
+				buffer.putShort((short)delta);
+			else
+				buffer.putInt(delta);
+		}
+		if(numberOfSamples > 0)		// (keep size independent of the number of deltas: padding for the first sample)
+			for(int i=0; i<timeDeltaWidth; i++)
+				buffer.put((byte)0);
+
+		// channels (column-major):
+		putDoubles(buffer, table.lat);
+		putDoubles(buffer, table.lon);
+		if(!pipelineChannelsOnly) {
+			putDoubles(buffer, table.velocity);
+			putDoubles(buffer, table.heading);
+			putDoubles(buffer, table.vertRate);
+			putLongs(buffer, packBooleans(table.onGround));
+			putLongs(buffer, packBooleans(table.alert));
+			putLongs(buffer, packBooleans(table.spi));
+			buffer.asIntBuffer().put(table.squawk);
+			buffer.position(buffer.position() + 4*numberOfSamples);
+		}
+		putDoubles(buffer, table.baroAlt);
+		if(!pipelineChannelsOnly)
+			putDoubles(buffer, table.geoAltitude);
+		putDoubles(buffer, table.lastPosUpdate);
+		putDoubles(buffer, table.lastContact);
+
+		// va-channels:
+		putLongs(buffer, table.vaLat);
+		putLongs(buffer, table.vaLon);
+		if(!pipelineChannelsOnly) {
+			putLongs(buffer, table.vaVelocity);
+			putLongs(buffer, table.vaHeading);
+			putLongs(buffer, table.vaVertRate);
+			putLongs(buffer, table.vaOnGround);
+			putLongs(buffer, table.vaAlert);
+			putLongs(buffer, table.vaSpi);
+			putLongs(buffer, table.vaSquawk);
+		}
+		putLongs(buffer, table.vaBaroAlt);
+		if(!pipelineChannelsOnly)
+			putLongs(buffer, table.vaGeoAltitude);
+		putLongs(buffer, table.vaLastPosUpdate);
+		putLongs(buffer, table.vaLastContact);
+
+		buffer.flip();
+
+		File temporaryFile = new File(cacheFileDir + ".tmp");
+		try {
+			RandomAccessFile file = new RandomAccessFile(temporaryFile, "rw");
+			try {
+				file.setLength(0);
+				FileChannel fileChannel = file.getChannel();
+				while(buffer.hasRemaining())
+					fileChannel.write(buffer);
+			} finally {
+				file.close();
+			}
+			Files.move(temporaryFile.toPath(), new File(cacheFileDir).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch(IOException e) {
+			temporaryFile.delete();
+			return -2;
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads a trajectory from a memory-mapped cache file.
+	 * Channels not needed due to trajectory.pipelineChannelsOnly are skipped.
+	 * @param trajectory Trajectory to read in (its table, icao24 and callsign are only changed if the read-in is successful)
+	 * @param cacheFileDir Directory to the cache file
+	 * @return Error code; >=0: error code of the original read-in of the trajectory; -1: file not found; -2: IOException; -8: invalid cache file or cache file does not match read-in settings (duplicateTimestampPolicy, dropDuplicateRows, pipelineChannelsOnly)
+	 */
+	public static int read(TrajectoryStateVectorsData4 trajectory, String cacheFileDir) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(cacheFileDir, "r");
+			try {
+				FileChannel fileChannel = file.getChannel();
+				if(fileChannel.size() > Integer.MAX_VALUE)
+					return -8;
+				ByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()).order(ByteOrder.LITTLE_ENDIAN);
+				return read(trajectory, buffer);
+			} finally {
+				file.close();
+			}
+		} catch(FileNotFoundException e) {
+			return -1;
+		} catch(IOException e) {
+			return -2;
+		}
+	}
+
+	private static int read(TrajectoryStateVectorsData4 trajectory, ByteBuffer buffer) {
+		try {
+			// header:
+			if(buffer.getInt() != MAGIC)
+				return -8;
+			if(buffer.getInt() != VERSION)
+				return -8;
+			int numberOfSamples = buffer.getInt();
+			int flags = buffer.getInt();
+			boolean cachePipelineChannelsOnly = (flags & FLAG_PIPELINE_CHANNELS_ONLY) != 0;
+			if(((flags & FLAG_DUPLICATE_ROWS_DROPPED) != 0) != trajectory.dropDuplicateRows)
+				return -8;
+			if(buffer.getInt() != trajectory.duplicateTimestampPolicy.ordinal())
+				return -8;
+			int readInErrorCode = buffer.getInt();
+			int droppedDuplicateRowCount = buffer.getInt();
+			String icao24 = getString(buffer);
+			String callsign = getString(buffer);
+			if((numberOfSamples < 0) || (cachePipelineChannelsOnly && !trajectory.pipelineChannelsOnly))
+				return -8;
+			boolean skipChannels = !cachePipelineChannelsOnly && trajectory.pipelineChannelsOnly;	// channels contained within the cache file, but not needed
+
+			TableStateVectorsData4 table = new TableStateVectorsData4();
+			table.pipelineChannelsOnly = trajectory.pipelineChannelsOnly;
+			table.allocateArrayMemory(numberOfSamples);
+			int maskLength = ValidityMask.allocate(numberOfSamples).length;
+
+			// time (delta-encoded):
+			int time = buffer.getInt();
+			int timeDeltaWidth = buffer.get();
+			if((timeDeltaWidth != 1) && (timeDeltaWidth != 2) && (timeDeltaWidth != 4))
+				return -8;
+			if(numberOfSamples > 0)
+				table.time[0] = time;
+			for(int i=1; i<numberOfSamples; i++) {
+				if(timeDeltaWidth == 1)
+					time += buffer.get() & 0xFF;
+				else if(timeDeltaWidth == 2)
+					time += buffer.getShort() & 0xFFFF;
+				else
+					time += buffer.getInt();
+				table.time[i] = time;
+			}
+			if(numberOfSamples > 0)
+				skip(buffer, timeDeltaWidth);
+
+			// channels (column-major):
+			getDoubles(buffer, table.lat);
+			getDoubles(buffer, table.lon);
+			if(skipChannels)
+				skip(buffer, 8L*3*numberOfSamples + 8L*3*maskLength + 4L*numberOfSamples);
+			else if(!cachePipelineChannelsOnly) {
+				getDoubles(buffer, table.velocity);
+				getDoubles(buffer, table.heading);
+				getDoubles(buffer, table.vertRate);
+				unpackBooleans(getLongs(buffer, maskLength), table.onGround);
+				unpackBooleans(getLongs(buffer, maskLength), table.alert);
+				unpackBooleans(getLongs(buffer, maskLength), table.spi);
+				buffer.asIntBuffer().get(table.squawk);
+				skip(buffer, 4L*numberOfSamples);
+			}
+			getDoubles(buffer, table.baroAlt);
+			if(skipChannels)
+				skip(buffer, 8L*numberOfSamples);
+			else if(!cachePipelineChannelsOnly)
+				getDoubles(buffer, table.geoAltitude);
+			getDoubles(buffer, table.lastPosUpdate);
+			getDoubles(buffer, table.lastContact);
+
+			// va-channels:
+			table.vaLat = getLongs(buffer, maskLength);
+			table.vaLon = getLongs(buffer, maskLength);
+			if(skipChannels)
+				skip(buffer, 8L*7*maskLength);
+			else if(!cachePipelineChannelsOnly) {
+				table.vaVelocity = getLongs(buffer, maskLength);
+				table.vaHeading = getLongs(buffer, maskLength);
+				table.vaVertRate = getLongs(buffer, maskLength);
+				table.vaOnGround = getLongs(buffer, maskLength);
+				table.vaAlert = getLongs(buffer, maskLength);
+				table.vaSpi = getLongs(buffer, maskLength);
+				table.vaSquawk = getLongs(buffer, maskLength);
+			}
+			table.vaBaroAlt = getLongs(buffer, maskLength);
+			if(skipChannels)
+				skip(buffer, 8L*maskLength);
+			else if(!cachePipelineChannelsOnly)
+				table.vaGeoAltitude = getLongs(buffer, maskLength);
+			table.vaLastPosUpdate = getLongs(buffer, maskLength);
+			table.vaLastContact = getLongs(buffer, maskLength);
+
+			if(buffer.hasRemaining())
+				return -8;
+
+			trajectory.table = table;
+			trajectory.setFlightIdentity(icao24, callsign);
+			trajectory.droppedDuplicateRowCount = droppedDuplicateRowCount;
+			return readInErrorCode;
+		} catch(BufferUnderflowException e) {
+			return -8;
+		} catch(IllegalArgumentException e) {
+			return -8;
+		}
+	}
+
+	private static void putDoubles(ByteBuffer buffer, double[] values) {
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + 8*values.length);
+	}
+
+	private static void getDoubles(ByteBuffer buffer, double[] values) {
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + 8*values.length);
+	}
+
+	private static void putLongs(ByteBuffer buffer, long[] values) {
+		buffer.asLongBuffer().put(values);
+		buffer.position(buffer.position() + 8*values.length);
+	}
+
+	private static long[] getLongs(ByteBuffer buffer, int length) {
+		long[] values = new long[length];
+		buffer.asLongBuffer().get(values);
+		buffer.position(buffer.position() + 8*length);
+		return values;
+	}
+
+	private static void skip(ByteBuffer buffer, long numberOfBytes) {
+		if(numberOfBytes > buffer.remaining())
+			throw new BufferUnderflowException();
+		buffer.position(buffer.position() + (int)numberOfBytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if((length < 0) || (length > buffer.remaining()))
+			throw new BufferUnderflowException();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long[] packBooleans(boolean[] values) {
+		long[] bits = ValidityMask.allocate(values.length);
+		for(int i=0; i<values.length; i++)
+			if(values[i])
+				bits[i >>> 6] |= (1L << i);
+		return bits;
+	}
+
+	private static void unpackBooleans(long[] bits, boolean[] values) {
+		for(int i=0; i<values.length; i++)
+			values[i] = ValidityMask.get(bits, i);
+	}
+
+}
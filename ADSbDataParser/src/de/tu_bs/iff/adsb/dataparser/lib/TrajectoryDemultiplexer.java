@@ -0,0 +1,300 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+
+/**
+ * Class to read in a log from The OpenSkyNetwork with format StateVectorsData4 containing samples of multiple flights (e.g. all state vectors of an hour).
+ * The samples are split up by (icao24, callsign) within a single pass into one TrajectoryStateVectorsData4 per flight.
+ */
+public class TrajectoryDemultiplexer {
+	public TrajectoryStateVectorsData4[] trajectoryStateVectorsData4Array = null;		// one trajectory per (icao24, callsign), in order of the first sample within the log
+	public int[] errorCodes = null;			// read-in error codes of the trajectories (see function readInInterfaceData(String dataSource, InputDataType inputDataType) of class TrajectoryStateVectorsData4)
+
+	public TrajectoryStateVectorsData4.DuplicateTimestampPolicy duplicateTimestampPolicy = TrajectoryStateVectorsData4.DuplicateTimestampPolicy.KEEP_ALL;		// handling of samples with equal timestamps within a flight
+	public boolean pipelineChannelsOnly = false;		// column projection for read-in (see TableStateVectorsData4.pipelineChannelsOnly)
+	public SampleFilter sampleFilter = null;		// predicates for samples to be read in (see TrajectoryStateVectorsData4.setSampleFilter()); flights without accepted samples are dropped
+	public boolean dropDuplicateRows = false;		// true: exact duplicate rows are dropped while reading in (see TrajectoryStateVectorsData4.setDropDuplicateRows())
+	public CallsignTable callsignTable = null;		// table the callsigns of the flights are interned in (null: a new table per read-in)
+
+	public TrajectoryDemultiplexer() {
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from text file from Impala interface to The OpenSkyNetwork with format StateVectorsData4.
+	 * Example Impala request command: "SELECT * FROM state_vectors_data4 WHERE hour>=1494201600 AND hour<1494205200;"
+	 * @param fileDir Directory to the text file
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	public int readInInterfaceDataFile(String fileDir) {
+		return readInInterfaceData(fileDir, InputDataType.FILE);
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from String with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4.
+	 * @param dataString String containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	public int readInInterfaceDataString(String dataString) {
+		return readInInterfaceData(dataString, InputDataType.STRING);
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from memory-mapped text file from Impala interface to The OpenSkyNetwork with format StateVectorsData4.
+	 * @param fileDir Directory to the text file
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	public int readInInterfaceDataMappedFile(String fileDir) {
+		return readInInterfaceData(fileDir, InputDataType.MAPPED_FILE);
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from InputStream with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4 (read incrementally with bounded memory; the stream is closed after read-in).
+	 * @param inputStream InputStream containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	public int readInInterfaceDataStream(InputStream inputStream) {
+		return readInInterfaceData(SampleLineReader.fromInputStream(inputStream));
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from (blocking) ReadableByteChannel with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4 (read incrementally with bounded memory; the channel is closed after read-in).
+	 * @param channel ReadableByteChannel containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	public int readInInterfaceDataChannel(ReadableByteChannel channel) {
+		return readInInterfaceData(SampleLineReader.fromChannel(channel, SampleLineReader.DEFAULT_CHANNEL_BUFFER_SIZE));
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from ByteBuffer (position to limit) with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4.
+	 * @param byteBuffer ByteBuffer containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	public int readInInterfaceDataBuffer(ByteBuffer byteBuffer) {
+		return readInInterfaceData(SampleLineReader.fromByteBuffer(byteBuffer));
+	}
+
+	/**
+	 * Returns the number of trajectories (flights) found within the last read-in log
+	 * @return Number of trajectories
+	 */
+	public int getNumberOfTrajectories() {
+		if(trajectoryStateVectorsData4Array == null)
+			return 0;
+		return trajectoryStateVectorsData4Array.length;
+	}
+
+	private static final int INITIAL_SAMPLE_CAPACITY = 64;			// initial number of samples allocated per flight (tables grow when required)
+	private static final int INITIAL_FLIGHT_TABLE_SIZE = 1024;		// initial size of the hash table to look up flights (power of 2)
+
+	private enum InputDataType {
+		FILE, STRING, MAPPED_FILE
+	}
+
+	// hash table (open addressing) to look up the table builder of a flight by (icao24, callsign) without creating String-objects:
+	private SampleTableBuilder[] flightTable;
+	private int[] flightTableHashCodes;
+	private ArrayList<SampleTableBuilder> flights;		// table builders in order of the first sample of the flight
+
+	/**
+	 * Function to read-in and split up trajectory data by (icao24, callsign).
+	 * @param dataSource Data-String or file directory (depending on inputDataType)
+	 * @param inputDataType Type of input (dataSource)
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	private int readInInterfaceData(String dataSource, InputDataType inputDataType) {
+		int errorCode = 0;
+			// errorCode return success or error of readIn function
+			// 0: success
+			// fatal errors (no data available)
+			// -1: file not found
+			// -2: IOException
+			// -3: lineBuffer too small
+			// -5: no sample line found
+			// -7: unknown input-dataType
+
+		trajectoryStateVectorsData4Array = null;
+		errorCodes = null;
+
+		SampleLineReader dataReader;
+		try {
+			switch(inputDataType) {
+			case FILE:
+				if(SampleLineReader.isCompressedFile(dataSource))
+					dataReader = SampleLineReader.fromCompressedFile(dataSource);
+				else
+					dataReader = SampleLineReader.fromReader(new FileReader(dataSource));
+				break;
+			case STRING:
+				dataReader = SampleLineReader.fromReader(new StringReader(dataSource));
+				break;
+			case MAPPED_FILE:
+				if(SampleLineReader.isCompressedFile(dataSource))
+					dataReader = SampleLineReader.fromCompressedFile(dataSource);		// (compressed files cannot be mapped)
+				else
+					dataReader = SampleLineReader.fromMappedFile(dataSource);
+				break;
+			default:
+				errorCode = -7;
+				return errorCode;
+			}
+		} catch(FileNotFoundException e) {
+			errorCode = -1;
+			return errorCode;
+		} catch(IOException e) {
+			errorCode = -2;
+			return errorCode;
+		}
+
+		return readInInterfaceData(dataReader);
+	}
+
+	/**
+	 * Function to read-in and split up trajectory data from a SampleLineReader (opened data source).
+	 * @param dataReader SampleLineReader of the data source (closed after read-in)
+	 * @return Error code; <0: fatal error; 0: successful (error codes of the single trajectories: see errorCodes)
+	 */
+	private int readInInterfaceData(SampleLineReader dataReader) {
+		int errorCode = 0;
+			// see function readInInterfaceData(String dataSource, InputDataType inputDataType)
+
+		trajectoryStateVectorsData4Array = null;
+		errorCodes = null;
+
+		flightTable = new SampleTableBuilder[INITIAL_FLIGHT_TABLE_SIZE];
+		flightTableHashCodes = new int[INITIAL_FLIGHT_TABLE_SIZE];
+		flights = new ArrayList<SampleTableBuilder>();
+
+		try {
+			byte[] inputData = new byte[SampleTableBuilder.INPUT_DATA_SIZE];	// line buffer for to read in lines from the input file
+			SampleLineTokenizer tokenizer = new SampleLineTokenizer();		// splits the lines within the line buffer into columns
+			SampleLineClassifier lineClassifier = new SampleLineClassifier();		// identifies sample lines and their columns
+
+			int lineEnd;
+			while((lineEnd = dataReader.readLine(inputData)) != SampleLineReader.END_OF_DATA) {
+				if(lineEnd == SampleLineReader.LINE_BUFFER_OVERFLOW) {
+					errorCode = -3;
+					break;
+				}
+				SampleColumnMap columnMap;
+				if((columnMap = lineClassifier.classify(inputData, lineEnd, tokenizer)) != null) {
+					// (an error -4 (time not parseable) only concerns the flight of the sample, further samples of this flight are skipped)
+					getFlight(tokenizer, columnMap).addSampleLine(inputData, tokenizer, columnMap);
+				}
+			}
+
+			dataReader.close();
+		} catch(IOException e) {
+			errorCode = -2;
+		}
+
+		if(sampleFilter != null)
+			for(int i=flights.size()-1; i>=0; i--)
+				if((flights.get(i).sampleCount == 0) && (flights.get(i).errorCode >= 0))		// (all samples of the flight rejected)
+					flights.remove(i);
+
+		if((errorCode == 0) && (flights.size() == 0))
+			errorCode = -5;
+
+		if(errorCode == 0) {
+			trajectoryStateVectorsData4Array = new TrajectoryStateVectorsData4[flights.size()];
+			errorCodes = new int[flights.size()];
+			CallsignTable flightsCallsignTable = (callsignTable != null) ? callsignTable : new CallsignTable();
+			for(int i=0; i<flights.size(); i++) {
+				trajectoryStateVectorsData4Array[i] = new TrajectoryStateVectorsData4();
+				trajectoryStateVectorsData4Array[i].duplicateTimestampPolicy = duplicateTimestampPolicy;
+				trajectoryStateVectorsData4Array[i].pipelineChannelsOnly = pipelineChannelsOnly;
+				trajectoryStateVectorsData4Array[i].sampleFilter = sampleFilter;
+				trajectoryStateVectorsData4Array[i].dropDuplicateRows = dropDuplicateRows;
+				trajectoryStateVectorsData4Array[i].callsignTable = flightsCallsignTable;
+				errorCodes[i] = trajectoryStateVectorsData4Array[i].readInTable(flights.get(i));
+				flights.set(i, null);			// (table is taken over by the trajectory)
+			}
+		}
+
+		flightTable = null;
+		flightTableHashCodes = null;
+		flights = null;
+
+		return errorCode;
+	}
+
+	/**
+	 * Looks up the table builder of the flight of a sample line (flight is added if not existing yet)
+	 * @param tokenizer Tokenizer holding the columns of the sample line
+	 * @param columnMap Columns of the sample-values
+	 * @return Table builder of the flight
+	 */
+	private SampleTableBuilder getFlight(SampleLineTokenizer tokenizer, SampleColumnMap columnMap) {
+		int icao24Column = columnMap.getColumn(1);
+		int callsignColumn = columnMap.getColumn(7);
+		int packedIcao24 = tokenizer.getColumnIcao24(icao24Column);
+		long callsignKey = tokenizer.getColumnCallsignKey(callsignColumn);
+		boolean packed = (packedIcao24 != FlightIdentity.NO_ICAO24) && (callsignKey != FlightIdentity.NO_CALLSIGN_KEY);
+		int hashCode;
+		if(packed)		// (flights with packable icao24 and callsign are compared as int/long)
+			hashCode = 31*packedIcao24 + Long.hashCode(callsignKey);
+		else
+			hashCode = 31*tokenizer.columnHashCode(icao24Column) + tokenizer.columnHashCode(callsignColumn);
+
+		int mask = flightTable.length-1;
+		int slot = mix(hashCode) & mask;
+		while(flightTable[slot] != null) {
+			SampleTableBuilder flight = flightTable[slot];
+			if(flightTableHashCodes[slot] == hashCode) {
+				if(packed) {
+					if((flight.packedIcao24 == packedIcao24) && (flight.callsignKey == callsignKey))
+						return flight;
+				} else if(tokenizer.columnEquals(icao24Column, flight.icao24) && tokenizer.columnEquals(callsignColumn, flight.callsign))
+					return flight;
+			}
+			slot = (slot+1) & mask;
+		}
+
+		SampleTableBuilder flight = new SampleTableBuilder(INITIAL_SAMPLE_CAPACITY, pipelineChannelsOnly);
+		flight.sampleFilter = sampleFilter;
+		if(dropDuplicateRows)
+			flight.duplicateRowFilter = new DuplicateRowFilter(INITIAL_SAMPLE_CAPACITY);
+		flight.setFlightIdentity(tokenizer.getColumnString(icao24Column), tokenizer.getColumnString(callsignColumn));
+		flightTable[slot] = flight;
+		flightTableHashCodes[slot] = hashCode;
+		flights.add(flight);
+
+		if(2*flights.size() > flightTable.length)		// keep load factor of the hash table below 0.5
+			growFlightTable();
+
+		return flight;
+	}
+
+	private void growFlightTable() {
+		SampleTableBuilder[] oldFlightTable = flightTable;
+		int[] oldFlightTableHashCodes = flightTableHashCodes;
+
+		flightTable = new SampleTableBuilder[2*oldFlightTable.length];
+		flightTableHashCodes = new int[2*oldFlightTable.length];
+		int mask = flightTable.length-1;
+		for(int i=0; i<oldFlightTable.length; i++) {
+			if(oldFlightTable[i] == null)
+				continue;
+			int slot = mix(oldFlightTableHashCodes[i]) & mask;
+			while(flightTable[slot] != null)
+				slot = (slot+1) & mask;
+			flightTable[slot] = oldFlightTable[i];
+			flightTableHashCodes[slot] = oldFlightTableHashCodes[i];
+		}
+	}
+
+	private static int mix(int hashCode) {
+		// spread the bits of the hash codes (similar icao24 / callsigns differ in the lower bits only)
+		hashCode *= 0x9E3779B9;
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
@@ -12,6 +12,8 @@ import de.tu_bs.iff.adsb.dataparser.cosmath.CosMath;
 public class TrajectoryHorizontal {
 	public String callsign = null;
 	public String icao24 = null;
+	public int packedIcao24 = FlightIdentity.NO_ICAO24;			// (see class FlightIdentity)
+	public int callsignId = FlightIdentity.NO_CALLSIGN_ID;		// (see class FlightIdentity)
 
 	public double[] reliability;
 	public double[] reliabilityTime;
@@ -20,6 +22,10 @@ public class TrajectoryHorizontal {
 	
 	public TableHorizontal tableRaw = new TableHorizontal();	// table for initial trajectory
 	
+	private RetainedSampleIndex retainedSamples = null;		// retained samples of table (built when parsing finishes; see interpolatePos())
+	private double[] retainedLat = null;					// lat of the retained samples
+	private double[] retainedLon = null;					// lon of the retained samples
+	
 	public TrajectoryHorizontal() {
 	}
 
@@ -107,36 +113,34 @@ public class TrajectoryHorizontal {
 	public int setRawTrajectoryFromStateVectorsData4(TrajectoryStateVectorsData4 sourceTrajectory) {
 		if(sourceTrajectory.table.time == null)
 			return -1;
+		if(sourceTrajectory.materializeChannels(TrajectoryStateVectorsData4.HORIZONTAL_CHANNELS) < 0)		// (read-in with lazy channels)
+			return -1;
 		
-		// obtain number of samples, which contain (va = true): lat, lon, lastPosUpdate: 
-		int numberOfApplicableSamples = 0;
-		for(int i=0; i<sourceTrajectory.table.time.length; i++)
-			if(sourceTrajectory.table.vaLat[i])
-				if(sourceTrajectory.table.vaLon[i])
-					if(sourceTrajectory.table.vaLastPosUpdate[i])
-						numberOfApplicableSamples++;
+		// obtain samples (and their number), which contain (va = true): lat, lon, lastPosUpdate: 
+		long[] vaApplicable = ValidityMask.and(ValidityMask.and(sourceTrajectory.table.vaLat, sourceTrajectory.table.vaLon), sourceTrajectory.table.vaLastPosUpdate);
+		int numberOfApplicableSamples = ValidityMask.cardinality(vaApplicable);
 		
 		// allocate trajectory variables with the number of samples
-		tableRaw.allocateArrayMemory(numberOfApplicableSamples);
-		
-		// set callsign and icao24
-		callsign = new String(sourceTrajectory.callsign);
-		icao24 = new String(sourceTrajectory.icao24);
+		// (time of tableRaw is decoded from the compact column of sourceTrajectory, built once and shared with TrajectoryVertical, instead of being converted from the int[] time of sourceTrajectory)
+		CompactTimeColumn compactTime = sourceTrajectory.getCompactTime();
+		tableRaw.allocateArrayMemory(numberOfApplicableSamples, compactTime, (numberOfApplicableSamples == compactTime.size()) ? null : vaApplicable);
+		
+		// set callsign and icao24 (shared with sourceTrajectory, callsign is interned)
+		callsign = sourceTrajectory.callsign;
+		icao24 = sourceTrajectory.icao24;
+		callsignId = sourceTrajectory.callsignId;
+		packedIcao24 = sourceTrajectory.packedIcao24;
 
 		// get applicable Samples from sourceTrajectory
 		int currentTableRawIndex = 0;
-		for(int i=0; i<sourceTrajectory.table.time.length; i++)
-			if(sourceTrajectory.table.vaLat[i])
-				if(sourceTrajectory.table.vaLon[i])
-					if(sourceTrajectory.table.vaLastPosUpdate[i]) {
-						tableRaw.time[currentTableRawIndex] = (double)sourceTrajectory.table.time[i];		// (tableRaw.time is double[], whereas sourceTrajectory.table.time is int[])
-						tableRaw.lat[currentTableRawIndex] = sourceTrajectory.table.lat[i];
-						tableRaw.lon[currentTableRawIndex] = sourceTrajectory.table.lon[i];
-						tableRaw.lastPosUpdate[currentTableRawIndex] = sourceTrajectory.table.lastPosUpdate[i];
-						tableRaw.vaSample[currentTableRawIndex] = true;
-						tableRaw.vrSample[currentTableRawIndex] = false;
-						currentTableRawIndex++;
-					}
+		for(int i=ValidityMask.nextSetBit(vaApplicable, 0); i>=0; i=ValidityMask.nextSetBit(vaApplicable, i+1)) {
+			tableRaw.lat[currentTableRawIndex] = sourceTrajectory.table.lat[i];
+			tableRaw.lon[currentTableRawIndex] = sourceTrajectory.table.lon[i];
+			tableRaw.lastPosUpdate[currentTableRawIndex] = sourceTrajectory.table.lastPosUpdate[i];
+			tableRaw.vaSample[currentTableRawIndex] = true;
+			tableRaw.vrSample[currentTableRawIndex] = false;
+			currentTableRawIndex++;
+		}
 		return 0;
 	}
 	
@@ -149,6 +153,9 @@ public class TrajectoryHorizontal {
 		if(tableRaw.time == null)
 			return -1;
 		
+		retainedSamples = null;
+		retainedLat = null;
+		retainedLon = null;
 		table.allocateArrayMemory(tableRaw.time.length);
 		// copy trajectory-data from tableRaw to table; only content of table will be changed during parsing afterwards: 
 		for(int i=0; i<table.time.length; i++) {
@@ -176,36 +183,68 @@ public class TrajectoryHorizontal {
 		if(filterRedundantOrthodromeInterpolationSamples)
 			filterRedundantOrthodromeInterpolationSamples(table, /*ctdThreshold*/(double)0.01, /*ltdThreshold*/(double)0.1);
 
+		// Compact the retained samples for interpolation
+		buildRetainedSamples();
+
 		return 0;
 	}
 	
 	
-	public double[] interpolatePos(double timestamp) {
-		int leftIndex = -1;
-		int rightIndex = -1;
-		
-		// Determine left and right index within array ...
-		for(int i=0; i<table.vaSample.length; i++) {
-			if(!table.vaSample[i] || table.vrSample[i])
-				continue;
-			if(table.time[i] >= timestamp) {
-				rightIndex = i;
-				break;
-			}
-			leftIndex = i;
+	private void buildRetainedSamples() {
+		retainedSamples = new RetainedSampleIndex(table.time, table.vaSample, table.vrSample);
+		retainedLat = new double[retainedSamples.size()];
+		retainedLon = new double[retainedSamples.size()];
+		for(int i=0; i<retainedLat.length; i++) {
+			retainedLat[i] = table.lat[retainedSamples.tableIndexes[i]];
+			retainedLon[i] = table.lon[retainedSamples.tableIndexes[i]];
 		}
-		// ... Determine left and right index within array
+	}
+	
+	/**
+	 * Returns a cursor for interpolatePos(double timestamp, RetainedSampleIndex.Cursor cursor), e.g. for interpolation at all timestamps of a merged trajectory. 
+	 * @return Cursor
+	 */
+	public RetainedSampleIndex.Cursor createInterpolationCursor() {
+		if(retainedSamples == null)
+			buildRetainedSamples();
+		return retainedSamples.cursor();
+	}
+	
+	/**
+	 * Interpolates the position along the orthodrome between the retained samples (binary search). 
+	 * @param timestamp Timestamp [s]
+	 * @return Interpolated position {lat, lon} [deg]; null if timestamp lies outside the channel-window
+	 */
+	public double[] interpolatePos(double timestamp) {
+		if(retainedSamples == null)
+			buildRetainedSamples();
+		return interpolateRetainedPos(retainedSamples.findRightIndex(timestamp), timestamp);
+	}
+	
+	/**
+	 * Interpolates the position along the orthodrome between the retained samples; for sequences of non-decreasing timestamps, the cursor only moves forward (linear in the number of samples and timestamps). 
+	 * @param timestamp Timestamp [s]
+	 * @param cursor Cursor of this trajectory (see createInterpolationCursor())
+	 * @return Interpolated position {lat, lon} [deg]; null if timestamp lies outside the channel-window
+	 */
+	public double[] interpolatePos(double timestamp, RetainedSampleIndex.Cursor cursor) {
+		return interpolateRetainedPos(cursor.findRightIndex(timestamp), timestamp);
+	}
+	
+	private double[] interpolateRetainedPos(int rightIndex, double timestamp) {
+		double[] time = retainedSamples.time;
 		
-		if(rightIndex == -1)						// when timestamp lies right-off the channel-window
+		if(rightIndex == time.length)				// when timestamp lies right-off the channel-window
 			return null;
-		if(timestamp == table.time[rightIndex])		// when timestamp lies on a sample (including first and last sample)
-			return new double[] {table.lat[rightIndex], table.lon[rightIndex]};
-		if(leftIndex == -1)							// when timestamp lies left-off the channel-window
+		if(timestamp == time[rightIndex])			// when timestamp lies on a sample (including first and last sample)
+			return new double[] {retainedLat[rightIndex], retainedLon[rightIndex]};
+		if(rightIndex == 0)							// when timestamp lies left-off the channel-window
 			return null;
+		int leftIndex = rightIndex-1;
 		
-		double orthodromeRelativePosition = (timestamp-table.time[leftIndex])/(table.time[rightIndex]-table.time[leftIndex]);
-		double[] posA = new double[] {CosMath.DEG_TO_RAD*table.lat[leftIndex], CosMath.DEG_TO_RAD*table.lon[leftIndex]};
-		double[] posB = new double[] {CosMath.DEG_TO_RAD*table.lat[rightIndex], CosMath.DEG_TO_RAD*table.lon[rightIndex]};
+		double orthodromeRelativePosition = (timestamp-time[leftIndex])/(time[rightIndex]-time[leftIndex]);
+		double[] posA = new double[] {CosMath.DEG_TO_RAD*retainedLat[leftIndex], CosMath.DEG_TO_RAD*retainedLon[leftIndex]};
+		double[] posB = new double[] {CosMath.DEG_TO_RAD*retainedLat[rightIndex], CosMath.DEG_TO_RAD*retainedLon[rightIndex]};
 		double[] interpolatedPos = CosMath.orthodromeInterpolate(posA, posB, orthodromeRelativePosition);
 		interpolatedPos[0] *= CosMath.RAD_TO_DEG;
 		interpolatedPos[1] *= CosMath.RAD_TO_DEG;
@@ -11,6 +11,8 @@ import de.tu_bs.iff.adsb.dataparser.cosmath.CosMath;
 public class TrajectoryMerged {
 	public String callsign = null;
 	public String icao24 = null;
+	public int packedIcao24 = FlightIdentity.NO_ICAO24;			// (see class FlightIdentity)
+	public int callsignId = FlightIdentity.NO_CALLSIGN_ID;		// (see class FlightIdentity)
 	
 	private double[] reliability = null;
 	private double[] reliabilityTime = null;
@@ -243,12 +245,16 @@ public class TrajectoryMerged {
 		
 		callsign = trajectoryVertical.callsign;
 		icao24 = trajectoryVertical.icao24;
-		if(!callsign.equals(trajectoryHorizontal.callsign)) {
+		callsignId = trajectoryVertical.callsignId;
+		packedIcao24 = trajectoryVertical.packedIcao24;
+		if(!callsign.equals(trajectoryHorizontal.callsign)) {		// (interned callsigns are the same String-object, see class CallsignTable)
 			callsign = "error";
+			callsignId = FlightIdentity.NO_CALLSIGN_ID;
 			System.err.println(String.format("Callsign error: vertical callsign: %s, horizontal callsign: %s", trajectoryVertical.callsign, trajectoryHorizontal.callsign));
 		}
-		if(!icao24.equals(trajectoryHorizontal.icao24)) {
+		if(!FlightIdentity.icao24Equals(packedIcao24, icao24, trajectoryHorizontal.packedIcao24, trajectoryHorizontal.icao24)) {
 			icao24 = "error";
+			packedIcao24 = FlightIdentity.NO_ICAO24;
 			System.err.println(String.format("ICAO24 error: vertical ICAO24: %s, horizontal ICAO24: %s", trajectoryVertical.icao24, trajectoryHorizontal.icao24));
 		}
 		
@@ -381,10 +387,13 @@ public class TrajectoryMerged {
 	private void fillAndInterpolateChannels() {
 		double timestamp;
 		double[] pos;
+		// (table.time is in ascending order: the cursors pass the retained samples of both trajectories once)
+		RetainedSampleIndex.Cursor verticalCursor = trajectoryVertical.createInterpolationCursor();
+		RetainedSampleIndex.Cursor horizontalCursor = trajectoryHorizontal.createInterpolationCursor();
 		for(int i=0; i<table.time.length; i++) {
 			timestamp = table.time[i];
-			table.baroAlt[i] = trajectoryVertical.interpolateBaroAlt(timestamp);
-			pos = trajectoryHorizontal.interpolatePos(timestamp);
+			table.baroAlt[i] = trajectoryVertical.interpolateBaroAlt(timestamp, verticalCursor);
+			pos = trajectoryHorizontal.interpolatePos(timestamp, horizontalCursor);
 			if(pos == null)
 				pos = new double[] {Double.MAX_VALUE, Double.MAX_VALUE};
 			table.lat[i] = pos[0];
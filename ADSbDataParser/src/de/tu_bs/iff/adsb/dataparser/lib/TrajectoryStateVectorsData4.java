@@ -3,9 +3,12 @@ package de.tu_bs.iff.adsb.dataparser.lib;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.StringReader;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 
 /**
  * Class containing a raw trajectory from TheOpenSkyNetwork in format 'state_vectors_data4'
@@ -13,15 +16,146 @@ import java.util.ArrayList;
 public class TrajectoryStateVectorsData4 {
 	public String callsign = null;
 	public String icao24 = null;
+	public int packedIcao24 = FlightIdentity.NO_ICAO24;			// icao24 packed (see class FlightIdentity)
+	public int callsignId = FlightIdentity.NO_CALLSIGN_ID;		// id of callsign within callsignTable (see class FlightIdentity)
+	
+	public CallsignTable callsignTable = null;		// table the callsign is interned in (null: callsign is not interned, callsignId is NO_CALLSIGN_ID)
 	
 	public TableStateVectorsData4 table = new TableStateVectorsData4();		// contains the table with data values
 	
+	/**
+	 * Handling of samples with equal timestamps while sorting the samples by time (soft error 2001 is returned in any case)
+	 */
+	public enum DuplicateTimestampPolicy {
+		KEEP_ALL,		// keep all samples (in order of the input data)
+		KEEP_FIRST,		// keep the first sample (within the input data) of each timestamp
+		KEEP_LAST,		// keep the last sample (within the input data) of each timestamp
+		DROP			// drop all samples of timestamps occurring more than once
+	}
+	public DuplicateTimestampPolicy duplicateTimestampPolicy = DuplicateTimestampPolicy.KEEP_ALL;
+	
+	public boolean pipelineChannelsOnly = false;		// column projection for read-in (see TableStateVectorsData4.pipelineChannelsOnly)
+	
+	public SampleFilter sampleFilter = null;		// predicates for samples to be read in (null: all samples are read in)
+	
+	public boolean dropDuplicateRows = false;		// true: exact duplicate rows are dropped while reading in (see class DuplicateRowFilter)
+	public int droppedDuplicateRowCount = 0;		// number of rows dropped as duplicates within the last read-in
+	
+	public boolean lazyChannels = false;		// true: channels besides time are parsed when required (see setLazyChannels())
+	private LazyChannelLoader lazyChannelLoader = null;		// loads the channels of table, if table.lazyChannels is true
+	public int lazyChannelsErrorCode = 0;		// soft error 10xx of the channels parsed by materializeChannels() since the last read-in (not reported by a read-in with lazy channels); 0: none
+	
+	// value-indexes (see SampleColumnMap.VALUE_NAMES) of the channels used by TrajectoryVertical, TrajectoryHorizontal and of all channels (for materializeChannels()): 
+	public static final int[] VERTICAL_CHANNELS = {12, 15};
+	public static final int[] HORIZONTAL_CHANNELS = {2, 3, 14};
+	public static final int[] ALL_CHANNELS = {2, 3, 4, 5, 6, 8, 9, 10, 11, 12, 13, 14, 15};
+	
 	public TrajectoryStateVectorsData4() {
 	}
+	
+	/**
+	 * Sets the column projection for the following read-ins (default: false). 
+	 * If true, only the channels used by TrajectoryVertical and TrajectoryHorizontal (time, lat, lon, baroAlt, lastPosUpdate, lastContact) are parsed and allocated, 
+	 * the other channels of table remain null (NaN within getDoubleTableMatrix()). 
+	 * @param pipelineChannelsOnly True: read in only the channels used by TrajectoryVertical and TrajectoryHorizontal
+	 */
+	public void setPipelineChannelsOnly(boolean pipelineChannelsOnly) {
+		this.pipelineChannelsOnly = pipelineChannelsOnly;
+	}
+	
+	/**
+	 * Sets predicates (time window, bounding box, on-ground exclusion) for the samples of the following read-ins (default: null). 
+	 * Rejected samples are dropped while reading in and are not checked for icao24/callsign consistency or parseability. If all samples are rejected, error -5 is returned. 
+	 * @param sampleFilter Predicates for samples to be read in; null: all samples are read in
+	 */
+	public void setSampleFilter(SampleFilter sampleFilter) {
+		this.sampleFilter = sampleFilter;
+	}
+	
+	/**
+	 * Sets the elimination of exact duplicate rows (e.g. from overlapping hour partitions of a query) for the following read-ins (default: false). 
+	 * Rows with equal time and equal values of all channels (see class DuplicateRowFilter) are dropped while reading in, only the first row is kept; 
+	 * the number of dropped rows is reported within droppedDuplicateRowCount. Remaining samples with equal timestamps are handled according to duplicateTimestampPolicy. 
+	 * @param dropDuplicateRows True: exact duplicate rows are dropped
+	 */
+	public void setDropDuplicateRows(boolean dropDuplicateRows) {
+		this.dropDuplicateRows = dropDuplicateRows;
+	}
+	
+	/**
+	 * Sets lazy channels for the following read-ins (default: false). 
+	 * If true, only time is parsed while reading in, and the source position of each sample line is stored instead of the other channels; 
+	 * each channel is parsed in bulk when it is required for the first time (see materializeChannels(), e.g. by TrajectoryVertical.setRawTrajectoryFromStateVectorsData4()), 
+	 * so channels which are never required are neither parsed nor allocated. Icao24 and callsign are checked while reading in, but soft errors 10xx are not reported by the read-in 
+	 * (the error code of the read-in differs from a read-in parsing all channels); they are returned by materializeChannels() and kept within lazyChannelsErrorCode. 
+	 * Lazy channels apply to readInInterfaceDataMappedFile(), readInInterfaceDataFileParallel() and readInInterfaceDataBuffer() (the file or ByteBuffer must not be changed until the channels are parsed; 
+	 * a changed file is detected by its length and last modification time, see LazyChannelLoader.openReader()), 
+	 * other read-ins and read-ins with dropDuplicateRows or a sampleFilter with bounding box or on-ground exclusion parse all channels while reading in. 
+	 * @param lazyChannels True: channels besides time are parsed when required
+	 */
+	public void setLazyChannels(boolean lazyChannels) {
+		this.lazyChannels = lazyChannels;
+	}
+	
+	/**
+	 * Parses channels of table (read in with lazy channels, see setLazyChannels()) which are not parsed yet; without effect for tables parsed completely. 
+	 * @param valueIndexes Value-indexes of the channels (see SampleColumnMap.VALUE_NAMES; e.g. VERTICAL_CHANNELS, HORIZONTAL_CHANNELS, ALL_CHANNELS)
+	 * @return Error code; 0: successful; <0: source not available anymore (-1: file not found; -2: IOException or file changed since the read-in; channels remain null); 10xx: one or more sample-values (value-index: xx) not parseable
+	 */
+	public int materializeChannels(int[] valueIndexes) {
+		if(!table.lazyChannels || (lazyChannelLoader == null))
+			return 0;
+		int errorCode = lazyChannelLoader.loadChannels(table, valueIndexes);
+		if(errorCode > 0)
+			lazyChannelsErrorCode = errorCode;
+		
+		boolean allChannelsLoaded = true;
+		for(int i=0; i<ALL_CHANNELS.length; i++)
+			if(!LazyChannelLoader.isChannelLoaded(table, ALL_CHANNELS[i]) && !(table.pipelineChannelsOnly && !LazyChannelLoader.isPipelineChannel(ALL_CHANNELS[i])))
+				allChannelsLoaded = false;
+		if(allChannelsLoaded) {		// (table is complete: source and line offsets are not required anymore)
+			table.lazyChannels = false;
+			table.lineOffsets = null;
+			lazyChannelLoader = null;
+		}
+		return errorCode;
+	}
+	
+	/**
+	 * Returns the time channel of table in compact form (see class CompactTimeColumn); the column is built with the first call and kept with table, 
+	 * so TrajectoryVertical and TrajectoryHorizontal share one column (each with the selection of its samples) instead of building one each. 
+	 * table.time must not be changed afterwards. 
+	 * @return Time channel in compact form; null: no table read in
+	 */
+	public synchronized CompactTimeColumn getCompactTime() {
+		if(table.time == null)
+			return null;
+		if(table.compactTime == null)
+			table.compactTime = CompactTimeColumn.fromArray(table.time);
+		return table.compactTime;
+	}
+	
+	/**
+	 * Sets the table the callsign is interned in for the following read-ins (default: null), e.g. the table of a batch of trajectories (see class CallsignTable). 
+	 * @param callsignTable Table of interned callsigns; null: callsign is not interned
+	 */
+	public void setCallsignTable(CallsignTable callsignTable) {
+		this.callsignTable = callsignTable;
+	}
+	
+	/**
+	 * Sets the handling of samples with equal timestamps for the following read-ins (default: KEEP_ALL).
+	 * @param duplicateTimestampPolicy Handling of samples with equal timestamps
+	 */
+	public void setDuplicateTimestampPolicy(DuplicateTimestampPolicy duplicateTimestampPolicy) {
+		this.duplicateTimestampPolicy = duplicateTimestampPolicy;
+	}
 
 	/**
 	 * Function to read-in trajectory data from text file from Impala interface to The OpenSkyNetwork with format StateVectorsData4. 
 	 * Example Impala request command: "SELECT * FROM state_vectors_data4 WHERE time>=1494201600 AND time<=1494288000 AND hour>=1494201600 AND hour<=1494288000 AND callsign='DLH6CR  ';"
+	 * Queries selecting only some of the columns (at least time, icao24 and callsign) in any order are read in by the header line of the log (see class SampleColumnMap). 
+	 * Compressed text files (*.gz, *.zip) are decompressed while reading in. 
 	 * @param fileDir Directory to the text file
 	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
 	 */
@@ -53,13 +187,283 @@ public class TrajectoryStateVectorsData4 {
 		return errorCode;
 	}
 
+	/**
+	 * Function to read-in trajectory data from text file from Impala interface to The OpenSkyNetwork with format StateVectorsData4. 
+	 * The file is memory-mapped and scanned as raw ASCII bytes (no character decoding), which is faster for large log files. 
+	 * Compressed text files (*.gz, *.zip) cannot be mapped and are decompressed while reading in. 
+	 * @param fileDir Directory to the text file
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	public int readInInterfaceDataMappedFile(String fileDir) {
+		int errorCode = 0;
+		// errorCode return success or error of readIn function
+		// 0: success
+		// else: see function readInInterfaceData(String dataSource, InputDataType inputDataType) for additional errorCodes
+		
+		errorCode = readInInterfaceData(fileDir, InputDataType.MAPPED_FILE);
+		
+		return errorCode;
+	}
+
+	/**
+	 * Function to read-in trajectory data from InputStream with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4 (e.g. a decompression stream or a network stream). 
+	 * The stream is scanned as raw ASCII bytes incrementally with a buffer of fixed size, so the data does not have to be held in memory as a whole. The stream is closed after read-in. 
+	 * @param inputStream InputStream containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	public int readInInterfaceDataStream(InputStream inputStream) {
+		return readInInterfaceData(SampleLineReader.fromInputStream(inputStream), null);
+	}
+
+	/**
+	 * Function to read-in trajectory data from (blocking) ReadableByteChannel with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4. 
+	 * The channel is scanned as raw ASCII bytes incrementally with a buffer of fixed size, so the data does not have to be held in memory as a whole. The channel is closed after read-in. 
+	 * @param channel ReadableByteChannel containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	public int readInInterfaceDataChannel(ReadableByteChannel channel) {
+		return readInInterfaceData(SampleLineReader.fromChannel(channel, SampleLineReader.DEFAULT_CHANNEL_BUFFER_SIZE), null);
+	}
+
+	/**
+	 * Function to read-in trajectory data from ByteBuffer with data from Impala interface to The OpenSkyNetwork with format StateVectorsData4. 
+	 * The bytes from position to limit of the ByteBuffer are scanned as raw ASCII bytes without copying (position and limit of the ByteBuffer are not changed). 
+	 * @param byteBuffer ByteBuffer containing the data (raw Impala SSH interface format)
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	public int readInInterfaceDataBuffer(ByteBuffer byteBuffer) {
+		return readInInterfaceData(SampleLineReader.fromByteBuffer(byteBuffer), useLazyChannels() ? LazyChannelLoader.forByteBuffer(byteBuffer) : null);
+	}
+
+	/**
+	 * Function to read-in trajectory data from text file from Impala interface to The OpenSkyNetwork with format StateVectorsData4 using multiple threads. 
+	 * The file is split at line boundaries into chunks, which are read in in parallel (memory-mapped) and concatenated afterwards. 
+	 * Samples, callsign, icao24 and error code are the same as for readInInterfaceDataFile(String fileDir).
+	 * Compressed text files (*.gz, *.zip) cannot be split into chunks and are read in by readInInterfaceDataFile(String fileDir). 
+	 * @param fileDir Directory to the text file
+	 * @param threadCount Number of threads (chunks) to be used for read-in (small files are read in with less threads)
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	public int readInInterfaceDataFileParallel(String fileDir, int threadCount) {
+		return readInInterfaceDataFileParallel(fileDir, threadCount, useLazyChannels());
+	}
+	
+	/**
+	 * Function to read-in trajectory data from text file using multiple threads (see readInInterfaceDataFileParallel(String fileDir, int threadCount))
+	 * @param fileDir Directory to the text file
+	 * @param threadCount Number of threads (chunks) to be used for read-in
+	 * @param lazyChannels True: read-in with lazy channels (see setLazyChannels())
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	private int readInInterfaceDataFileParallel(String fileDir, int threadCount, boolean lazyChannels) {
+		int errorCode = 0;
+		// errorCode return success or error of readIn function
+		// 0: success
+		// else: see function readInInterfaceData(String dataSource, InputDataType inputDataType) for additional errorCodes
+		
+		if(SampleLineReader.isCompressedFile(fileDir))
+			return readInInterfaceDataFile(fileDir);
+		
+		lazyChannelLoader = null;
+		lazyChannelsErrorCode = 0;
+		LazyChannelLoader chunksLazyChannelLoader = lazyChannels ? LazyChannelLoader.forMappedFile(fileDir) : null;		// (created before the read-in, see LazyChannelLoader.forMappedFile())
+		try {
+			long[] chunkStarts = determineChunkStarts(fileDir, threadCount);
+			
+			// icao24 and callsign of the first sample of the file (samples of all chunks are checked against these as within a sequential read-in)
+			// and header line in front of it (chunks behind the first chunk do not contain the header line of the file):
+			SampleTableBuilder firstSample = readInFirstSample(fileDir);
+			
+			// read in chunks in parallel ...
+			ChunkParserThread[] chunkParserThreads = new ChunkParserThread[chunkStarts.length-1];
+			for(int i=0; i<chunkParserThreads.length; i++) {
+				SampleTableBuilder tableBuilder = new SampleTableBuilder(INITIAL_SAMPLE_CAPACITY, pipelineChannelsOnly, lazyChannels);
+				tableBuilder.sampleFilter = sampleFilter;
+				if(dropDuplicateRows)
+					tableBuilder.duplicateRowFilter = new DuplicateRowFilter(INITIAL_SAMPLE_CAPACITY);
+				tableBuilder.setFlightIdentity(firstSample.icao24, firstSample.callsign);
+				if(i > 0)
+					tableBuilder.lineClassifier = new SampleLineClassifier(firstSample.lineClassifier.getHeaderColumnMap());
+				chunkParserThreads[i] = new ChunkParserThread(fileDir, chunkStarts[i], chunkStarts[i+1], tableBuilder);
+				chunkParserThreads[i].start();
+			}
+			for(int i=0; i<chunkParserThreads.length; i++)
+				try {
+					chunkParserThreads[i].join();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			// ... read in chunks in parallel
+			
+			// combine error codes of the chunks (in the order of a sequential read-in: -3 takes precedence over -4, the last soft error within the file is kept) ...
+			int numberOfSamples = 0;
+			droppedDuplicateRowCount = 0;
+			for(int i=0; i<chunkParserThreads.length; i++) {
+				if(chunkParserThreads[i].errorCode == -1)
+					throw new FileNotFoundException();
+				if(chunkParserThreads[i].errorCode == -2)
+					throw new IOException();
+				if(chunkParserThreads[i].errorCode == -3)
+					errorCode = -3;
+				if(errorCode == -3)
+					continue;
+				if((errorCode != -4) && (chunkParserThreads[i].tableBuilder.errorCode != 0))
+					errorCode = chunkParserThreads[i].tableBuilder.errorCode;
+				numberOfSamples += chunkParserThreads[i].tableBuilder.sampleCount;
+				droppedDuplicateRowCount += chunkParserThreads[i].tableBuilder.droppedDuplicateRowCount;
+			}
+			// ... combine error codes of the chunks
+			
+			if(errorCode == -3) {
+				setFlightIdentity(null, null);
+				table.freeArrayMemory();
+				droppedDuplicateRowCount = 0;
+				return errorCode;
+			}
+			
+			// columns of the sample-values of all chunks (lazy channels) ...
+			SampleColumnMap lazyColumnMap = null;
+			if(lazyChannels)
+				for(int i=0; i<chunkParserThreads.length; i++) {
+					SampleTableBuilder tableBuilder = chunkParserThreads[i].tableBuilder;
+					if(tableBuilder.lazyColumnMapChanged || ((lazyColumnMap != null) && (tableBuilder.lazyColumnMap != null) && !tableBuilder.lazyColumnMap.equals(lazyColumnMap)))
+						return readInInterfaceDataFileParallel(fileDir, threadCount, false);		// (log with different header lines: read in again with all channels)
+					if(lazyColumnMap == null)
+						lazyColumnMap = tableBuilder.lazyColumnMap;
+				}
+			// ... columns of the sample-values of all chunks
+			
+			// concatenate partial tables of the chunks:
+			table = new TableStateVectorsData4();
+			table.pipelineChannelsOnly = pipelineChannelsOnly;
+			table.lazyChannels = lazyChannels;
+			table.allocateArrayMemory(numberOfSamples);
+			int sampleIndex = 0;
+			for(int i=0; i<chunkParserThreads.length; i++) {
+				table.copyTableLines(chunkParserThreads[i].tableBuilder.table, 0, sampleIndex, chunkParserThreads[i].tableBuilder.sampleCount);
+				sampleIndex += chunkParserThreads[i].tableBuilder.sampleCount;
+				chunkParserThreads[i].tableBuilder = null;
+			}
+			if(dropDuplicateRows && (chunkParserThreads.length > 1))		// (duplicate rows within different chunks)
+				removeDuplicateRows();
+			callsign = firstSample.callsign;
+			icao24 = firstSample.icao24;
+			if(lazyChannels) {
+				chunksLazyChannelLoader.setColumnMap(lazyColumnMap);
+				lazyChannelLoader = chunksLazyChannelLoader;
+			}
+		} catch(FileNotFoundException e) {
+			errorCode = -1;
+		} catch(IOException e) {
+			errorCode = -2;
+		}
+		
+		return completeReadIn(errorCode);
+	}
+
+	/**
+	 * Function to read-in trajectory data from a binary cache file (see class TrajectoryCacheFile) written by writeCacheFile(). 
+	 * The cache file is memory-mapped and the channels are copied column-wise, no text parsing is required. 
+	 * The cache file has to match duplicateTimestampPolicy and dropDuplicateRows and (if pipelineChannelsOnly is false) contain all channels. 
+	 * @param cacheFileDir Directory to the cache file
+	 * @return Error code; <0: fatal error (-8: invalid cache file or cache file not matching the read-in settings); else: error code of the read-in the cache file was written from
+	 */
+	public int readInCacheFile(String cacheFileDir) {
+		lazyChannelsErrorCode = 0;
+		return TrajectoryCacheFile.read(this, cacheFileDir);
+	}
+
+	/**
+	 * Writes the read in trajectory data to a binary cache file (see class TrajectoryCacheFile), which can be read in again with readInCacheFile().
+	 * @param cacheFileDir Directory to the cache file
+	 * @param readInErrorCode Error code of the read-in of the trajectory data (returned by readInCacheFile())
+	 * @return Error code; 0: successful; -1: no trajectory data available; -2: IOException; -3: read in with lazy channels and sample-values not parseable (no cache file written, see TrajectoryCacheFile.write())
+	 */
+	public int writeCacheFile(String cacheFileDir, int readInErrorCode) {
+		return TrajectoryCacheFile.write(this, readInErrorCode, cacheFileDir);
+	}
+
+	private static final long MIN_CHUNK_SIZE = 4L*1024*1024;		// minimum size of a chunk for parallel read-in (smaller files are read in with less threads)
+
+	/**
+	 * Splits a file into chunks at line boundaries
+	 * @param fileDir Directory to the text file
+	 * @param threadCount Maximum number of chunks
+	 * @return Start positions of the chunks (last element: size of the file)
+	 * @throws FileNotFoundException If the file does not exist
+	 * @throws IOException If reading from the file fails
+	 */
+	private long[] determineChunkStarts(String fileDir, int threadCount) throws FileNotFoundException, IOException {
+		RandomAccessFile file = new RandomAccessFile(fileDir, "r");
+		long fileSize = file.length();
+		
+		int chunkCount = (int)Math.min(threadCount, fileSize/MIN_CHUNK_SIZE);
+		if(chunkCount < 1)
+			chunkCount = 1;
+		
+		long[] chunkStarts = new long[chunkCount+1];
+		chunkStarts[0] = 0;
+		chunkStarts[chunkCount] = fileSize;
+		byte[] buffer = new byte[4096];
+		for(int i=1; i<chunkCount; i++) {
+			// chunk starts behind the first '\n' at or after position-1 ...
+			long position = Math.max(fileSize*i/chunkCount, chunkStarts[i-1]) - 1;
+			chunkStarts[i] = fileSize;
+			file.seek(position);
+			int bytesRead;
+			search:
+			while((bytesRead = file.read(buffer)) > 0) {
+				for(int j=0; j<bytesRead; j++)
+					if(buffer[j] == '\n') {
+						chunkStarts[i] = position+j+1;
+						break search;
+					}
+				position += bytesRead;
+			}
+			// ... chunk starts behind the first '\n' at or after position-1
+		}
+		
+		file.close();
+		return chunkStarts;
+	}
+	
+	/**
+	 * Reads in the first sample of a file
+	 * @param fileDir Directory to the text file
+	 * @return Table builder with the first sample accepted by sampleFilter (icao24 and callsign are null if there is no sample or the first sample is not valid; lineClassifier holds the header line in front of the sample)
+	 * @throws FileNotFoundException If the file does not exist
+	 * @throws IOException If reading from the file fails
+	 */
+	private SampleTableBuilder readInFirstSample(String fileDir) throws FileNotFoundException, IOException {
+		SampleTableBuilder firstSample = new SampleTableBuilder(1);
+		firstSample.sampleFilter = sampleFilter;
+		
+		SampleLineReader dataReader = SampleLineReader.fromMappedFile(fileDir);
+		byte[] inputData = new byte[SampleTableBuilder.INPUT_DATA_SIZE];
+		SampleLineTokenizer tokenizer = new SampleLineTokenizer();
+		int lineEnd;
+		while((lineEnd = dataReader.readLine(inputData)) >= 0) {		// (error -3 (lineBuffer too small) is reported by the chunks)
+			SampleColumnMap columnMap;
+			if((columnMap = firstSample.lineClassifier.classify(inputData, lineEnd, tokenizer)) != null) {
+				if(!firstSample.addSampleLine(inputData, tokenizer, columnMap) || (firstSample.sampleCount > 0))
+					break;
+				// (sample rejected by sampleFilter: continue with the next sample)
+			}
+		}
+		dataReader.close();
+		
+		return firstSample;
+	}
+
+	private static final int INITIAL_SAMPLE_CAPACITY = 1024;		// initial number of samples allocated for read-in (table grows when required)
+
 	private enum InputDataType {
-		FILE, STRING
+		FILE, STRING, MAPPED_FILE
 	}
 	/**
 	 * Function to read-in trajectory data from Reader-object from Impala interface to The OpenSkyNetwork with format StateVectorsData4. 
 	 * Example Impala request command: "SELECT * FROM state_vectors_data4 WHERE time>=1494201600 AND time<=1494288000 AND hour>=1494201600 AND hour<=1494288000 AND callsign='DLH6CR  ';"
-	 * @param dataSource Reader-object to read-in data
+	 * @param dataSource Data-String or file directory (depending on inputDataType)
 	 * @param inputDataType Type of input (dataSource)
 	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
 	 */
@@ -75,6 +479,7 @@ public class TrajectoryStateVectorsData4 {
 			// -5: no table structure with icao24 found
 			// -6: no table structure with callsign found
 			// -7: unknown input-dataType
+			// -8: invalid cache file (only readInCacheFile())
 			// -20xx: time-sort error (with errorCode: -xx)
 			// soft errors (data available, but maybe not complete)
 			// 1: icao24 vector not consistent
@@ -82,156 +487,133 @@ public class TrajectoryStateVectorsData4 {
 			// 10xx: one or more sample-values (value-index: xx) not parseable (corresponding vaValue[index] set to false)
 			// 20xx: time-sort error (with errorCode: xx)
 		
+		SampleLineReader dataReader;
+		LazyChannelLoader lazyChannelLoader = null;
 		try {
-			Reader dataReader;
 			switch(inputDataType) {
 			case FILE:
-				dataReader = new FileReader(dataSource);
+				if(SampleLineReader.isCompressedFile(dataSource))
+					dataReader = SampleLineReader.fromCompressedFile(dataSource);
+				else
+					dataReader = SampleLineReader.fromReader(new FileReader(dataSource));
 				break;
 			case STRING:
-				dataReader = new StringReader(dataSource);
+				dataReader = SampleLineReader.fromReader(new StringReader(dataSource));
+				break;
+			case MAPPED_FILE:
+				if(SampleLineReader.isCompressedFile(dataSource))
+					dataReader = SampleLineReader.fromCompressedFile(dataSource);		// (compressed files cannot be mapped)
+				else {
+					dataReader = SampleLineReader.fromMappedFile(dataSource);
+					if(useLazyChannels())
+						lazyChannelLoader = LazyChannelLoader.forMappedFile(dataSource);
+				}
 				break;
 			default:
 				errorCode = -7;
 				return errorCode;
 			}
+		} catch(FileNotFoundException e) {
+			errorCode = -1;
+			return completeReadIn(errorCode);
+		} catch(IOException e) {
+			errorCode = -2;
+			return completeReadIn(errorCode);
+		}
+		
+		return readInInterfaceData(dataReader, lazyChannelLoader);
+	}
+	
+	/**
+	 * Tests if the settings of the following read-in allow lazy channels (see setLazyChannels())
+	 * @return True if channels besides time can be parsed when required
+	 */
+	private boolean useLazyChannels() {
+		if(!lazyChannels || dropDuplicateRows)
+			return false;
+		return (sampleFilter == null) || !sampleFilter.requiresSampleValues();
+	}
+	
+	/**
+	 * Function to read-in trajectory data from a SampleLineReader (opened data source). 
+	 * @param dataReader SampleLineReader of the data source (closed after read-in)
+	 * @param lazyChannelLoader LazyChannelLoader of the data source (same data as dataReader) for a read-in with lazy channels; null: all channels are parsed while reading in
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	private int readInInterfaceData(SampleLineReader dataReader, LazyChannelLoader lazyChannelLoader) {
+		int errorCode = 0;
+		// errorCode return success or error of readIn function
+		// 0: success
+		// else: see function readInInterfaceData(String dataSource, InputDataType inputDataType) for additional errorCodes
+		
+		// allocate trajectory variables with an initial capacity (arrays grow while reading in and are trimmed to the number of samples afterwards)
+		// (callsign and icao24 start with null, in case a new trajectory is read in)
+		SampleTableBuilder tableBuilder = new SampleTableBuilder(INITIAL_SAMPLE_CAPACITY, pipelineChannelsOnly, lazyChannelLoader != null);
+		tableBuilder.sampleFilter = sampleFilter;
+		if(dropDuplicateRows)
+			tableBuilder.duplicateRowFilter = new DuplicateRowFilter(INITIAL_SAMPLE_CAPACITY);
+		droppedDuplicateRowCount = 0;
+		this.lazyChannelLoader = null;
+		lazyChannelsErrorCode = 0;
+		try {
+			// readIn Samples from the Reader within a single pass
+			if(!tableBuilder.addSampleLines(dataReader))
+				errorCode = -3;
 			
-			final int INPUT_DATA_SIZE = 2048;				// size of char buffer for to read in lines from the input file
-			char[] inputData = new char[INPUT_DATA_SIZE];	// char buffer for to read in lines from the input file
-			
-			// obtain number of Samples within the file
-			int numberOfSamples = 0;
-			int lineEnd;				// position of the end of the file-line read into the char buffer (inputData)
-			do {
-				lineEnd = -1;				// -1: no new line available; >=0: new line
-				int c;						// temporary variable to read in single characters
-				while((c = dataReader.read()) != -1) {
-					lineEnd++;
-					inputData[lineEnd] = (char)c;
-					if((char)c == '\n')		// end of line ...
-						break;				// ... line readin finished
-					if(lineEnd >= INPUT_DATA_SIZE-1) {
-						errorCode = -3;
-						break;
-					}
-				}
-				if((lineEnd == -1) || (errorCode < 0))		// if lineEnd == -1: end of file reached
-					break;
-				if(testForSampleLine(inputData, lineEnd) != 0)
-					numberOfSamples++;
-			} while(true);
 			dataReader.close();
-			if(errorCode < 0)
-				return errorCode;
-			
-			// allocate trajectory variables with the number of samples
-			table.allocateArrayMemory(numberOfSamples);
 			
-			// set callsign and icao24 to null (in case a new trajectory is read in)
-			callsign = null;
-			icao24 = null;
-
-
-			// readIn Samples from the Reader (similar readin-algorithm like above)
-			// dataReader.reset() does not work with FileReader-class, instead re-instanciation of Reader-object
-			dataReader = null;
-			switch(inputDataType) {
-			case FILE:
-				dataReader = new FileReader(dataSource);
-				break;
-			case STRING:
-				dataReader = new StringReader(dataSource);
-				break;
-			default:
-				errorCode = -7;
+			if(errorCode == -3) {
+				setFlightIdentity(null, null);
+				table.freeArrayMemory();
 				return errorCode;
 			}
 			
-			int currentSampleIndex = 0;
-			String lineString;
-			do {
-				lineEnd = -1;				// -1: no new line available; >=0: new line
-				int c;						// temporary variable to read in single characters
-				while((c = dataReader.read()) != -1) {
-					lineEnd++;
-					inputData[lineEnd] = (char)c;
-					if((char)c == '\n')
-						break;
-					if(lineEnd >= INPUT_DATA_SIZE-1) {
-						errorCode = -3;
-						break;
-					}
-				}
-				if((lineEnd == -1) || (errorCode < 0))		// if lineEnd == -1: end of file reached
-					break;
-				int sampleLineFormat;
-				if((sampleLineFormat = testForSampleLine(inputData, lineEnd)) != 0) {
-					int valueIndexOffset = 0;
-					if(sampleLineFormat == 1)		// Impala-Shell / PuTTY format
-						valueIndexOffset = 1;
-
-					lineString = new String(inputData, 0, lineEnd);
-					lineString = lineString.replace(" ", "");
-					lineString = lineString.replace('|', ';');		// String.split(String) will not work with '|' and "|" has false meaning, so '|' needs to be replaced by another unique expression (';' chosen)
-					String[] lineElements = lineString.split(";");
-
-					try {
-						table.time[currentSampleIndex] = Integer.parseInt(lineElements[0+valueIndexOffset]);
-					} catch(NumberFormatException e) {
-						errorCode = -4;			// number of samples already set within the allocated memory (if a sample is not valid, whole trajectory data will be lost at this point --> fatal error)
-						break;
-					}
-
-					if(icao24 == null)
-						icao24 = lineElements[1+valueIndexOffset];
-					else
-						if(!lineElements[1+valueIndexOffset].equals(icao24))
-							errorCode = 1;
-
-					if(!parseDoubleSample(lineElements[2+valueIndexOffset], table.lat, table.vaLat, currentSampleIndex))
-						errorCode = 1000+2;
-					if(!parseDoubleSample(lineElements[3+valueIndexOffset], table.lon, table.vaLon, currentSampleIndex))
-						errorCode = 1000+3;
-					if(!parseDoubleSample(lineElements[4+valueIndexOffset], table.velocity, table.vaVelocity, currentSampleIndex))
-						errorCode = 1000+4;
-					if(!parseDoubleSample(lineElements[5+valueIndexOffset], table.heading, table.vaHeading, currentSampleIndex))
-						errorCode = 1000+5;
-					if(!parseDoubleSample(lineElements[6+valueIndexOffset], table.vertRate, table.vaVertRate, currentSampleIndex))
-						errorCode = 1000+6;
-
-					if(callsign == null)
-						callsign = lineElements[7+valueIndexOffset];
-					else
-						if(!lineElements[7+valueIndexOffset].equals(callsign))
-							errorCode = 2;
-
-					parseBooleanSample(lineElements[8+valueIndexOffset], table.onGround, table.vaOnGround, currentSampleIndex);
-					parseBooleanSample(lineElements[9+valueIndexOffset], table.alert, table.vaAlert, currentSampleIndex);
-					parseBooleanSample(lineElements[10+valueIndexOffset], table.spi, table.vaSpi, currentSampleIndex);
-
-					if(!parseIntSample(lineElements[11+valueIndexOffset], table.squawk, table.vaSquawk, currentSampleIndex))
-						errorCode = 1000+11;
-
-					if(!parseDoubleSample(lineElements[12+valueIndexOffset], table.baroAlt, table.vaBaroAlt, currentSampleIndex))
-						errorCode = 1000+12;
-					if(!parseDoubleSample(lineElements[13+valueIndexOffset], table.geoAltitude, table.vaGeoAltitude, currentSampleIndex))
-						errorCode = 1000+13;
-					if(!parseDoubleSample(lineElements[14+valueIndexOffset], table.lastPosUpdate, table.vaLastPosUpdate, currentSampleIndex))
-						errorCode = 1000+14;
-					if(!parseDoubleSample(lineElements[15+valueIndexOffset], table.lastContact, table.vaLastContact, currentSampleIndex))
-						errorCode = 1000+15;
-
-					currentSampleIndex++;
-				}
-			} while(errorCode >= 0);
+			errorCode = tableBuilder.errorCode;
 			
-			dataReader.close();
+			if((lazyChannelLoader != null) && tableBuilder.lazyColumnMapChanged)		// (log with different header lines: read in again with all channels)
+				return readInInterfaceData(lazyChannelLoader.openReader(), null);
 		} catch(FileNotFoundException e) {
 			errorCode = -1;
 		} catch(IOException e) {
 			errorCode = -2;
 		}
 		
+		tableBuilder.trimTable();
+		table = tableBuilder.table;
+		callsign = tableBuilder.callsign;
+		icao24 = tableBuilder.icao24;
+		droppedDuplicateRowCount = tableBuilder.droppedDuplicateRowCount;
+		if(lazyChannelLoader != null) {
+			lazyChannelLoader.setColumnMap(tableBuilder.lazyColumnMap);
+			this.lazyChannelLoader = lazyChannelLoader;
+		}
+		
+		return completeReadIn(errorCode);
+	}
+	
+	/**
+	 * Takes over a table built up by a SampleTableBuilder (e.g. one flight of a log with multiple flights, see class TrajectoryDemultiplexer) as trajectory.
+	 * @param tableBuilder SampleTableBuilder containing the samples of the trajectory
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	int readInTable(SampleTableBuilder tableBuilder) {
+		lazyChannelLoader = null;
+		lazyChannelsErrorCode = 0;
+		tableBuilder.trimTable();
+		table = tableBuilder.table;
+		callsign = tableBuilder.callsign;
+		icao24 = tableBuilder.icao24;
+		droppedDuplicateRowCount = tableBuilder.droppedDuplicateRowCount;
+		
+		return completeReadIn(tableBuilder.errorCode);
+	}
+	
+	/**
+	 * Completes a read-in: checks for icao24 and callsign, sorts the samples by time and frees the table in case of a fatal error.
+	 * @param errorCode Error code of the read-in so far
+	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
+	 */
+	private int completeReadIn(int errorCode) {
 		if(icao24 == null)			// no table structure with icao24 found
 			errorCode = -5;
 		if(callsign == null)		// no table structure with callsign found
@@ -246,10 +628,13 @@ public class TrajectoryStateVectorsData4 {
 					errorCode = 2000 + timeSortErrorCode;
 			}
 		}
+		if(errorCode >= 0)
+			setFlightIdentity(icao24, callsign);		// (callsign is interned)
 		
 		if(errorCode < 0) {
-			callsign = null;
-			icao24 = null;
+			setFlightIdentity(null, null);
+			droppedDuplicateRowCount = 0;
+			lazyChannelLoader = null;
 			
 			// set trajectory table variables memory free:
 			table.freeArrayMemory();
@@ -259,199 +644,177 @@ public class TrajectoryStateVectorsData4 {
 	}
 	
 	/**
-	 * Function to test data-string-line if it contains a data-sample
-	 * @param inputData Char-Array of data-string
-	 * @param lineEnd Line-end information
-	 * @return Result: 0: no data-sample, else: identified format of data-string
+	 * Sets icao24 and callsign with their compact representations (see class FlightIdentity); callsign is replaced by its interned String-object of callsignTable (if set)
+	 * @param icao24 Icao24 (null: not available)
+	 * @param callsign Callsign (null: not available)
 	 */
-	private int testForSampleLine(char[] inputData, int lineEnd) {
-		// return value: 
-		// 0: not a line containing a data-sample
-		// 1: Impala-Shell / PuTTY format
-		// 2: Trino format
-		
-		if(lineEnd < 13)
-			return 0;
-
-		// check for Impala-Shell / PuTTY format syntax ...
-		if(inputData[0] == '|')			// potential line with sample starts with '|'
-			if(inputData[2] != 't')		// header line starts with "time" at char[2] --> skip this line
-				return 1;
-		// ... check for Impala-Shell / PuTTY format syntax
-
-		// check for Trino format syntax ...
-		if(inputData[0] == ' ')			// potential line with sample starts with ' '
-			if((inputData[1] >= '0') && (inputData[1] <= '9'))		// time-value should start at char[1]
-				if(inputData[12] == '|')			// check for value-separator at char[12]
-					return 2;
-		// ... check for Trino format syntax
-		
-		return 0;
-	}
-
-	/**
-	 * Parses double from String (lineElement) and saves result within Array (value[valueIndex]) and indicates availability of value (va[valueIndex])
-	 * @param lineElement String of line-element to parse
-	 * @param value Value-array to store value
-	 * @param va Va-array indicating if a value is available within the value-array
-	 * @param valueIndex Index within arrays value and va to store result
-	 * @return Status; true: success; false: error (String not "NULL" and parsing of value not successful)
-	 */
-	private boolean parseDoubleSample(String lineElement, double[] value, boolean[] va, int valueIndex) {
-		if(lineElement.equals("NULL"))
-			va[valueIndex] = false;
-		else {
-			va[valueIndex] = true;
-			try {
-				value[valueIndex] = Double.parseDouble(lineElement);
-			} catch(NumberFormatException e) {
-				va[valueIndex] = false;
-				return false;
-			}
-		}
-		return true;
-	}
-	/**
-	 * Parses integer from String (lineElement) and saves result within Array (value[valueIndex]) and indicates availability of value (va[valueIndex])
-	 * @param lineElement String of line-element to parse
-	 * @param value Value-array to store value
-	 * @param va Va-array indicating if a value is available within the value-array
-	 * @param valueIndex Index within arrays value and va to store result
-	 * @return Status; true: success; false: error (String not "NULL" and parsing of value not successful)
-	 */
-	private boolean parseIntSample(String lineElement, int[] value, boolean[] va, int valueIndex) {
-		if(lineElement.equals("NULL"))
-			va[valueIndex] = false;
-		else {
-			va[valueIndex] = true;
-			try {
-				value[valueIndex] = Integer.parseInt(lineElement);
-			} catch(NumberFormatException e) {
-				va[valueIndex] = false;
-				return false;
-			}
+	void setFlightIdentity(String icao24, String callsign) {
+		this.icao24 = icao24;
+		packedIcao24 = FlightIdentity.packIcao24(icao24);
+		if(callsignTable == null) {
+			callsignId = FlightIdentity.NO_CALLSIGN_ID;
+			this.callsign = callsign;
+		} else {
+			callsignId = callsignTable.intern(callsign);
+			this.callsign = callsignTable.getCallsign(callsignId);
 		}
-		return true;
 	}
+	
 	/**
-	 * Parses boolean from String (lineElement) and saves result within Array (value[valueIndex]) and indicates availability of value (va[valueIndex])
-	 * @param lineElement String of line-element to parse
-	 * @param value Value-array to store value
-	 * @param va Va-array indicating if a value is available within the value-array
-	 * @param valueIndex Index within arrays value and va to store result
+	 * Removes exact duplicate rows (see class DuplicateRowFilter) from table (the first row is kept) and adds their number to droppedDuplicateRowCount
 	 */
-	private void parseBooleanSample(String lineElement, boolean[] value, boolean[] va, int valueIndex) {
-		switch(lineElement) {
-		case "true":
-			va[valueIndex] = true;
-			value[valueIndex] = true;
-			break;
-		case "false":
-			va[valueIndex] = true;
-			value[valueIndex] = false;
-			break;
-		default:
-			va[valueIndex] = false;
-			break;
-		}
+	private void removeDuplicateRows() {
+		int numberOfSamples = table.time.length;
+		DuplicateRowFilter duplicateRowFilter = new DuplicateRowFilter(numberOfSamples);
+		int[] indexesKept = new int[numberOfSamples];
+		int numberOfSamplesKept = 0;
+		for(int i=0; i<numberOfSamples; i++)
+			if(duplicateRowFilter.addRow(table, i))
+				indexesKept[numberOfSamplesKept++] = i;
+		if(numberOfSamplesKept == numberOfSamples)
+			return;
+		
+		TableStateVectorsData4 tableWithDuplicates = table;
+		table = new TableStateVectorsData4();
+		table.pipelineChannelsOnly = tableWithDuplicates.pipelineChannelsOnly;
+		table.allocateArrayMemory(numberOfSamplesKept);
+		table.copyTableLines(tableWithDuplicates, indexesKept, numberOfSamplesKept);
+		droppedDuplicateRowCount += numberOfSamples-numberOfSamplesKept;
 	}
 	
 	/**
-	 * Sorts the samples-table within table by time-channel
+	 * Sorts the samples-table within table by time-channel (stable: samples with equal timestamps keep their order) and handles samples with equal timestamps according to duplicateTimestampPolicy
 	 * @return Error code; <0: fatal error; 0: successful; >0: soft error (data available, but maybe not complete)
 	 */
 	private int sortSamplesByTime() {
 		int errorCode = 0;
 		// errorCode return success or error of time-sorting function
 		// 0: success
-		// fatal errors (no data available)
-		// -1: input and output vector length not equal
 		// soft errors (data available, but maybe not complete)
 		// 1: double time values
 		
-		TableStateVectorsData4 tableUnsorted = table;			// local variable to temporary store unsorted trajectory-table
-		
-		table = new TableStateVectorsData4();					// global table will be reset, to later copy values in time-sorted order
-		table.allocateArrayMemory(tableUnsorted.time.length);	// same table-size than before (no new samples and no samples will be skipped)
-
-		ArrayList<Integer> timeUnsortedArray = new ArrayList<Integer>();		// ArrayList of time-vector from trajectory-table (entrys will be picked and removed from this ArrayList in sorted order)
-		ArrayList<Integer> indexesUnsortedArray = new ArrayList<Integer>();		// ArrayList of index/line-number from trajectory-table (entrys will be picked and removed from this ArrayList simultaneously to timeUnsortedArray)
-		
-		for(int i=0; i<tableUnsorted.time.length; i++) {
-			timeUnsortedArray.add(tableUnsorted.time[i]);
-			indexesUnsortedArray.add(i);
-		}
+		int[] time = table.time;
+		int numberOfSamples = time.length;
 		
-		ArrayList<Integer> indexesSorted = new ArrayList<Integer>();			// ArrayList with the list of time-sorted indexes (used to copy the trajectory-table-lines in time-sorted order afterwards)
-		
-		// copy indexes from indexesUnsortedArray to indexesSorted in time-sorted order ...
-		int nextSmallestTimeIndex;
-		for(; timeUnsortedArray.size()>0;) {
-			nextSmallestTimeIndex = 0;
-			for(int currentIndex=1; currentIndex<timeUnsortedArray.size(); currentIndex++) {
-				if((int)timeUnsortedArray.get(currentIndex) <= (int)timeUnsortedArray.get(nextSmallestTimeIndex)) {
-					if((int)timeUnsortedArray.get(currentIndex) == (int)timeUnsortedArray.get(nextSmallestTimeIndex)) {
-						// (double timestamp within the trajetory-table found)
-						errorCode = 1;
-						continue;
-					}
-					nextSmallestTimeIndex = currentIndex;
-				}
+		// check if samples are already sorted (usual case) ...
+		boolean sorted = true;
+		for(int i=1; i<numberOfSamples; i++) {
+			if(time[i] < time[i-1]) {
+				sorted = false;
+				break;
 			}
-			indexesSorted.add((int)indexesUnsortedArray.get(nextSmallestTimeIndex));
-			timeUnsortedArray.remove(nextSmallestTimeIndex);
-			indexesUnsortedArray.remove(nextSmallestTimeIndex);
+			if(time[i] == time[i-1])
+				errorCode = 1;			// (double timestamp within the trajetory-table found)
 		}
-		// ... finished
+		if(sorted && (errorCode == 0))
+			return errorCode;
+		// ... check if samples are already sorted
 		
-		// copy table-lines from tableUnsorted to table in time-sorted order: 
-		for(int i=0; i<indexesSorted.size(); i++) {
-			nextSmallestTimeIndex = (int)indexesSorted.get(i);
-			table.copyTableLine(tableUnsorted, nextSmallestTimeIndex, i);
+		// determine time-sorted indexes (permutation) ...
+		int[] indexesSorted = new int[numberOfSamples];
+		if(sorted) {
+			for(int i=0; i<numberOfSamples; i++)
+				indexesSorted[i] = i;
+		} else {
+			// sort keys of time (upper 32 bit) and index (lower 32 bit): samples with equal timestamps keep their order
+			long[] keys = new long[numberOfSamples];
+			for(int i=0; i<numberOfSamples; i++)
+				keys[i] = ((long)time[i] << 32) | i;
+			Arrays.sort(keys);
+			for(int i=0; i<numberOfSamples; i++) {
+				indexesSorted[i] = (int)keys[i];
+				if((i > 0) && ((int)(keys[i] >> 32) == (int)(keys[i-1] >> 32)))
+					errorCode = 1;		// (double timestamp within the trajetory-table found)
+			}
 		}
+		// ... determine time-sorted indexes
 		
-		if(table.time.length != tableUnsorted.time.length)
-			errorCode = -1;
+		int numberOfSortedSamples = numberOfSamples;
+		if((errorCode == 1) && (duplicateTimestampPolicy != DuplicateTimestampPolicy.KEEP_ALL))
+			numberOfSortedSamples = removeDuplicateTimestamps(indexesSorted);
 		
-		tableUnsorted.freeArrayMemory();
-		tableUnsorted = null;
-		System.gc();
+		// copy table-lines from tableUnsorted to table in time-sorted order (column by column): 
+		TableStateVectorsData4 tableUnsorted = table;
+		table = new TableStateVectorsData4();
+		table.pipelineChannelsOnly = tableUnsorted.pipelineChannelsOnly;
+		table.lazyChannels = tableUnsorted.lazyChannels;
+		table.allocateArrayMemory(numberOfSortedSamples);
+		table.copyTableLines(tableUnsorted, indexesSorted, numberOfSortedSamples);
 		
 		return errorCode;
 	}
 	
+	/**
+	 * Removes indexes of samples with equal timestamps from time-sorted indexes according to duplicateTimestampPolicy
+	 * @param indexesSorted Time-sorted indexes of table (kept indexes are moved to the beginning of the array)
+	 * @return Number of kept indexes
+	 */
+	private int removeDuplicateTimestamps(int[] indexesSorted) {
+		int[] time = table.time;
+		int numberOfKeptIndexes = 0;
+		int groupStart = 0;
+		while(groupStart < indexesSorted.length) {
+			// samples with equal timestamps: indexesSorted[groupStart] to indexesSorted[groupEnd-1]
+			int groupEnd = groupStart+1;
+			while((groupEnd < indexesSorted.length) && (time[indexesSorted[groupEnd]] == time[indexesSorted[groupStart]]))
+				groupEnd++;
+			
+			if(groupEnd-groupStart == 1)
+				indexesSorted[numberOfKeptIndexes++] = indexesSorted[groupStart];
+			else
+				switch(duplicateTimestampPolicy) {
+				case KEEP_FIRST:
+					indexesSorted[numberOfKeptIndexes++] = indexesSorted[groupStart];
+					break;
+				case KEEP_LAST:
+					indexesSorted[numberOfKeptIndexes++] = indexesSorted[groupEnd-1];
+					break;
+				case DROP:
+					break;
+				default:
+					for(int i=groupStart; i<groupEnd; i++)
+						indexesSorted[numberOfKeptIndexes++] = indexesSorted[i];
+				}
+			
+			groupStart = groupEnd;
+		}
+		return numberOfKeptIndexes;
+	}
+	
 	public double[][] getDoubleTableMatrix() {
+		materializeChannels(ALL_CHANNELS);
 		double[][] tableMatrix = new double[table.time.length][14];
+		boolean allChannels = !table.pipelineChannelsOnly;		// (channels not read in are NaN)
 		
 		for(int i=0; i<table.time.length; i++) {
 			tableMatrix[i][0] = (double)(table.time[i]);
 
-			if(table.vaLat[i])
+			if(ValidityMask.get(table.vaLat, i))
 				tableMatrix[i][1] = (double)(table.lat[i]);
 			else
 				tableMatrix[i][1] = Double.NaN;
 
-			if(table.vaLon[i])
+			if(ValidityMask.get(table.vaLon, i))
 				tableMatrix[i][2] = (double)(table.lon[i]);
 			else
 				tableMatrix[i][2] = Double.NaN;
 
-			if(table.vaVelocity[i])
+			if(allChannels && ValidityMask.get(table.vaVelocity, i))
 				tableMatrix[i][3] = (double)(table.velocity[i]);
 			else
 				tableMatrix[i][3] = Double.NaN;
 
-			if(table.vaHeading[i])
+			if(allChannels && ValidityMask.get(table.vaHeading, i))
 				tableMatrix[i][4] = (double)(table.heading[i]);
 			else
 				tableMatrix[i][4] = Double.NaN;
 
-			if(table.vaVertRate[i])
+			if(allChannels && ValidityMask.get(table.vaVertRate, i))
 				tableMatrix[i][5] = (double)(table.vertRate[i]);
 			else
 				tableMatrix[i][5] = Double.NaN;
 
-			if(table.vaOnGround[i])
+			if(allChannels && ValidityMask.get(table.vaOnGround, i))
 				if(table.onGround[i])
 					tableMatrix[i][6] = (double)(1);
 				else
@@ -459,7 +822,7 @@ public class TrajectoryStateVectorsData4 {
 			else
 				tableMatrix[i][6] = Double.NaN;
 
-			if(table.vaAlert[i])
+			if(allChannels && ValidityMask.get(table.vaAlert, i))
 				if(table.alert[i])
 					tableMatrix[i][7] = (double)(1);
 				else
@@ -467,7 +830,7 @@ public class TrajectoryStateVectorsData4 {
 			else
 				tableMatrix[i][7] = Double.NaN;
 
-			if(table.vaSpi[i])
+			if(allChannels && ValidityMask.get(table.vaSpi, i))
 				if(table.spi[i])
 					tableMatrix[i][8] = (double)(1);
 				else
@@ -475,27 +838,27 @@ public class TrajectoryStateVectorsData4 {
 			else
 				tableMatrix[i][8] = Double.NaN;
 
-			if(table.vaSquawk[i])
+			if(allChannels && ValidityMask.get(table.vaSquawk, i))
 				tableMatrix[i][9] = (double)(table.squawk[i]);
 			else
 				tableMatrix[i][9] = Double.NaN;
 
-			if(table.vaBaroAlt[i])
+			if(ValidityMask.get(table.vaBaroAlt, i))
 				tableMatrix[i][10] = (double)(table.baroAlt[i]);
 			else
 				tableMatrix[i][10] = Double.NaN;
 
-			if(table.vaGeoAltitude[i])
+			if(allChannels && ValidityMask.get(table.vaGeoAltitude, i))
 				tableMatrix[i][11] = (double)(table.geoAltitude[i]);
 			else
 				tableMatrix[i][11] = Double.NaN;
 
-			if(table.vaLastPosUpdate[i])
+			if(ValidityMask.get(table.vaLastPosUpdate, i))
 				tableMatrix[i][12] = (double)(table.lastPosUpdate[i]);
 			else
 				tableMatrix[i][12] = Double.NaN;
 
-			if(table.vaLastContact[i])
+			if(ValidityMask.get(table.vaLastContact, i))
 				tableMatrix[i][13] = (double)(table.lastContact[i]);
 			else
 				tableMatrix[i][13] = Double.NaN;
@@ -12,6 +12,8 @@ import de.tu_bs.iff.adsb.dataparser.cosmath.CosMath;
 public class TrajectoryVertical {
 	public String callsign = null;
 	public String icao24 = null;
+	public int packedIcao24 = FlightIdentity.NO_ICAO24;			// (see class FlightIdentity)
+	public int callsignId = FlightIdentity.NO_CALLSIGN_ID;		// (see class FlightIdentity)
 	
 	private ArrayList<int[]> cruiseIndices;
 	private ArrayList<int[]> levelIndices;
@@ -26,9 +28,42 @@ public class TrajectoryVertical {
 	
 	public TableVertical tableRaw = new TableVertical();	// table for initial trajectory
 	
+	private RetainedSampleIndex retainedSamples = null;		// retained samples of table (built when parsing finishes; see interpolateBaroAlt())
+	private double[] retainedBaroAlt = null;				// baroAlt of the retained samples
+	
+	public static final int DEFAULT_MEDIAN_FILTER_WINDOW_SIZE = 11;
+	public int medianFilterWindowSize = DEFAULT_MEDIAN_FILTER_WINDOW_SIZE;		// number of samples within the window of the moving median filter of baroAlt (odd)
+	
+	/**
+	 * Algorithm of the filtration of redundant (interpolation) baroAlt samples (see parseTrajectory(boolean filterRedundantInterpolationSamples))
+	 */
+	public enum RedundancyFilterMode {
+		TOP_DOWN,		// within each flight phase, the sample with maximum interpolation deviation is kept until all samples are within the band (O(n^2) for long phases)
+		SWING			// streaming: segments are extended as long as a line from the last kept sample keeps all samples within the band (feasible-slope cone, linear in practice)
+	}
+	public RedundancyFilterMode redundancyFilterMode = RedundancyFilterMode.TOP_DOWN;
+	
 	public TrajectoryVertical() {
 	}
 	
+	/**
+	 * Sets the algorithm of the filtration of redundant (interpolation) baroAlt samples (has to be set before parseTrajectory() is called; default: TOP_DOWN). 
+	 * Both algorithms keep all samples within the band of +-26 ft around the linear interpolation between kept samples. 
+	 * @param redundancyFilterMode Algorithm of the filtration
+	 */
+	public void setRedundancyFilterMode(RedundancyFilterMode redundancyFilterMode) {
+		this.redundancyFilterMode = redundancyFilterMode;
+	}
+	
+	/**
+	 * Sets the window of the moving median filter of baroAlt (has to be set before parseTrajectory() is called; default: DEFAULT_MEDIAN_FILTER_WINDOW_SIZE). 
+	 * Wider windows (e.g. 31 or 61) suppress more noise of the altitude data. 
+	 * @param medianFilterWindowSize Number of samples within the window (odd; an even number is reduced by one)
+	 */
+	public void setMedianFilterWindowSize(int medianFilterWindowSize) {
+		this.medianFilterWindowSize = medianFilterWindowSize;
+	}
+	
 	public String getCallsign() {
 		return callsign;
 	}
@@ -104,33 +139,33 @@ public class TrajectoryVertical {
 	public int setRawTrajectoryFromStateVectorsData4(TrajectoryStateVectorsData4 sourceTrajectory) {
 		if(sourceTrajectory.table.time == null)
 			return -1;
+		if(sourceTrajectory.materializeChannels(TrajectoryStateVectorsData4.VERTICAL_CHANNELS) < 0)		// (read-in with lazy channels)
+			return -1;
 		
-		// obtain number of samples, which contain (va = true): velocity, vertRate, squawk, baroAlt, lastContact: 
-		int numberOfApplicableSamples = 0;
-		for(int i=0; i<sourceTrajectory.table.time.length; i++)
-			if(sourceTrajectory.table.vaBaroAlt[i])
-				if(sourceTrajectory.table.vaLastContact[i])
-					numberOfApplicableSamples++;
+		// obtain samples (and their number), which contain (va = true): baroAlt, lastContact: 
+		long[] vaApplicable = ValidityMask.and(sourceTrajectory.table.vaBaroAlt, sourceTrajectory.table.vaLastContact);
+		int numberOfApplicableSamples = ValidityMask.cardinality(vaApplicable);
 		
 		// allocate trajectory variables with the number of samples
-		tableRaw.allocateArrayMemory(numberOfApplicableSamples);
-		
-		// set callsign and icao24
-		callsign = new String(sourceTrajectory.callsign);
-		icao24 = new String(sourceTrajectory.icao24);
+		// (time of tableRaw is decoded from the compact column of sourceTrajectory, built once and shared with TrajectoryHorizontal, instead of being converted from the int[] time of sourceTrajectory)
+		CompactTimeColumn compactTime = sourceTrajectory.getCompactTime();
+		tableRaw.allocateArrayMemory(numberOfApplicableSamples, compactTime, (numberOfApplicableSamples == compactTime.size()) ? null : vaApplicable);
+		
+		// set callsign and icao24 (shared with sourceTrajectory, callsign is interned)
+		callsign = sourceTrajectory.callsign;
+		icao24 = sourceTrajectory.icao24;
+		callsignId = sourceTrajectory.callsignId;
+		packedIcao24 = sourceTrajectory.packedIcao24;
 
 		// get applicable Samples from sourceTrajectory
 		int currentTableRawIndex = 0;
-		for(int i=0; i<sourceTrajectory.table.time.length; i++)
-			if(sourceTrajectory.table.vaBaroAlt[i])
-				if(sourceTrajectory.table.vaLastContact[i]) {
-					tableRaw.time[currentTableRawIndex] = (double)sourceTrajectory.table.time[i];		// (tableRaw.time is double[], whereas sourceTrajectory.table.time is int[])
-					tableRaw.baroAlt[currentTableRawIndex] = sourceTrajectory.table.baroAlt[i];
-					tableRaw.lastContact[currentTableRawIndex] = sourceTrajectory.table.lastContact[i];
-					tableRaw.vaSample[currentTableRawIndex] = true;
-					tableRaw.vrSample[currentTableRawIndex] = false;
-					currentTableRawIndex++;
-				}
+		for(int i=ValidityMask.nextSetBit(vaApplicable, 0); i>=0; i=ValidityMask.nextSetBit(vaApplicable, i+1)) {
+			tableRaw.baroAlt[currentTableRawIndex] = sourceTrajectory.table.baroAlt[i];
+			tableRaw.lastContact[currentTableRawIndex] = sourceTrajectory.table.lastContact[i];
+			tableRaw.vaSample[currentTableRawIndex] = true;
+			tableRaw.vrSample[currentTableRawIndex] = false;
+			currentTableRawIndex++;
+		}
 		return 0;
 	}
 	
@@ -145,6 +180,8 @@ public class TrajectoryVertical {
 		
 		convertBaroAltToFeet(tableRaw);
 		
+		retainedSamples = null;
+		retainedBaroAlt = null;
 		table.allocateArrayMemory(tableRaw.time.length);
 		// copy trajectory-data from tableRaw to table; only content of table will be changed during parsing afterwards: 
 		for(int i=0; i<table.time.length; i++) {
@@ -159,7 +196,7 @@ public class TrajectoryVertical {
 		filterRedundantSamples(table, table.lastContact);
 		
 		// Filter BaroAlt with moving median
-		filterMovingMedianBaroAlt(table, /*halfWindowSize*/(int)5);
+		filterMovingMedianBaroAlt(table, /*halfWindowSize*/Math.max(0, (medianFilterWindowSize-1)/2));
 		
 		// Identification of cruise segments
 		cruiseIndices = determineCruiseIndices(table, /*altitudeDeviationMargin*/(double)76, /*minSegmentSampleCount*/(int)30);
@@ -201,8 +238,15 @@ public class TrajectoryVertical {
 		cutTrajectoryBeginning(/*todDepartureRatio*/(double)0.3, /*maxDepartureAltitude*/(double)10000, /*lowReliabilityThreshold*/(double)0.2, /*maxLowReliabilityTime*/(double)8*60);
 
 		// Filter redundant baroAlt samples (if requested)
-		if(filterRedundantInterpolationSamples)
-			filterRedundantInterpolationSamples(table, verticalFlightPhases, /*baroAltThreshold*/(double)26);
+		if(filterRedundantInterpolationSamples) {
+			if(redundancyFilterMode == RedundancyFilterMode.SWING)
+				filterRedundantInterpolationSamplesSwing(table, verticalFlightPhases, /*baroAltThreshold*/(double)26);
+			else
+				filterRedundantInterpolationSamples(table, verticalFlightPhases, /*baroAltThreshold*/(double)26);
+		}
+		
+		// Compact the retained samples for interpolation
+		buildRetainedSamples();
 		
 		return 0;
 	}
@@ -268,30 +312,100 @@ public class TrajectoryVertical {
 		return descentTimestamps;
 	}
 
+	private void buildRetainedSamples() {
+		retainedSamples = new RetainedSampleIndex(table.time, table.vaSample, table.vrSample);
+		retainedBaroAlt = new double[retainedSamples.size()];
+		for(int i=0; i<retainedBaroAlt.length; i++)
+			retainedBaroAlt[i] = table.baroAlt[retainedSamples.tableIndexes[i]];
+	}
+	
+	/**
+	 * Returns a cursor for interpolateBaroAlt(double timestamp, RetainedSampleIndex.Cursor cursor), e.g. for interpolation at all timestamps of a merged trajectory. 
+	 * @return Cursor
+	 */
+	public RetainedSampleIndex.Cursor createInterpolationCursor() {
+		if(retainedSamples == null)
+			buildRetainedSamples();
+		return retainedSamples.cursor();
+	}
+	
+	/**
+	 * Interpolates baroAlt linearly between the retained samples (binary search). 
+	 * @param timestamp Timestamp [s]
+	 * @return Interpolated baroAlt [ft]; Double.MAX_VALUE if timestamp lies outside the channel-window
+	 */
 	public double interpolateBaroAlt(double timestamp) {
-		int leftIndex = -1;
-		int rightIndex = -1;
-		
-		// Determine left and right index within array ...
-		for(int i=0; i<table.vaSample.length; i++) {
-			if(!table.vaSample[i] || table.vrSample[i])
-				continue;
-			if(table.time[i] >= timestamp) {
-				rightIndex = i;
+		if(retainedSamples == null)
+			buildRetainedSamples();
+		return interpolateRetainedBaroAlt(retainedSamples.findRightIndex(timestamp), timestamp, Double.MAX_VALUE);
+	}
+	
+	/**
+	 * Interpolates baroAlt linearly between the retained samples; for sequences of non-decreasing timestamps, the cursor only moves forward (linear in the number of samples and timestamps). 
+	 * @param timestamp Timestamp [s]
+	 * @param cursor Cursor of this trajectory (see createInterpolationCursor())
+	 * @return Interpolated baroAlt [ft]; Double.MAX_VALUE if timestamp lies outside the channel-window
+	 */
+	public double interpolateBaroAlt(double timestamp, RetainedSampleIndex.Cursor cursor) {
+		return interpolateRetainedBaroAlt(cursor.findRightIndex(timestamp), timestamp, Double.MAX_VALUE);
+	}
+	
+	/**
+	 * Interpolates baroAlt linearly between the retained samples for many timestamps (e.g. query timestamps of simulations): the timestamps are merged with the retained samples in one pass. 
+	 * Unsorted timestamps are merged in sorted order through an index permutation (see RetainedSampleIndex.sortedOrder()), if the trajectory has more retained samples than timestamps; otherwise each of them is looked up by binary search. 
+	 * @param timestamps Timestamps [s] (in any order)
+	 * @param out Array for the interpolated baroAlt [ft] (length at least timestamps.length; out[i] belongs to timestamps[i]); Double.NaN if the timestamp lies outside the channel-window or is NaN
+	 * @return Error code; -1: out shorter than timestamps; 0: successful
+	 */
+	public int interpolateBaroAlt(double[] timestamps, double[] out) {
+		if(out.length < timestamps.length)
+			return -1;
+		if(retainedSamples == null)
+			buildRetainedSamples();
+		RetainedSampleIndex.Cursor cursor = retainedSamples.cursor();
+		
+		boolean sorted = true;
+		for(int i=1; i<timestamps.length; i++)
+			if(!(timestamps[i-1] <= timestamps[i])) {		// (also true for NaN)
+				sorted = false;
 				break;
 			}
-			leftIndex = i;
+		
+		if(sorted) {
+			for(int i=0; i<timestamps.length; i++)
+				out[i] = interpolateRetainedBaroAlt(cursor.findRightIndex(timestamps[i]), timestamps[i], Double.NaN);
+			return 0;
+		}
+		
+		if(retainedSamples.size() <= timestamps.length) {
+			// (sorting the timestamps, O(n log n), costs more than a binary search per timestamp, O(n log m))
+			for(int i=0; i<timestamps.length; i++)
+				out[i] = interpolateRetainedBaroAlt(retainedSamples.findRightIndex(timestamps[i]), timestamps[i], Double.NaN);
+			return 0;
 		}
-		// ... Determine left and right index within array
 		
-		if(rightIndex == -1)						// when timestamp lies right-off the channel-window
-			return Double.MAX_VALUE;
-		if(timestamp == table.time[rightIndex])		// when timestamp lies on a sample (including first and last sample)
-			return table.baroAlt[rightIndex];
-		if(leftIndex == -1)							// when timestamp lies left-off the channel-window
-			return Double.MAX_VALUE;
+		for(int i=0; i<timestamps.length; i++)
+			out[i] = Double.NaN;
+		int[] order = RetainedSampleIndex.sortedOrder(timestamps);
+		for(int i=0; i<order.length; i++) {
+			double timestamp = timestamps[order[i]];
+			out[order[i]] = interpolateRetainedBaroAlt(cursor.findRightIndex(timestamp), timestamp, Double.NaN);
+		}
+		return 0;
+	}
+	
+	private double interpolateRetainedBaroAlt(int rightIndex, double timestamp, double outsideValue) {
+		double[] time = retainedSamples.time;
+		
+		if(rightIndex == time.length)				// when timestamp lies right-off the channel-window
+			return outsideValue;
+		if(timestamp == time[rightIndex])			// when timestamp lies on a sample (including first and last sample)
+			return retainedBaroAlt[rightIndex];
+		if(rightIndex == 0)							// when timestamp lies left-off the channel-window
+			return outsideValue;
+		int leftIndex = rightIndex-1;
 		
-		double baroAlt = table.baroAlt[leftIndex] + (table.baroAlt[rightIndex]-table.baroAlt[leftIndex])/(table.time[rightIndex]-table.time[leftIndex])*(timestamp-table.time[leftIndex]);
+		double baroAlt = retainedBaroAlt[leftIndex] + (retainedBaroAlt[rightIndex]-retainedBaroAlt[leftIndex])/(time[rightIndex]-time[leftIndex])*(timestamp-time[leftIndex]);
 		
 		return baroAlt;
 	}
@@ -516,6 +630,67 @@ public class TrajectoryVertical {
 		}
 	}
 	
+	/**
+	 * Filters redundant (interpolation) samples within each flight phase with a swing filter: starting at the last kept sample (anchor), the cone of slopes of lines 
+	 * keeping all samples behind the anchor within +-baroAltThreshold is narrowed sample by sample. A sample is a feasible end of the segment if the line from the anchor to it lies within the cone. 
+	 * If the cone becomes empty, the last feasible end is kept and becomes the next anchor (the samples behind it are scanned again). 
+	 * @param table Table to filter (vrSample is set)
+	 * @param verticalFlightPhases Flight phases (start and end of each phase are kept)
+	 * @param baroAltThreshold Maximum deviation of samples from the interpolation between kept samples [ft]
+	 */
+	private void filterRedundantInterpolationSamplesSwing(TableVertical table, ArrayList<VerticalFlightPhase> verticalFlightPhases, double baroAltThreshold) {
+		for(int i=0; i<verticalFlightPhases.size(); i++) {
+
+			int phaseStartIndex = verticalFlightPhases.get(i).startIndex;
+			int phaseEndIndex;
+			if(i<verticalFlightPhases.size()-1)
+				phaseEndIndex = verticalFlightPhases.get(i+1).startIndex;
+			else
+				phaseEndIndex = table.time.length-1;
+			// only vaSamples as levelEndIndex
+			while(!table.vaSample[phaseEndIndex])
+				phaseEndIndex--;
+			
+			// Set all middle vrSample values to true
+			for(int j=phaseStartIndex+1; j<phaseEndIndex; j++)
+				if(table.vaSample[j])
+					table.vrSample[j] = true;
+			
+			int anchorIndex = phaseStartIndex;
+			while(anchorIndex < phaseEndIndex) {
+				double minSlope = Double.NEGATIVE_INFINITY;		// cone of slopes [ft/s] of lines from the anchor keeping all samples so far within the band
+				double maxSlope = Double.POSITIVE_INFINITY;
+				int lastFeasibleIndex = -1;
+				int j;
+				for(j=anchorIndex+1; j<=phaseEndIndex; j++) {
+					if(!table.vaSample[j])
+						continue;
+					double timeDifference = table.time[j]-table.time[anchorIndex];
+					double baroAltDifference = table.baroAlt[j]-table.baroAlt[anchorIndex];
+					if(timeDifference <= 0) {
+						// (equal timestamps: no slope; sample is only feasible directly behind the anchor)
+						if(lastFeasibleIndex == -1)
+							lastFeasibleIndex = j;
+						if(Math.abs(baroAltDifference) > baroAltThreshold)
+							break;
+						continue;
+					}
+					double slope = baroAltDifference/timeDifference;
+					if((slope >= minSlope) && (slope <= maxSlope))
+						lastFeasibleIndex = j;
+					minSlope = Math.max(minSlope, (baroAltDifference-baroAltThreshold)/timeDifference);
+					maxSlope = Math.min(maxSlope, (baroAltDifference+baroAltThreshold)/timeDifference);
+					if(minSlope > maxSlope)
+						break;
+				}
+				if(lastFeasibleIndex == phaseEndIndex)		// (the end of the phase is kept in any case)
+					break;
+				table.vrSample[lastFeasibleIndex] = false;
+				anchorIndex = lastFeasibleIndex;
+			}
+		}
+	}
+	
 	private int checkMaxBaroAltInterpolationDeviation(TableVertical table, int lastRequiredIndex, double baroAltThreshold) {
 		int requiredValueIndex = -1;
 		double maxDeviation = 0;
@@ -1370,19 +1545,45 @@ public class TrajectoryVertical {
 		return levelIndices;
 	}
 	
-	private ArrayList<int[]> determineCruiseIndices(TableVertical table, double altitudeDeviationMargin, int minSegmentSampleCount) {
+	/**
+	 * Determines cruise segments: runs of valid samples within altitudeDeviationMargin around the closest cruising level (flight level) of the first sample. 
+	 * A sample outside the margin does not end the segment, if within the following 60 sec. at least 30% of the time lies between consecutive samples within the margin (gap is closed). 
+	 * For this look-ahead, the in-band indicator of each valid sample and the cumulative in-band time (time between consecutive in-band samples) are computed once for the cruising level of the segment (and kept for following segments of the same level), 
+	 * so the in-band time of a look-ahead window is the difference of two cumulative values (instead of summing up the window from each sample outside the margin). 
+	 * @param table Table (time has to be sorted)
+	 * @param altitudeDeviationMargin Margin around the cruising level [ft]
+	 * @param minSegmentSampleCount Minimum number of samples within the margin of a segment
+	 * @return Start and end index of each cruise segment
+	 */
+	ArrayList<int[]> determineCruiseIndices(TableVertical table, double altitudeDeviationMargin, int minSegmentSampleCount) {
 		ArrayList<int[]> cruiseIndices = new ArrayList<int[]>();
 		
+		// valid samples (look-ahead runs over valid samples only):
+		int[] validIndexes = new int[table.baroAlt.length];
+		int validCount = 0;
+		for(int i=0; i<table.baroAlt.length; i++)
+			if(table.vaSample[i])
+				validIndexes[validCount++] = i;
+		
+		// in-band time of cruising level inBandCruiseAltitude (computed from a start sample up to inBandComputedEnd-1; kept for following segments of the same cruising level):
+		// cumulativeInBandTime[k]: time between consecutive valid samples from the start sample up to k, which are both within the margin
+		double[] cumulativeInBandTime = new double[validCount];
+		boolean[] inBand = new boolean[validCount];
+		double inBandCruiseAltitude = Double.NaN;
+		int inBandComputedEnd = 0;
+		int lookAheadEnd = 0;		// last valid sample of the look-ahead window (not decreasing, as sample i is not decreasing)
+		
 		int segmentStartIndex = -1;
 		int segmentLastCruiseIndex = -1;
 		int segmentSampleCount = 0;
 		double segmentCruiseAltitude = 0;
 		boolean withinCruiseSegment = false;
 		
-		sampleLoop:
+		int validPosition = -1;		// position of sample i within validIndexes
 		for(int i=0; i<table.baroAlt.length; i++) {
 			if(!table.vaSample[i])
 				continue;
+			validPosition++;
 			if(i <= segmentLastCruiseIndex)		// (gap was shifted)
 				continue;
 			if(withinCruiseSegment) {
@@ -1392,25 +1593,40 @@ public class TrajectoryVertical {
 					continue;
 				} else {
 					// look ahead 60 sec.; when at least 30% is within margin, close gap
-					double timeWithinMargin = 0;
-					int previousValueIndex = -1;
-					for(int j=i+1; j<table.baroAlt.length; j++) {
-						if(!table.vaSample[j])
-							continue;
-						if(previousValueIndex == -1) {
-							previousValueIndex = j;
-							continue;
+					// (window: pairs of consecutive valid samples behind sample i, up to the first sample more than 60 sec. behind sample i)
+					int windowStart = validPosition+1;		// first valid sample behind sample i
+					if(windowStart+1 < validCount) {
+						if(lookAheadEnd < windowStart+1)
+							lookAheadEnd = windowStart+1;
+						while((lookAheadEnd < validCount-1) && !(table.time[validIndexes[lookAheadEnd]]-table.time[i] > 60))
+							lookAheadEnd++;
+						
+						// extend in-band time up to the end of the window ...
+						while(inBandComputedEnd <= lookAheadEnd) {
+							int k = inBandComputedEnd;
+							inBand[k] = Math.abs(table.baroAlt[validIndexes[k]]-segmentCruiseAltitude) <= altitudeDeviationMargin;
+							cumulativeInBandTime[k] = cumulativeInBandTime[k-1];
+							if(inBand[k-1] && inBand[k])
+								cumulativeInBandTime[k] += table.time[validIndexes[k]]-table.time[validIndexes[k-1]];
+							inBandComputedEnd++;
 						}
-						if(Math.abs(table.baroAlt[previousValueIndex]-segmentCruiseAltitude) <= altitudeDeviationMargin)
-							if(Math.abs(table.baroAlt[j]-segmentCruiseAltitude) <= altitudeDeviationMargin)
-								timeWithinMargin += table.time[j]-table.time[previousValueIndex];
-						if(timeWithinMargin >= (double)60*0.3) {
-							segmentLastCruiseIndex = j;
-							continue sampleLoop;
+						// ... extend in-band time up to the end of the window
+						
+						double timeWithinMarginThreshold = cumulativeInBandTime[windowStart] + (double)60*0.3;
+						if(cumulativeInBandTime[lookAheadEnd] >= timeWithinMarginThreshold) {
+							// first sample, at which the time within margin reaches 30% (binary search; cumulative in-band time is not decreasing):
+							int low = windowStart+1;
+							int high = lookAheadEnd;
+							while(low < high) {
+								int middle = (low+high) >>> 1;
+								if(cumulativeInBandTime[middle] >= timeWithinMarginThreshold)
+									high = middle;
+								else
+									low = middle+1;
+							}
+							segmentLastCruiseIndex = validIndexes[low];
+							continue;
 						}
-						if(table.time[j]-table.time[i] > 60)
-							break;
-						previousValueIndex = j;
 					}
 					// gap greater than 60 sec. / 30%:
 					if(segmentSampleCount >= minSegmentSampleCount)
@@ -1425,6 +1641,13 @@ public class TrajectoryVertical {
 				segmentLastCruiseIndex = i;
 				segmentSampleCount = 1;
 				withinCruiseSegment = true;
+				if((segmentCruiseAltitude != inBandCruiseAltitude) || (inBandComputedEnd <= validPosition)) {
+					// (other cruising level or computed in-band time does not reach this sample: in-band time is computed from this sample on)
+					inBandCruiseAltitude = segmentCruiseAltitude;
+					inBand[validPosition] = true;
+					cumulativeInBandTime[validPosition] = 0;
+					inBandComputedEnd = validPosition+1;
+				}
 			}
 		}
 		
@@ -1441,52 +1664,55 @@ public class TrajectoryVertical {
 			table.baroAlt[i] *= CosMath.METER_TO_FEET;
 	}
 	
-	private int filterMovingMedianBaroAlt(TableVertical table, int halfWindowSize) {
-		double[] windowValues = new double[2*halfWindowSize+1];
-		int windowSize = 0;
-		int halfCount;
+	/**
+	 * Filters baroAlt with a moving median: the median of each sample is taken over the sample itself and halfWindowSize valid samples before and behind it (less at the ends of the trajectory). 
+	 * The window slides over the valid samples (see class SlidingWindowMedian), so each valid sample is inserted and evicted once (O(n log w) instead of sorting a window for each sample). 
+	 * @param table Table to filter (baroAlt of all samples is replaced, also of invalid samples)
+	 * @param halfWindowSize Number of valid samples before and behind a sample within the window
+	 * @return Error code; 0: successful
+	 */
+	int filterMovingMedianBaroAlt(TableVertical table, int halfWindowSize) {
 		double[] channelFiltered = new double[table.baroAlt.length];
-		double sortTmpValue;
 		
+		// indexes of the valid samples (the window covers a range of them):
+		int[] validIndexes = new int[table.baroAlt.length];
+		int validCount = 0;
+		for(int i=0; i<table.baroAlt.length; i++)
+			if(table.vaSample[i])
+				validIndexes[validCount++] = i;
+		
+		// (id validCount: value of an invalid sample, which is within its own window only)
+		SlidingWindowMedian windowMedian = new SlidingWindowMedian(validCount+1, 2*halfWindowSize+2);
+		int windowStart = 0;		// window: validIndexes[windowStart] ... validIndexes[windowEnd-1]
+		int windowEnd = 0;
+		int validBefore = 0;		// number of valid samples in front of sample i
 		for(int i=0; i<table.baroAlt.length; i++) {
-			// fill windowValues ...
-			windowValues[0] = table.baroAlt[i];
-			windowSize = 1;
-			halfCount = 0;
-			for(int j=-1; halfCount<halfWindowSize; j--) {
-				if(i+j < 0)
-					break;
-				if(table.vaSample[i+j]) {
-					windowValues[windowSize] = table.baroAlt[i+j];
-					windowSize++;
-					halfCount++;
-				}
+			// move window (start and end are not decreasing) ...
+			int targetStart = Math.max(0, validBefore-halfWindowSize);
+			int targetEnd;
+			if(table.vaSample[i])
+				targetEnd = Math.min(validCount, validBefore+1+halfWindowSize);		// (sample i itself is validIndexes[validBefore])
+			else
+				targetEnd = Math.min(validCount, validBefore+halfWindowSize);
+			while(windowEnd < targetEnd) {
+				windowMedian.add(windowEnd, table.baroAlt[validIndexes[windowEnd]]);
+				windowEnd++;
 			}
-			halfCount = 0;
-			for(int j=1; halfCount<halfWindowSize; j++) {
-				if(i+j >= table.baroAlt.length)
-					break;
-				if(table.vaSample[i+j]) {
-					windowValues[windowSize] = table.baroAlt[i+j];
-					windowSize++;
-					halfCount++;
-				}
+			while(windowStart < targetStart) {
+				windowMedian.remove(windowStart);
+				windowStart++;
 			}
-			// ... fill windowValues
-			// sort windowValues ...
-			for(int j=0; j<windowSize; j++)
-				for(int k=j+1; k<windowSize; k++)
-					if(windowValues[k] < windowValues[j]) {
-						sortTmpValue = windowValues[j];
-						windowValues[j] = windowValues[k];
-						windowValues[k] = sortTmpValue;
-					}
-			// ... sort windowValues
+			// ... move window
+			
 			// set median value:
-			if(windowSize%2 == 0)
-				channelFiltered[i] = (windowValues[windowSize/2]+windowValues[windowSize/2-1])/2;
-			else
-				channelFiltered[i] = windowValues[(int)Math.round((double)windowSize/2-0.5)];
+			if(table.vaSample[i]) {
+				channelFiltered[i] = windowMedian.median();
+				validBefore++;
+			} else {
+				windowMedian.add(validCount, table.baroAlt[i]);
+				channelFiltered[i] = windowMedian.median();
+				windowMedian.remove(validCount);
+			}
 		}
 		
 		for(int i=0; i<table.baroAlt.length; i++)
@@ -0,0 +1,125 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.util.Arrays;
+
+/**
+ * Class with functions for validity masks (packed bitsets within long[]) as used for the va-channels of TableStateVectorsData4.
+ * Bit (index & 63) of mask[index >>> 6] indicates, if at sample index a value is available/valid. Bits behind the last sample are always 0.
+ */
+public class ValidityMask {
+
+	private ValidityMask() {
+	}
+
+	/**
+	 * Allocates a validity mask for numberOfSamples samples (all samples not valid)
+	 * @param numberOfSamples Number of samples
+	 * @return Validity mask
+	 */
+	public static long[] allocate(int numberOfSamples) {
+		return new long[(numberOfSamples+63) >>> 6];
+	}
+
+	/**
+	 * Returns if sample index is valid
+	 * @param mask Validity mask
+	 * @param index Sample index
+	 * @return True if the sample is valid
+	 */
+	public static boolean get(long[] mask, int index) {
+		return (mask[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets the validity of sample index
+	 * @param mask Validity mask
+	 * @param index Sample index
+	 * @param valid Validity of the sample
+	 */
+	public static void set(long[] mask, int index, boolean valid) {
+		if(valid)
+			mask[index >>> 6] |= (1L << index);
+		else
+			mask[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Copies a validity mask, the copy is truncated or padded (not valid) to numberOfSamples samples
+	 * @param mask Validity mask
+	 * @param numberOfSamples Number of samples of the copy
+	 * @return Copy of the validity mask
+	 */
+	public static long[] copyOf(long[] mask, int numberOfSamples) {
+		long[] copy = Arrays.copyOf(mask, (numberOfSamples+63) >>> 6);
+		if((numberOfSamples & 63) != 0)
+			copy[copy.length-1] &= (1L << numberOfSamples) - 1;		// clear bits behind the last sample
+		return copy;
+	}
+
+	/**
+	 * Copies the validity of numberOfSamples samples from source (beginning with sourceIndex) to destination (beginning with index)
+	 * @param source Source validity mask
+	 * @param sourceIndex Sample index of the first sample to copy from source
+	 * @param destination Destination validity mask
+	 * @param index Sample index within destination to copy the first sample to
+	 * @param numberOfSamples Number of samples to copy
+	 */
+	public static void copy(long[] source, int sourceIndex, long[] destination, int index, int numberOfSamples) {
+		int i = 0;
+		if(((sourceIndex & 63) == 0) && ((index & 63) == 0)) {
+			// aligned: copy whole words
+			int numberOfWords = numberOfSamples >>> 6;
+			System.arraycopy(source, sourceIndex >>> 6, destination, index >>> 6, numberOfWords);
+			i = numberOfWords << 6;
+		}
+		for(; i<numberOfSamples; i++)
+			set(destination, index+i, get(source, sourceIndex+i));
+	}
+
+	/**
+	 * Intersection of two validity masks (word-wise AND): samples valid within mask1 and mask2
+	 * @param mask1 Validity mask
+	 * @param mask2 Validity mask (same length as mask1)
+	 * @return Validity mask of the intersection
+	 */
+	public static long[] and(long[] mask1, long[] mask2) {
+		long[] intersection = new long[mask1.length];
+		for(int i=0; i<intersection.length; i++)
+			intersection[i] = mask1[i] & mask2[i];
+		return intersection;
+	}
+
+	/**
+	 * Returns the number of valid samples (population count)
+	 * @param mask Validity mask
+	 * @return Number of valid samples
+	 */
+	public static int cardinality(long[] mask) {
+		int cardinality = 0;
+		for(int i=0; i<mask.length; i++)
+			cardinality += Long.bitCount(mask[i]);
+		return cardinality;
+	}
+
+	/**
+	 * Returns the index of the next valid sample
+	 * @param mask Validity mask
+	 * @param fromIndex Sample index to start the search from (inclusive)
+	 * @return Index of the next valid sample; -1 if there is no valid sample at or behind fromIndex
+	 */
+	public static int nextSetBit(long[] mask, int fromIndex) {
+		int wordIndex = fromIndex >>> 6;
+		if(wordIndex >= mask.length)
+			return -1;
+		long word = mask[wordIndex] & (-1L << fromIndex);
+		while(true) {
+			if(word != 0)
+				return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			wordIndex++;
+			if(wordIndex >= mask.length)
+				return -1;
+			word = mask[wordIndex];
+		}
+	}
+
+}
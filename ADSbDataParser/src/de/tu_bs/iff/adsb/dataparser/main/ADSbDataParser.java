@@ -32,6 +32,7 @@ import javax.swing.JTextField;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import de.tu_bs.iff.adsb.dataparser.lib.AirportDatabase;
+import de.tu_bs.iff.adsb.dataparser.lib.SampleLineReader;
 import de.tu_bs.iff.adsb.dataparser.lib.TrajectoryHorizontal;
 import de.tu_bs.iff.adsb.dataparser.lib.TrajectoryMerged;
 import de.tu_bs.iff.adsb.dataparser.lib.TrajectoryStateVectorsData4;
@@ -84,6 +85,8 @@ public class ADSbDataParser {
 		boolean threadCountSpecified = false;
 		int stepCount = 2*Runtime.getRuntime().availableProcessors();
 		boolean stepCountSpecified = false;
+		int prefetchCount = 0;
+		long prefetchMemory = ParallelParser.DEFAULT_PREFETCH_MEMORY_BUDGET / (1024*1024);
 	}
 	private static CommandLineParameters parseCommandLine(String[] args) {
 		CommandLineParameters commandLineParameters = new CommandLineParameters();
@@ -171,6 +174,23 @@ public class ADSbDataParser {
 					return null;
 				}
 				break;
+			case "--prefetch-count":
+			case "-p":
+				try {
+					commandLineParameters.prefetchCount = Integer.parseInt(value);
+				} catch(NumberFormatException e) {
+					System.err.println(String.format("ERROR: Unknown format for number of prefetched files: '%s'", value));
+					return null;
+				}
+				break;
+			case "--prefetch-memory":
+				try {
+					commandLineParameters.prefetchMemory = Long.parseLong(value);
+				} catch(NumberFormatException e) {
+					System.err.println(String.format("ERROR: Unknown format for prefetch memory: '%s'", value));
+					return null;
+				}
+				break;
 			case "--recompile-airport-database":
 				if(args.length != 1)
 					System.err.println("ERROR: Argument '--recompile-airport-database' can only be passed exclusively. ");
@@ -193,14 +213,14 @@ public class ADSbDataParser {
 
 		System.out.println("----------");
 		System.out.println("Command line syntax: \n");
-		System.out.println("java -jar ADSbDataParser.jar [-m=MODE] [-g] [-i=DIR] [-o=DIR] [-a=DIR] [-r=ON/OFF] [-f] [-t=COUNT] [-s=COUNT]");
+		System.out.println("java -jar ADSbDataParser.jar [-m=MODE] [-g] [-i=DIR] [-o=DIR] [-a=DIR] [-r=ON/OFF] [-f] [-t=COUNT] [-s=COUNT] [-p=COUNT] [--prefetch-memory=MB]");
 		System.out.println("java -jar ADSbDataParser.jar --recompile-airport-database");
 		System.out.println("java -jar ADSbDataParser.jar -h\n");
 		
 		System.out.println("-m, --mode=MODE                     sets the parser-mode (default: FILE)");
 		System.out.println("                                    MODE: {FILE, FOLDER}");
 		System.out.println("                                      FILE: Parses a single flight within a text-file (trino/CLI- or impala/PuTTY-log-file)");
-		System.out.println("                                      FOLDER: Parses all text-files (*.txt and *.log) within the specified input-folder");
+		System.out.println("                                      FOLDER: Parses all text-files (*.txt and *.log, also compressed: *.gz and *.zip) within the specified input-folder");
 		System.out.println("-g, --gui                           opens graphical user interface");
 		System.out.println("-i, --input=DIR                     dir to input file/folder");
 		System.out.println("-o, --output=DIR                    dir to output file");
@@ -211,6 +231,10 @@ public class ADSbDataParser {
 		System.out.println("                                    COUNT: {1 ... n}");
 		System.out.println("-s, --step-count=COUNT              number of trajectories per (save-)step (only for FOLDER-mode, default: 2 * [number of processors available to the Java virtual machine])");
 		System.out.println("                                    COUNT: {1 ... n}");
+		System.out.println("-p, --prefetch-count=COUNT          number of files read ahead of the parsing threads in background (only for FOLDER-mode, default: 0)");
+		System.out.println("                                    COUNT: {0 ... n}");
+		System.out.println("--prefetch-memory=MB                memory budget of the files read ahead in MB (only for FOLDER-mode, default: 256)");
+		System.out.println("                                    MB: {1 ... n}");
 		System.out.println("--recompile-airport-database        opens a GUI to recompile a given airport database (not applicable with any other command line argument)");
 		System.out.println("-h, --help                          prints this command line help (not applicable with any other command line argument)");
 	}
@@ -444,7 +468,7 @@ public class ADSbDataParser {
 						else
 							fileChooser.setSelectedFile(new File(inputDirTextField.getText()));
 					if(fileRadioButton.isSelected())
-						fileChooser.setFileFilter(new FileNameExtensionFilter("Raw Flight-Data (*.txt, *.log)", new String[] {"txt", "log"}));
+						fileChooser.setFileFilter(new FileNameExtensionFilter("Raw Flight-Data (*.txt, *.log, *.gz, *.zip)", new String[] {"txt", "log", "gz", "zip"}));
 					if(folderRadioButton.isSelected())
 						fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
 					if(fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION)
@@ -870,6 +894,14 @@ public class ADSbDataParser {
 			System.err.println("ERROR: Step count cannot be less than or equal to 0. ");
 			return;
 		}
+		if((commandLineParameters.mode == MODE.FOLDER) && (commandLineParameters.prefetchCount < 0)) {
+			System.err.println("ERROR: Prefetch count cannot be less than 0. ");
+			return;
+		}
+		if((commandLineParameters.mode == MODE.FOLDER) && (commandLineParameters.prefetchMemory <= 0)) {
+			System.err.println("ERROR: Prefetch memory cannot be less than or equal to 0. ");
+			return;
+		}
 		
 		switch(commandLineParameters.mode) {
 		case FILE:
@@ -978,19 +1010,23 @@ public class ADSbDataParser {
 			@Override
 			public void run() {
 				final ParallelParser parallelParser = new ParallelParser();
+				parallelParser.setPrefetch(commandLineParameters.prefetchCount, commandLineParameters.prefetchMemory*1024*1024);
 				
 				File[] rawFiles = (new File(inputFolderDir)).listFiles();
 				ArrayList<String> rawFileDirsList = new ArrayList<String>();
 				
 				for(int i=0; i<rawFiles.length; i++)
 					if(rawFiles[i].isFile())
-						if(rawFiles[i].getAbsolutePath().endsWith(".txt") || rawFiles[i].getAbsolutePath().endsWith(".log"))
+						if(rawFiles[i].getAbsolutePath().endsWith(".txt") || rawFiles[i].getAbsolutePath().endsWith(".log") || SampleLineReader.isCompressedFile(rawFiles[i].getAbsolutePath()))
 							rawFileDirsList.add(rawFiles[i].getAbsolutePath());
 				
 				rawFileDirs = new String[rawFileDirsList.size()];
 				for(int i=0; i<rawFileDirsList.size(); i++)
 					rawFileDirs[i] = rawFileDirsList.get(i);
 				
+				// (one prefetcher for all steps: files of the next step are read in while the current step is saved)
+				parallelParser.startPrefetching(rawFileDirs);
+				
 				int numberOfParsedTrajectories = 0;
 				folderParsingFinalRoundProgress = 0;
 				String[] currentRawFileDirs;
@@ -1068,11 +1104,13 @@ public class ADSbDataParser {
 					
 					folderParsingfinished = true;
 				} catch (IOException e) {
+					parallelParser.stopPrefetching();
 					showMessage("Error while writing file. ", JOptionPane.ERROR_MESSAGE, gui);
 					e.printStackTrace();
 					return;
 				}
 				
+				parallelParser.stopPrefetching();
 				if((gui == null) || !gui.stopParsing)
 					showMessage("Parsing trajectories finished. ", JOptionPane.INFORMATION_MESSAGE, gui);
 				else
@@ -0,0 +1,144 @@
+package de.tu_bs.iff.adsb.dataparser.main;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import de.tu_bs.iff.adsb.dataparser.lib.ByteScanner;
+import de.tu_bs.iff.adsb.dataparser.lib.SampleLineReader;
+import de.tu_bs.iff.adsb.dataparser.lib.SampleLineTokenizer;
+import de.tu_bs.iff.adsb.dataparser.lib.SampleTableBuilder;
+
+/**
+ * Benchmark of the delimiter scanning of log ingest (class ByteScanner): throughput of scalar and SWAR scanning for '\n' and '|' within a log file (e.g. a Trino log of 1 GB), 
+ * and of line reading + splitting into columns with SampleLineReader/SampleLineTokenizer compared to the former ingest loop (FileReader read char by char, String.split() of each line).
+ * Command line syntax: java -cp ADSbDataParser.jar de.tu_bs.iff.adsb.dataparser.main.ByteScannerBenchmark LOGFILE [ROUNDS]
+ */
+public class ByteScannerBenchmark {
+	private static final long WINDOW_SIZE = 256L*1024*1024;
+
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.out.println("java -cp ADSbDataParser.jar de.tu_bs.iff.adsb.dataparser.main.ByteScannerBenchmark LOGFILE [ROUNDS]");
+			return;
+		}
+		String fileDir = args[0];
+		int rounds = 5;
+		if(args.length >= 2)
+			rounds = Integer.parseInt(args[1]);
+
+		RandomAccessFile file = new RandomAccessFile(fileDir, "r");
+		FileChannel fileChannel = file.getChannel();
+		long fileSize = fileChannel.size();
+		ByteBuffer[] windows = new ByteBuffer[(int)((fileSize+WINDOW_SIZE-1)/WINDOW_SIZE)];
+		for(int i=0; i<windows.length; i++)
+			windows[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, i*WINDOW_SIZE, Math.min(WINDOW_SIZE, fileSize-i*WINDOW_SIZE));
+
+		System.out.println(String.format(Locale.US, "File: %s (%.1f MB), rounds: %d", fileDir, fileSize/1e6, rounds));
+		for(int round=0; round<rounds; round++) {
+			long scalarTime = System.nanoTime();
+			long scalarCount = countDelimiters(windows, false);
+			scalarTime = System.nanoTime()-scalarTime;
+
+			long swarTime = System.nanoTime();
+			long swarCount = countDelimiters(windows, true);
+			swarTime = System.nanoTime()-swarTime;
+
+			long tokenizeTime = System.nanoTime();
+			long lineCount = tokenizeLines(fileDir);
+			tokenizeTime = System.nanoTime()-tokenizeTime;
+
+			long fileReaderTime = System.nanoTime();
+			long fileReaderLineCount = splitLinesFileReader(fileDir);
+			fileReaderTime = System.nanoTime()-fileReaderTime;
+
+			if(scalarCount != swarCount)
+				System.out.println("Delimiter count differs: scalar " + scalarCount + ", SWAR " + swarCount);
+			System.out.println(String.format(Locale.US, "Round %d: scalar %.0f MB/s, SWAR %.0f MB/s (%d delimiters); line reader + tokenizer %.0f MB/s (%d lines); FileReader per char + split %.0f MB/s (%d lines)", round+1,
+					fileSize/(scalarTime/1e3), fileSize/(swarTime/1e3), swarCount, fileSize/(tokenizeTime/1e3), lineCount, fileSize/(fileReaderTime/1e3), fileReaderLineCount));
+		}
+
+		fileChannel.close();
+		file.close();
+	}
+
+	/**
+	 * Counts all '\n' and '|' within the mapped windows
+	 */
+	private static long countDelimiters(ByteBuffer[] windows, boolean swar) {
+		long count = 0;
+		for(int i=0; i<windows.length; i++) {
+			int limit = windows[i].limit();
+			for(byte delimiter : new byte[] {'\n', '|'}) {
+				int position = 0;
+				while(position < limit) {
+					if(swar)
+						position = ByteScanner.indexOf(windows[i], position, limit, delimiter);
+					else
+						position = ByteScanner.indexOfScalar(windows[i], position, limit, delimiter);
+					if(position == -1)
+						break;
+					count++;
+					position++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Reads and tokenizes all lines of the file as within log ingest
+	 */
+	private static long tokenizeLines(String fileDir) throws IOException {
+		SampleLineReader dataReader = SampleLineReader.fromMappedFile(fileDir);
+		SampleLineTokenizer tokenizer = new SampleLineTokenizer();
+		byte[] inputData = new byte[SampleTableBuilder.INPUT_DATA_SIZE];
+		long lineCount = 0;
+		int lineEnd;
+		while((lineEnd = dataReader.readLine(inputData)) != SampleLineReader.END_OF_DATA) {
+			if(lineEnd == SampleLineReader.LINE_BUFFER_OVERFLOW)
+				break;
+			tokenizer.tokenize(inputData, lineEnd);
+			lineCount++;
+		}
+		dataReader.close();
+		return lineCount;
+	}
+
+	/**
+	 * Reads and splits all lines of the file as within the former log ingest (FileReader read char by char into a char buffer, String.split() of each line)
+	 */
+	private static long splitLinesFileReader(String fileDir) throws IOException {
+		FileReader dataReader = new FileReader(fileDir);
+		char[] inputData = new char[SampleTableBuilder.INPUT_DATA_SIZE];
+		long lineCount = 0;
+		long columnCount = 0;
+		int lineEnd;
+		do {
+			lineEnd = -1;
+			int c;
+			while((c = dataReader.read()) != -1) {
+				lineEnd++;
+				inputData[lineEnd] = (char)c;
+				if((char)c == '\n')
+					break;
+				if(lineEnd >= inputData.length-1)
+					break;
+			}
+			if(lineEnd == -1)
+				break;
+			String lineString = new String(inputData, 0, lineEnd);
+			lineString = lineString.replace(" ", "");
+			lineString = lineString.replace('|', ';');
+			columnCount += lineString.split(";").length;
+			lineCount++;
+		} while(true);
+		dataReader.close();
+		if(columnCount < 0)		// (columns are counted, so the split is not removed as unused)
+			System.out.println(columnCount);
+		return lineCount;
+	}
+
+}
@@ -0,0 +1,186 @@
+package de.tu_bs.iff.adsb.dataparser.parallel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import de.tu_bs.iff.adsb.dataparser.lib.SampleLineReader;
+import de.tu_bs.iff.adsb.dataparser.lib.TrajectoryCacheFile;
+
+/**
+ * Thread reading log-files ahead of the parser threads (read-ahead prefetching, e.g. for network file systems):
+ * the files are read in the order of their trajectory index into pooled byte buffers, so the I/O of the next files overlaps with the parsing of the current files.
+ * At most prefetchFileCount files are held ahead of the parser threads, and all buffers together (in use and pooled) do not exceed memoryBudget bytes.
+ * Files which are not prefetched (compressed files, files larger than memoryBudget, files with up-to-date cache file, read errors) are read in by the parser threads themselves.
+ */
+public class FilePrefetcher extends Thread {
+	private static final int BUFFER_GRANULARITY = 1024*1024;		// buffer capacities are rounded up to multiples of this size (for reuse of pooled buffers)
+
+	private String[] dirs;
+	private int prefetchFileCount;
+	private long memoryBudget;
+	private boolean skipCachedFiles;
+
+	private ByteBuffer[] buffers;			// prefetched data of the files (null: not prefetched or already taken)
+	private int nextIndexToPrefetch = 0;	// files with lower index are prefetched or skipped
+	private int prefetchedFileCount = 0;	// number of prefetched files not taken yet
+	private ArrayList<ByteBuffer> pooledBuffers = new ArrayList<ByteBuffer>();		// buffers available for reuse
+	private long allocatedBytes = 0;		// capacity of all buffers (in use and pooled)
+	private boolean stopped = false;
+
+	/**
+	 * @param dirs Directories to the log-files (in the order the parser threads read them in)
+	 * @param prefetchFileCount Maximum number of files read ahead of the parser threads
+	 * @param memoryBudget Maximum number of bytes of all buffers
+	 * @param skipCachedFiles True: files with up-to-date cache file (see TrajectoryCacheFile.isUpToDate()) are not prefetched
+	 */
+	public FilePrefetcher(String[] dirs, int prefetchFileCount, long memoryBudget, boolean skipCachedFiles) {
+		this.dirs = dirs;
+		this.prefetchFileCount = prefetchFileCount;
+		this.memoryBudget = memoryBudget;
+		this.skipCachedFiles = skipCachedFiles;
+		buffers = new ByteBuffer[dirs.length];
+		setDaemon(true);
+	}
+
+	@Override public void run() {
+		for(int index=0; index<dirs.length; index++) {
+			synchronized(this) {
+				while((prefetchedFileCount >= prefetchFileCount) && !stopped)
+					waitForChange();
+				if(stopped)
+					return;
+			}
+
+			ByteBuffer buffer = null;
+			if(isToBePrefetched(dirs[index])) {
+				buffer = acquireBuffer(new File(dirs[index]).length());
+				if(buffer != null)
+					try {
+						readFile(dirs[index], buffer);
+					} catch(IOException e) {
+						releaseBuffer(buffer);		// (file is read in by the parser thread, which reports the error)
+						buffer = null;
+					}
+			}
+
+			synchronized(this) {
+				buffers[index] = buffer;
+				nextIndexToPrefetch = index+1;
+				if(buffer != null)
+					prefetchedFileCount++;
+				notifyAll();
+			}
+		}
+	}
+
+	private boolean isToBePrefetched(String dir) {
+		if(SampleLineReader.isCompressedFile(dir))
+			return false;
+		long fileSize = new File(dir).length();
+		if((fileSize == 0) || (fileSize > memoryBudget) || (fileSize > Integer.MAX_VALUE))
+			return false;
+		if(skipCachedFiles && TrajectoryCacheFile.isUpToDate(TrajectoryCacheFile.getCacheFileDir(dir), dir))
+			return false;
+		return true;
+	}
+
+	private static void readFile(String dir, ByteBuffer buffer) throws IOException {
+		FileInputStream fileInputStream = new FileInputStream(dir);
+		try {
+			FileChannel fileChannel = fileInputStream.getChannel();
+			while(buffer.hasRemaining())
+				if(fileChannel.read(buffer) < 0)
+					break;
+		} finally {
+			fileInputStream.close();
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Returns a buffer with at least size bytes (position 0, limit size): a pooled buffer or a new buffer within memoryBudget (waits until buffers are released, if required)
+	 * @return Buffer; null if stopped
+	 */
+	private synchronized ByteBuffer acquireBuffer(long size) {
+		while(!stopped) {
+			// smallest pooled buffer with sufficient capacity ...
+			int bestIndex = -1;
+			for(int i=0; i<pooledBuffers.size(); i++)
+				if((pooledBuffers.get(i).capacity() >= size) && ((bestIndex == -1) || (pooledBuffers.get(i).capacity() < pooledBuffers.get(bestIndex).capacity())))
+					bestIndex = i;
+			if(bestIndex != -1) {
+				ByteBuffer buffer = pooledBuffers.remove(bestIndex);
+				buffer.clear();
+				buffer.limit((int)size);
+				return buffer;
+			}
+			// ... smallest pooled buffer with sufficient capacity
+
+			long capacity = (size+BUFFER_GRANULARITY-1) / BUFFER_GRANULARITY * BUFFER_GRANULARITY;
+			if((capacity > memoryBudget) || (capacity > Integer.MAX_VALUE))
+				capacity = size;
+			if(allocatedBytes+capacity <= memoryBudget) {
+				allocatedBytes += capacity;
+				ByteBuffer buffer = ByteBuffer.allocate((int)capacity);
+				buffer.limit((int)size);
+				return buffer;
+			}
+
+			if(pooledBuffers.size() > 0) {
+				// pooled buffers are too small: free one of them for a new buffer
+				allocatedBytes -= pooledBuffers.remove(pooledBuffers.size()-1).capacity();
+				continue;
+			}
+			waitForChange();		// (all buffers in use)
+		}
+		return null;
+	}
+
+	/**
+	 * Takes the prefetched data of a file (waits until the file is prefetched, if required).
+	 * The buffer has to be returned with releaseBuffer() after read-in.
+	 * @param index Index of the file (within dirs)
+	 * @return Prefetched data of the file (from position to limit); null if the file is not prefetched (file has to be read in from the file system)
+	 */
+	public synchronized ByteBuffer takeBuffer(int index) {
+		while((index >= nextIndexToPrefetch) && !stopped)
+			waitForChange();
+		ByteBuffer buffer = buffers[index];
+		buffers[index] = null;
+		if(buffer != null) {
+			prefetchedFileCount--;
+			notifyAll();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer taken with takeBuffer() to the pool
+	 * @param buffer Buffer (must not be used anymore)
+	 */
+	public synchronized void releaseBuffer(ByteBuffer buffer) {
+		pooledBuffers.add(buffer);
+		notifyAll();
+	}
+
+	/**
+	 * Stops prefetching (e.g. if parsing is stopped or finished); threads waiting within takeBuffer() get null
+	 */
+	public synchronized void stopPrefetching() {
+		stopped = true;
+		notifyAll();
+	}
+
+	private void waitForChange() {
+		try {
+			wait();
+		} catch(InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -6,6 +6,7 @@ import de.tu_bs.iff.adsb.dataparser.lib.*;
  * Class for use as library for parallel parsing of multiple trajectories from files.
  */
 public class ParallelParser {
+	public static final long DEFAULT_PREFETCH_MEMORY_BUDGET = 256L*1024*1024;		// default memory budget of the prefetched log-files [bytes]
 	
 	private int nextTrajectoryIndexToParse = 0;
 	private int joinedFinishedThreads = 0;
@@ -13,10 +14,27 @@ public class ParallelParser {
 	private boolean stopParsing = false;
 	
 	ParserThread[] parserThreads = null;
+	FilePrefetcher filePrefetcher = null;		// prefetcher of the current parseAll() call
+	int prefetchIndexOffset = 0;				// index of dirs[0] within the dirs of filePrefetcher
+	private FilePrefetcher continuousPrefetcher = null;		// prefetcher kept across parseAll() calls (see startPrefetching())
+	private String[] continuousPrefetchDirs = null;
+	private int continuousPrefetchDirsParsed = 0;		// number of continuousPrefetchDirs handed to parseAll() calls so far
 	
 	public AirportDatabase airportDatabase = null;
 	
 	public boolean filterRedundantSamples;
+	public boolean memoryMappedInput = false;
+	public TrajectoryStateVectorsData4.DuplicateTimestampPolicy duplicateTimestampPolicy = TrajectoryStateVectorsData4.DuplicateTimestampPolicy.KEEP_ALL;
+	public boolean pipelineChannelsOnly = false;
+	public boolean useCacheFiles = false;
+	public SampleFilter sampleFilter = null;
+	public boolean dropDuplicateRows = false;
+	public boolean lazyChannels = false;
+	public int medianFilterWindowSize = TrajectoryVertical.DEFAULT_MEDIAN_FILTER_WINDOW_SIZE;
+	public TrajectoryVertical.RedundancyFilterMode redundancyFilterMode = TrajectoryVertical.RedundancyFilterMode.TOP_DOWN;
+	public int prefetchFileCount = 0;
+	public long prefetchMemoryBudget = DEFAULT_PREFETCH_MEMORY_BUDGET;
+	public CallsignTable callsignTable = null;		// callsigns of the trajectories set with setDirs()/setCombinedDir() (a new table per call, so it does not grow across the steps of FOLDER-mode)
 	
 	public TrajectoryStateVectorsData4[] trajectoryStateVectorsData4Array;
 	public TrajectoryVertical[] trajectoryVerticalArray;
@@ -26,6 +44,7 @@ public class ParallelParser {
 	public double[] completenessMetrics;
 	public double[] plausibilityMetrics;
 	public String[] dirs;
+	public int[] readInErrorCodes = null;		// if not null: trajectories are already read in (see setTrajectoriesStateVectorsData4()), dirs are not used
 	public int[] errorCodes;
 	
 	public ParallelParser() {
@@ -47,23 +66,217 @@ public class ParallelParser {
 		this.airportDatabase = airportDatabase;
 	}
 	
+	/**
+	 * Sets the ingest mode of the log-files (has to be set before parseAll() is called).
+	 * @param memoryMappedInput True: log-files are memory-mapped and read in as raw ASCII bytes (faster for large log-files); false: log-files are read in with a FileReader (default).
+	 */
+	public void setMemoryMappedInput(boolean memoryMappedInput) {
+		this.memoryMappedInput = memoryMappedInput;
+	}
+	
+	/**
+	 * Sets the handling of samples with equal timestamps during read-in of the trajectories (has to be set before setCombinedDir() or parseAll() is called; default: KEEP_ALL).
+	 * @param duplicateTimestampPolicy Handling of samples with equal timestamps.
+	 */
+	public void setDuplicateTimestampPolicy(TrajectoryStateVectorsData4.DuplicateTimestampPolicy duplicateTimestampPolicy) {
+		this.duplicateTimestampPolicy = duplicateTimestampPolicy;
+	}
+	
+	/**
+	 * Sets the column projection for read-in of the trajectories (has to be set before setCombinedDir() or parseAll() is called; default: false). 
+	 * @param pipelineChannelsOnly True: only the channels used for parsing (time, lat, lon, baroAlt, lastPosUpdate, lastContact) are read in, which saves parsing time and memory.
+	 */
+	public void setPipelineChannelsOnly(boolean pipelineChannelsOnly) {
+		this.pipelineChannelsOnly = pipelineChannelsOnly;
+	}
+	
+	/**
+	 * Sets predicates (time window, bounding box, on-ground exclusion) for the samples to be read in (has to be set before setCombinedDir() or parseAll() is called; default: null). 
+	 * Cache files are not used while a sample filter is set. 
+	 * @param sampleFilter Predicates for samples to be read in (see TrajectoryStateVectorsData4.setSampleFilter()); null: all samples are read in.
+	 */
+	public void setSampleFilter(SampleFilter sampleFilter) {
+		this.sampleFilter = sampleFilter;
+	}
+	
+	/**
+	 * Sets the elimination of exact duplicate rows during read-in of the trajectories (has to be set before setCombinedDir() or parseAll() is called; default: false). 
+	 * The number of dropped rows is reported within droppedDuplicateRowCount of the read in trajectories (see trajectoryStateVectorsData4Array). 
+	 * @param dropDuplicateRows True: exact duplicate rows (e.g. from overlapping hour partitions) are dropped (see TrajectoryStateVectorsData4.setDropDuplicateRows()).
+	 */
+	public void setDropDuplicateRows(boolean dropDuplicateRows) {
+		this.dropDuplicateRows = dropDuplicateRows;
+	}
+	
+	/**
+	 * Sets lazy channels for read-in of the log-files (has to be set before parseAll() is called; default: false). 
+	 * Only time is parsed while reading in, the channels are parsed when required by the parsing of the trajectories (channels not used, e.g. velocity or squawk, are not parsed at all). 
+	 * Lazy channels only apply to log-files read in memory-mapped (see setMemoryMappedInput() and TrajectoryStateVectorsData4.setLazyChannels()); otherwise all channels are parsed while reading in, without notice: 
+	 * log-files read in with a FileReader (memoryMappedInput false) or from prefetched buffers (see setPrefetch()), trajectories read from cache files or from the combined log-file (see setCombinedDir()), 
+	 * log-files read in with cache files enabled (useCacheFiles; the cache file contains all channels), and read-ins with dropDuplicateRows or a sample filter with bounding box or on-ground exclusion. 
+	 * The error codes of the trajectories (see getErrorCode()) do not contain soft errors of the read-in and are the same as without lazy channels; 
+	 * soft errors 10xx of the parsed channels are kept within lazyChannelsErrorCode of the trajectories (see trajectoryStateVectorsData4Array). 
+	 * @param lazyChannels True: channels besides time are parsed when required.
+	 */
+	public void setLazyChannels(boolean lazyChannels) {
+		this.lazyChannels = lazyChannels;
+	}
+	
+	/**
+	 * Sets the window of the moving median filter of the barometric altitude of the vertical trajectories (has to be set before parseAll() is called; default: TrajectoryVertical.DEFAULT_MEDIAN_FILTER_WINDOW_SIZE). 
+	 * @param medianFilterWindowSize Number of samples within the window (odd, see TrajectoryVertical.setMedianFilterWindowSize()).
+	 */
+	public void setMedianFilterWindowSize(int medianFilterWindowSize) {
+		this.medianFilterWindowSize = medianFilterWindowSize;
+	}
+	
+	/**
+	 * Sets the algorithm of the filtration of redundant (interpolation) samples of the vertical trajectories (has to be set before parseAll() is called; default: TOP_DOWN). 
+	 * @param redundancyFilterMode Algorithm of the filtration (see TrajectoryVertical.setRedundancyFilterMode()).
+	 */
+	public void setRedundancyFilterMode(TrajectoryVertical.RedundancyFilterMode redundancyFilterMode) {
+		this.redundancyFilterMode = redundancyFilterMode;
+	}
+	
+	/**
+	 * Sets read-ahead prefetching of the log-files (has to be set before parseAll() is called; default: 0, no prefetching). 
+	 * A background thread (see class FilePrefetcher) reads the next log-files into pooled byte buffers, which are read in by the parser threads (see TrajectoryStateVectorsData4.readInInterfaceDataBuffer()), so I/O and parsing overlap. 
+	 * Each parseAll() call prefetches its own dirs (the first files of each call are read without overlap); use startPrefetching() to prefetch across several parseAll() calls. 
+	 * Log-files read in from prefetched buffers are read in without lazy channels. 
+	 * @param prefetchFileCount Maximum number of log-files read ahead of the parser threads; 0: no prefetching.
+	 * @param prefetchMemoryBudget Maximum memory of all buffers [bytes] (log-files larger than the budget are not prefetched).
+	 */
+	public void setPrefetch(int prefetchFileCount, long prefetchMemoryBudget) {
+		this.prefetchFileCount = prefetchFileCount;
+		this.prefetchMemoryBudget = prefetchMemoryBudget;
+	}
+	
+	/**
+	 * Starts read-ahead prefetching (see setPrefetch()) of all log-files to be parsed by the following parseAll() calls, e.g. the steps of FOLDER-mode: 
+	 * the prefetcher is kept across the parseAll() calls, so the next log-files are already read in while the trajectories of a step are saved. 
+	 * The dirs set with setDirs() before each parseAll() call have to follow each other within prefetchDirs; otherwise prefetching of prefetchDirs is stopped and parseAll() prefetches its own dirs only. 
+	 * Prefetching ends after the last of prefetchDirs was parsed, or with stopPrefetching(). 
+	 * Without prefetching (setPrefetch() with prefetchFileCount 0), nothing is started. 
+	 * @param prefetchDirs Directories to all log-files to be parsed (in the order of the parseAll() calls).
+	 */
+	public void startPrefetching(String[] prefetchDirs) {
+		stopPrefetching();
+		if(prefetchFileCount <= 0)
+			return;
+		continuousPrefetchDirs = prefetchDirs;
+		continuousPrefetchDirsParsed = 0;
+		continuousPrefetcher = new FilePrefetcher(prefetchDirs, prefetchFileCount, prefetchMemoryBudget, useCacheFiles && (sampleFilter == null));
+		continuousPrefetcher.start();
+	}
+	
+	/**
+	 * Stops prefetching started with startPrefetching() (buffers not taken yet are dropped).
+	 */
+	public void stopPrefetching() {
+		if(continuousPrefetcher == null)
+			return;
+		stopAndJoin(continuousPrefetcher);
+		continuousPrefetcher = null;
+		continuousPrefetchDirs = null;
+	}
+	
+	private static void stopAndJoin(FilePrefetcher filePrefetcher) {
+		filePrefetcher.stopPrefetching();
+		try {
+			filePrefetcher.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * @return True if the dirs of the current parseAll() call are the next dirs of continuousPrefetchDirs
+	 */
+	private boolean dirsContinuePrefetchDirs() {
+		if((dirs == null) || (readInErrorCodes != null))
+			return false;
+		if(continuousPrefetchDirsParsed+dirs.length > continuousPrefetchDirs.length)
+			return false;
+		for(int i=0; i<dirs.length; i++)
+			if(!dirs[i].equals(continuousPrefetchDirs[continuousPrefetchDirsParsed+i]))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Sets the use of binary cache files (see class TrajectoryCacheFile) for read-in of the log-files (has to be set before parseAll() is called; default: false). 
+	 * If a cache file (directory of the log-file + TrajectoryCacheFile.FILE_EXTENSION) is newer than the log-file, the trajectory is loaded from the cache file instead of parsing the log-file. Otherwise the log-file is read in and the cache file is (re-)written. 
+	 * @param useCacheFiles True: cache files are used and written.
+	 */
+	public void setUseCacheFiles(boolean useCacheFiles) {
+		this.useCacheFiles = useCacheFiles;
+	}
+	
 	/**
 	 * Sets the directories to log-files of aircraft trajectories to be parsed.
 	 * @param dirs Directories to log-files of aircraft trajectories to be parsed.
 	 */
 	public void setDirs(String[] dirs) {
 		this.dirs = dirs;
-		trajectoryStateVectorsData4Array = new TrajectoryStateVectorsData4[dirs.length];
-		trajectoryVerticalArray = new TrajectoryVertical[dirs.length];
-		trajectoryHorizontalArray = new TrajectoryHorizontal[dirs.length];
-		trajectoryMergedArray = new TrajectoryMerged[dirs.length];
-		reliabilityMetrics = new double[dirs.length];
-		completenessMetrics = new double[dirs.length];
-		plausibilityMetrics = new double[dirs.length];
-		errorCodes = new int[dirs.length];
+		readInErrorCodes = null;
+		callsignTable = new CallsignTable();
+		allocateTrajectories(dirs.length);
 		
-		for(int i=0; i<dirs.length; i++) {
+		for(int i=0; i<dirs.length; i++)
 			trajectoryStateVectorsData4Array[i] = new TrajectoryStateVectorsData4();
+	}
+	
+	/**
+	 * Sets already read in trajectories to be parsed (e.g. the flights of a log with multiple flights, see class TrajectoryDemultiplexer).
+	 * @param trajectoriesStateVectorsData4 Read in trajectories to be parsed.
+	 * @param readInErrorCodes Error codes of the read-in of the trajectories (trajectories with fatal error are not parsed).
+	 */
+	public void setTrajectoriesStateVectorsData4(TrajectoryStateVectorsData4[] trajectoriesStateVectorsData4, int[] readInErrorCodes) {
+		this.dirs = null;
+		this.readInErrorCodes = readInErrorCodes;
+		allocateTrajectories(trajectoriesStateVectorsData4.length);
+		
+		for(int i=0; i<trajectoriesStateVectorsData4.length; i++)
+			trajectoryStateVectorsData4Array[i] = trajectoriesStateVectorsData4[i];
+	}
+	
+	/**
+	 * Reads in a log-file containing multiple flights (e.g. all state vectors of an hour) and sets its flights (split up by icao24 and callsign) to be parsed. 
+	 * No temporary files are written.
+	 * @param combinedDir Directory to the log-file with multiple flights.
+	 * @return Error code of the read-in of the log-file (see class TrajectoryDemultiplexer); <0: fatal error (no trajectories set)
+	 */
+	public int setCombinedDir(String combinedDir) {
+		TrajectoryDemultiplexer trajectoryDemultiplexer = new TrajectoryDemultiplexer();
+		trajectoryDemultiplexer.duplicateTimestampPolicy = duplicateTimestampPolicy;
+		trajectoryDemultiplexer.pipelineChannelsOnly = pipelineChannelsOnly;
+		trajectoryDemultiplexer.sampleFilter = sampleFilter;
+		trajectoryDemultiplexer.dropDuplicateRows = dropDuplicateRows;
+		callsignTable = new CallsignTable();
+		trajectoryDemultiplexer.callsignTable = callsignTable;
+		int errorCode;
+		if(memoryMappedInput)
+			errorCode = trajectoryDemultiplexer.readInInterfaceDataMappedFile(combinedDir);
+		else
+			errorCode = trajectoryDemultiplexer.readInInterfaceDataFile(combinedDir);
+		if(errorCode < 0)
+			return errorCode;
+		
+		setTrajectoriesStateVectorsData4(trajectoryDemultiplexer.trajectoryStateVectorsData4Array, trajectoryDemultiplexer.errorCodes);
+		return errorCode;
+	}
+	
+	private void allocateTrajectories(int numberOfTrajectories) {
+		trajectoryStateVectorsData4Array = new TrajectoryStateVectorsData4[numberOfTrajectories];
+		trajectoryVerticalArray = new TrajectoryVertical[numberOfTrajectories];
+		trajectoryHorizontalArray = new TrajectoryHorizontal[numberOfTrajectories];
+		trajectoryMergedArray = new TrajectoryMerged[numberOfTrajectories];
+		reliabilityMetrics = new double[numberOfTrajectories];
+		completenessMetrics = new double[numberOfTrajectories];
+		plausibilityMetrics = new double[numberOfTrajectories];
+		errorCodes = new int[numberOfTrajectories];
+		
+		for(int i=0; i<numberOfTrajectories; i++) {
 			trajectoryVerticalArray[i] = new TrajectoryVertical();
 			trajectoryHorizontalArray[i] = new TrajectoryHorizontal();
 			trajectoryMergedArray[i] = new TrajectoryMerged();
@@ -71,7 +284,7 @@ public class ParallelParser {
 	}
 	
 	/**
-	 * Parse all Trajectories handed over by function setDirs(String[] dirs) in parallel mode.
+	 * Parse all Trajectories handed over by function setDirs(String[] dirs) (or setTrajectoriesStateVectorsData4() / setCombinedDir()) in parallel mode.
 	 * @param threadCount Number of Threads to be used for parallel parsing.
 	 */
 	public void parseAll(int threadCount, boolean filterRedundantSamples) {
@@ -83,6 +296,22 @@ public class ParallelParser {
 		nextTrajectoryIndexToParse = 0;
 		parserThreads = new ParserThread[threadCount];
 		
+		filePrefetcher = null;
+		prefetchIndexOffset = 0;
+		boolean continuousPrefetching = false;
+		if(continuousPrefetcher != null) {
+			if(dirsContinuePrefetchDirs()) {
+				filePrefetcher = continuousPrefetcher;
+				prefetchIndexOffset = continuousPrefetchDirsParsed;
+				continuousPrefetching = true;
+			} else
+				stopPrefetching();
+		}
+		if((filePrefetcher == null) && (dirs != null) && (readInErrorCodes == null) && (prefetchFileCount > 0)) {
+			filePrefetcher = new FilePrefetcher(dirs, prefetchFileCount, prefetchMemoryBudget, useCacheFiles && (sampleFilter == null));
+			filePrefetcher.start();
+		}
+		
 		for(int i=0; i<parserThreads.length; i++) {
 			parserThreads[i] = new ParserThread();
 			parserThreads[i].setParent(this);
@@ -96,12 +325,24 @@ public class ParallelParser {
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
+		
+		if(continuousPrefetching) {
+			continuousPrefetchDirsParsed += dirs.length;
+			if(stopParsing || (continuousPrefetchDirsParsed == continuousPrefetchDirs.length))
+				stopPrefetching();
+		} else if(filePrefetcher != null)
+			stopAndJoin(filePrefetcher);
+		filePrefetcher = null;
 	}
 	
-	public int getNextTrajectoryIndexToParse() {
+	/**
+	 * Returns the index of the next trajectory to be parsed (called by the parser threads; synchronized, so each index is handed to exactly one thread, which is required for the buffers of FilePrefetcher to be taken and released).
+	 * @return Index of the trajectory; -1 if all trajectories are handed out or parsing is stopped
+	 */
+	public synchronized int getNextTrajectoryIndexToParse() {
 		if(stopParsing)
 			return -1;
-		if(nextTrajectoryIndexToParse < dirs.length) {
+		if(nextTrajectoryIndexToParse < trajectoryStateVectorsData4Array.length) {
 			nextTrajectoryIndexToParse++;
 			return nextTrajectoryIndexToParse-1;
 		} else
@@ -141,6 +382,9 @@ public class ParallelParser {
 	 */
 	public void stopParsing() {
 		stopParsing = true;
+		FilePrefetcher filePrefetcher = this.filePrefetcher;
+		if(filePrefetcher != null)
+			filePrefetcher.stopPrefetching();
 	}
 
 	/**
@@ -1,5 +1,7 @@
 package de.tu_bs.iff.adsb.dataparser.parallel;
 
+import java.nio.ByteBuffer;
+
 import de.tu_bs.iff.adsb.dataparser.lib.*;
 
 public class ParserThread extends Thread {
@@ -7,16 +9,37 @@ public class ParserThread extends Thread {
 	ParallelParser parent;
 	
 	private boolean filterRedundantSamples;
+	private boolean memoryMappedInput;
+	private TrajectoryStateVectorsData4.DuplicateTimestampPolicy duplicateTimestampPolicy;
+	private boolean pipelineChannelsOnly;
+	private boolean useCacheFiles;
+	private SampleFilter sampleFilter;
+	private boolean dropDuplicateRows;
+	private boolean lazyChannels;
+	private int medianFilterWindowSize;
+	private TrajectoryVertical.RedundancyFilterMode redundancyFilterMode;
+	private FilePrefetcher filePrefetcher;
+	private int prefetchIndexOffset;
 	
 	private TrajectoryStateVectorsData4 trajectoryStateVectorsData4;
 	private TrajectoryVertical trajectoryVertical;
 	private TrajectoryHorizontal trajectoryHorizontal;
 	private TrajectoryMerged trajectoryMerged;
-	private String dir;
 	
 	public void setParent(ParallelParser parent) {
 		this.parent = parent;
 		this.filterRedundantSamples = parent.filterRedundantSamples;
+		this.memoryMappedInput = parent.memoryMappedInput;
+		this.duplicateTimestampPolicy = parent.duplicateTimestampPolicy;
+		this.pipelineChannelsOnly = parent.pipelineChannelsOnly;
+		this.useCacheFiles = parent.useCacheFiles && (parent.sampleFilter == null);		// (cache files do not contain samples rejected by a sample filter)
+		this.sampleFilter = parent.sampleFilter;
+		this.dropDuplicateRows = parent.dropDuplicateRows;
+		this.lazyChannels = parent.lazyChannels;
+		this.medianFilterWindowSize = parent.medianFilterWindowSize;
+		this.redundancyFilterMode = parent.redundancyFilterMode;
+		this.filePrefetcher = parent.filePrefetcher;
+		this.prefetchIndexOffset = parent.prefetchIndexOffset;
 	}
 	
 	@Override public void run() {
@@ -27,9 +50,10 @@ public class ParserThread extends Thread {
 			trajectoryVertical = parent.trajectoryVerticalArray[trajectoryIndex];
 			trajectoryHorizontal = parent.trajectoryHorizontalArray[trajectoryIndex];
 			trajectoryMerged = parent.trajectoryMergedArray[trajectoryIndex];
-			dir = parent.dirs[trajectoryIndex];
-			
-			parent.errorCodes[trajectoryIndex] = parseTrajectory();
+			if(parent.readInErrorCodes == null)
+				parent.errorCodes[trajectoryIndex] = parseTrajectory(parent.dirs[trajectoryIndex], trajectoryIndex);
+			else
+				parent.errorCodes[trajectoryIndex] = parseTrajectory(parent.readInErrorCodes[trajectoryIndex]);
 			if(parent.errorCodes[trajectoryIndex] >= 0) {
 				parent.reliabilityMetrics[trajectoryIndex] = trajectoryMerged.getReliabilityMetric();
 				parent.completenessMetrics[trajectoryIndex] = trajectoryMerged.getCompletenessMetric(parent.airportDatabase);
@@ -38,16 +62,56 @@ public class ParserThread extends Thread {
 		}
 	}
 	
-	private int parseTrajectory() {
+	private int parseTrajectory(String dir, int trajectoryIndex) {
 		int errorCode;
 		
-		errorCode = trajectoryStateVectorsData4.readInInterfaceDataFile(dir);
+		ByteBuffer prefetchedBuffer = null;
+		if(filePrefetcher != null)
+			prefetchedBuffer = filePrefetcher.takeBuffer(prefetchIndexOffset+trajectoryIndex);		// (always taken, so the prefetcher can proceed)
+		
+		trajectoryStateVectorsData4.setDuplicateTimestampPolicy(duplicateTimestampPolicy);
+		trajectoryStateVectorsData4.setPipelineChannelsOnly(pipelineChannelsOnly);
+		trajectoryStateVectorsData4.setSampleFilter(sampleFilter);
+		trajectoryStateVectorsData4.setDropDuplicateRows(dropDuplicateRows);
+		trajectoryStateVectorsData4.setCallsignTable(parent.callsignTable);
+		trajectoryStateVectorsData4.setLazyChannels(lazyChannels && (prefetchedBuffer == null) && !useCacheFiles);		// (lazy channels would keep the pooled buffer referenced; cache files require all channels)
+		
+		String cacheFileDir = TrajectoryCacheFile.getCacheFileDir(dir);
+		if(useCacheFiles && TrajectoryCacheFile.isUpToDate(cacheFileDir, dir)) {
+			errorCode = trajectoryStateVectorsData4.readInCacheFile(cacheFileDir);
+			if(errorCode >= 0) {
+				if(prefetchedBuffer != null)
+					filePrefetcher.releaseBuffer(prefetchedBuffer);
+				return parseTrajectory(errorCode);
+			}
+			// (invalid or not matching cache file: read in log-file and rewrite cache file)
+		}
+		
+		if(prefetchedBuffer != null) {
+			errorCode = trajectoryStateVectorsData4.readInInterfaceDataBuffer(prefetchedBuffer);
+			filePrefetcher.releaseBuffer(prefetchedBuffer);
+			prefetchedBuffer = null;
+		} else if(memoryMappedInput)
+			errorCode = trajectoryStateVectorsData4.readInInterfaceDataMappedFile(dir);
+		else
+			errorCode = trajectoryStateVectorsData4.readInInterfaceDataFile(dir);
+		
+		if(useCacheFiles && (errorCode >= 0))
+			trajectoryStateVectorsData4.writeCacheFile(cacheFileDir, errorCode);
+		
+		return parseTrajectory(errorCode);
+	}
+	
+	private int parseTrajectory(int readInErrorCode) {
+		int errorCode = readInErrorCode;
 		if(errorCode < 0)
 			return errorCode;
 		
 		errorCode = trajectoryVertical.setRawTrajectoryFromStateVectorsData4(trajectoryStateVectorsData4);
 		if(errorCode < 0)
 			return errorCode;
+		trajectoryVertical.setMedianFilterWindowSize(medianFilterWindowSize);
+		trajectoryVertical.setRedundancyFilterMode(redundancyFilterMode);
 		errorCode = trajectoryVertical.parseTrajectory(filterRedundantSamples);
 		if(errorCode < 0)
 			return errorCode;
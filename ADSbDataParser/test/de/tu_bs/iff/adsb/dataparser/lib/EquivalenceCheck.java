@@ -0,0 +1,803 @@
+package de.tu_bs.iff.adsb.dataparser.lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Randomized equivalence checks of the optimized parts of the parser against reference implementations (mostly the former implementations, kept here as reference).
+ * Each check prints the number of compared cases and differences (and the first difference); the exit status is 1 if any check found a difference.
+ * Located within the source folder test (not part of the jar) in package lib, so package-private steps of the parsing (e.g. TrajectoryVertical.filterMovingMedianBaroAlt()) are called directly.
+ * Compile src and test together: javac -d out $(find src test -name "*.java")
+ * Command line syntax: java -cp out de.tu_bs.iff.adsb.dataparser.lib.EquivalenceCheck [SEED]
+ */
+public class EquivalenceCheck {
+	private static int failedCheckCount = 0;
+
+	public static void main(String[] args) throws IOException {
+		long seed = 1;
+		if(args.length >= 1)
+			seed = Long.parseLong(args[0]);
+		System.out.println("Seed: " + seed);
+
+		checkSampleValueParser(new Random(seed));
+		checkSampleLineTokenizer(new Random(seed));
+		checkCacheFileRoundTrip(new Random(seed));
+		checkCompactTimeColumn(new Random(seed));
+		checkMovingMedian(new Random(seed));
+		checkRetainedSampleIndex(new Random(seed));
+		checkBatchInterpolation(new Random(seed));
+		checkCruiseIndices(new Random(seed));
+
+		if(failedCheckCount > 0) {
+			System.out.println(failedCheckCount + " check(s) with differences");
+			System.exit(1);
+		}
+		System.out.println("No differences");
+	}
+
+	private static void report(String check, long caseCount, long differenceCount, String firstDifference) {
+		System.out.println(String.format(Locale.US, "%s: %d cases, %d differences", check, caseCount, differenceCount));
+		if(differenceCount > 0) {
+			System.out.println("  first difference: " + firstDifference);
+			failedCheckCount++;
+		}
+	}
+
+	// SampleValueParser ...
+	private static final String[] SAMPLE_VALUE_EDGE_CASES = {
+		"0", "-0", "-0.0", "0.0", "1.", "-.5", ".5", "+1", "1e5", "1E-5", "1.5f", "1.5d", "NaN", "-Infinity", "Infinity", "NULL", "true", "false",
+		"", "-", "+", ".", "+.e1", "1e", "1e+", "1..2", "1.2.3", "12e3.4", "abc", "00012.5000", "1.7976931348623157E308", "4.9E-324", "1e400", "1e-400",
+		"123456789012345678901234567890", "9007199254740993", "9007199254740992.0", "1494235200.6460000", "50.03712463378906",
+		"2147483647", "-2147483648", "2147483648", "-2147483649", "+7000", "7000", "99999999999999"
+	};
+
+	/**
+	 * SampleValueParser.parseDouble(), parseInt() and parseBoolean() compared with Double.parseDouble(), Integer.parseInt() and the former boolean parsing,
+	 * for generated values in the formats of OpenSky logs and random formats (bit-identical doubles required)
+	 */
+	private static void checkSampleValueParser(Random random) {
+		ArrayList<String> values = new ArrayList<String>();
+		for(String value : SAMPLE_VALUE_EDGE_CASES)
+			values.add(value);
+		for(int i=0; i<500000; i++)
+			values.add(randomSampleValue(random));
+
+		double[] doubleValue = new double[1];
+		int[] intValue = new int[1];
+		boolean[] booleanValue = new boolean[1];
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(String value : values) {
+			byte[] line = value.getBytes(StandardCharsets.ISO_8859_1);
+
+			int doubleStatus = SampleValueParser.parseDouble(line, 0, line.length, doubleValue, 0);
+			int intStatus = SampleValueParser.parseInt(line, 0, line.length, intValue, 0);
+			int booleanStatus = SampleValueParser.parseBoolean(line, 0, line.length, booleanValue, 0);
+
+			String difference = null;
+			if(value.equals("NULL")) {
+				if((doubleStatus != SampleValueParser.STATUS_NULL) || (intStatus != SampleValueParser.STATUS_NULL) || (booleanStatus != SampleValueParser.STATUS_NULL))
+					difference = "NULL not detected";
+			} else {
+				Double referenceDouble = null;
+				try {
+					referenceDouble = Double.parseDouble(value);
+				} catch(NumberFormatException e) {
+				}
+				if(referenceDouble == null) {
+					if(doubleStatus != SampleValueParser.STATUS_ERROR)
+						difference = "parseDouble() accepted an invalid value";
+				} else if((doubleStatus != SampleValueParser.STATUS_VALUE) || (Double.doubleToRawLongBits(referenceDouble) != Double.doubleToRawLongBits(doubleValue[0])))
+					difference = "parseDouble(): " + (doubleStatus == SampleValueParser.STATUS_VALUE ? doubleValue[0] : "status " + doubleStatus) + ", Double.parseDouble(): " + referenceDouble;
+
+				Integer referenceInt = null;
+				try {
+					referenceInt = Integer.parseInt(value);
+				} catch(NumberFormatException e) {
+				}
+				if(referenceInt == null) {
+					if(intStatus != SampleValueParser.STATUS_ERROR)
+						difference = "parseInt() accepted an invalid value";
+				} else if((intStatus != SampleValueParser.STATUS_VALUE) || (intValue[0] != referenceInt))
+					difference = "parseInt(): " + (intStatus == SampleValueParser.STATUS_VALUE ? intValue[0] : "status " + intStatus) + ", Integer.parseInt(): " + referenceInt;
+
+				boolean referenceValid = value.equals("true") || value.equals("false");		// (former parsing: only "true" and "false" are valid)
+				if((booleanStatus == SampleValueParser.STATUS_VALUE) != referenceValid || (referenceValid && (booleanValue[0] != value.equals("true"))))
+					difference = "parseBoolean(): status " + booleanStatus;
+			}
+			if(difference != null) {
+				differenceCount++;
+				if(firstDifference == null)
+					firstDifference = "'" + value + "': " + difference;
+			}
+		}
+		report("SampleValueParser vs Double.parseDouble()/Integer.parseInt()", values.size(), differenceCount, firstDifference);
+	}
+
+	/**
+	 * Returns a random sample-value: coordinates, timestamps, altitudes, random bit patterns and magnitudes, formatted as by Double.toString(), String.format(), BigDecimal or as float
+	 * (hexadecimal values are not generated, they are not accepted by SampleValueParser.parseDouble())
+	 */
+	private static String randomSampleValue(Random random) {
+		double value;
+		switch(random.nextInt(7)) {
+		case 0:
+			value = random.nextDouble()*360-180;
+			break;
+		case 1:
+			value = 1.49e9 + random.nextDouble()*1e7;
+			break;
+		case 2:
+			value = Math.round(random.nextDouble()*12000*100)/100.0;
+			break;
+		case 3:
+			value = Double.longBitsToDouble(random.nextLong());
+			if(Double.isNaN(value) || Double.isInfinite(value))
+				value = 1.5;
+			break;
+		case 4:
+			value = random.nextGaussian()*Math.pow(10, random.nextInt(40)-20);
+			break;
+		case 5:
+			return Integer.toString(random.nextInt(20000)-10000);
+		default:
+			value = random.nextInt(100000)/1000.0;
+			break;
+		}
+		switch(random.nextInt(5)) {
+		case 0:
+			return Double.toString(value);
+		case 1:
+			return String.format(Locale.US, "%." + random.nextInt(12) + "f", value);
+		case 2:
+			return String.format(Locale.US, "%." + random.nextInt(17) + "E", value);
+		case 3:
+			return new BigDecimal(value).round(new MathContext(1+random.nextInt(19))).toPlainString();
+		default:
+			return String.valueOf((float)value);
+		}
+	}
+	// ... SampleValueParser
+
+	// SampleLineTokenizer ...
+	/**
+	 * SampleLineTokenizer (columns, column Strings, comparison, hash codes) and SampleValueParser on the column ranges compared with the former splitting
+	 * (spaces removed, String.split() at '|') and parsing of the split line-elements, for generated lines with blanks around the columns
+	 */
+	private static void checkSampleLineTokenizer(Random random) {
+		SampleLineTokenizer tokenizer = new SampleLineTokenizer();
+		double[] doubleValue = new double[1];
+		long caseCount = 0;
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(int i=0; i<200000; i++) {
+			String lineString = randomSampleLine(random);
+			byte[] line = lineString.getBytes(StandardCharsets.ISO_8859_1);
+			tokenizer.tokenize(line, line.length);
+			String[] lineElements = lineString.replace(" ", "").replace('|', ';').split(";");
+
+			String difference = null;
+			if(tokenizer.getColumnCount() < lineElements.length)
+				difference = "column count " + tokenizer.getColumnCount() + ", split: " + lineElements.length;
+			for(int column=0; (column<tokenizer.getColumnCount()) && (difference == null); column++) {
+				String lineElement = (column < lineElements.length) ? lineElements[column] : "";		// (String.split() removes trailing empty line-elements)
+				if(!tokenizer.getColumnString(column).equals(lineElement) || !tokenizer.columnEquals(column, lineElement) || (tokenizer.columnHashCode(column) != lineElement.hashCode()))
+					difference = "column " + column + ": '" + tokenizer.getColumnString(column) + "', split: '" + lineElement + "'";
+				else {
+					int status = SampleValueParser.parseDouble(line, tokenizer.getColumnStart(column), tokenizer.getColumnEnd(column), doubleValue, 0);
+					Double referenceValue = null;
+					try {
+						referenceValue = Double.parseDouble(lineElement);
+					} catch(NumberFormatException e) {
+					}
+					boolean equal;
+					if(lineElement.equals("NULL"))
+						equal = (status == SampleValueParser.STATUS_NULL);
+					else if(referenceValue == null)
+						equal = (status == SampleValueParser.STATUS_ERROR);
+					else
+						equal = (status == SampleValueParser.STATUS_VALUE) && (Double.doubleToRawLongBits(referenceValue) == Double.doubleToRawLongBits(doubleValue[0]));
+					if(!equal)
+						difference = "column " + column + ": value of '" + lineElement + "' differs";
+				}
+			}
+			caseCount++;
+			if(difference != null) {
+				differenceCount++;
+				if(firstDifference == null)
+					firstDifference = "'" + lineString + "': " + difference;
+			}
+		}
+		report("SampleLineTokenizer + SampleValueParser vs String.split()", caseCount, differenceCount, firstDifference);
+	}
+
+	/**
+	 * Returns a random sample line in Impala-Shell / PuTTY format (leading '|') or Trino format, with random blanks around the columns and empty columns
+	 */
+	private static String randomSampleLine(Random random) {
+		StringBuilder line = new StringBuilder();
+		if(random.nextBoolean())
+			line.append('|');
+		int columnCount = 1+random.nextInt(20);
+		for(int column=0; column<columnCount; column++) {
+			if(column > 0)
+				line.append('|');
+			appendBlanks(line, random);
+			switch(random.nextInt(6)) {
+			case 0:
+				line.append("NULL");
+				break;
+			case 1:
+				line.append(random.nextBoolean() ? "true" : "false");
+				break;
+			case 2:
+				line.append(String.format(Locale.US, "%06x", random.nextInt(1 << 24)));
+				break;
+			case 3:
+				break;		// (empty column)
+			default:
+				line.append(randomSampleValue(random));
+				break;
+			}
+			appendBlanks(line, random);
+		}
+		if(random.nextInt(4) == 0)
+			line.append('|');
+		return line.toString();
+	}
+
+	private static void appendBlanks(StringBuilder line, Random random) {
+		int blankCount = (random.nextInt(3) == 0) ? random.nextInt(8) : 0;
+		for(int i=0; i<blankCount; i++)
+			line.append(' ');
+	}
+	// ... SampleLineTokenizer
+
+	// TrajectoryCacheFile ...
+	/**
+	 * Read-in of a cache file (TrajectoryStateVectorsData4.readInCacheFile()) compared with the read-in of the log it was written from, 
+	 * for random logs (NULL values, unparseable values, equal and unsorted timestamps) with all duplicate timestamp policies and with and without column projection; 
+	 * read-ins with other settings than the cache file was written with have to be rejected (-8). 
+	 * Cache files written from read-ins with lazy channels have to return the error code of the read-in parsing all channels, or must not be written (-3) if sample-values are not parseable
+	 */
+	private static void checkCacheFileRoundTrip(Random random) throws IOException {
+		File cacheFile = File.createTempFile("EquivalenceCheck", TrajectoryCacheFile.FILE_EXTENSION);
+		cacheFile.deleteOnExit();
+		long caseCount = 0;
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(int i=0; i<200; i++) {
+			String logString = randomLog(random);
+			byte[] log = logString.getBytes(StandardCharsets.ISO_8859_1);
+			boolean unparseableValues = logString.contains(UNPARSEABLE_VALUE);
+			for(TrajectoryStateVectorsData4.DuplicateTimestampPolicy duplicateTimestampPolicy : TrajectoryStateVectorsData4.DuplicateTimestampPolicy.values())
+				for(boolean pipelineChannelsOnly : new boolean[] {false, true}) {
+					TrajectoryStateVectorsData4 trajectory = new TrajectoryStateVectorsData4();
+					trajectory.setDuplicateTimestampPolicy(duplicateTimestampPolicy);
+					trajectory.setPipelineChannelsOnly(pipelineChannelsOnly);
+					int errorCode = trajectory.readInInterfaceDataBuffer(ByteBuffer.wrap(log));
+					if(errorCode < 0)
+						continue;
+
+					String difference = null;
+					if(trajectory.writeCacheFile(cacheFile.getPath(), errorCode) != 0)
+						difference = "cache file not written";
+					else {
+						TrajectoryStateVectorsData4 cachedTrajectory = new TrajectoryStateVectorsData4();
+						cachedTrajectory.setDuplicateTimestampPolicy(duplicateTimestampPolicy);
+						cachedTrajectory.setPipelineChannelsOnly(pipelineChannelsOnly);
+						int cachedErrorCode = cachedTrajectory.readInCacheFile(cacheFile.getPath());
+						if(cachedErrorCode != errorCode)
+							difference = "error code " + cachedErrorCode + ", log: " + errorCode;
+						else if(!trajectory.icao24.equals(cachedTrajectory.icao24) || !trajectory.callsign.equals(cachedTrajectory.callsign))
+							difference = "icao24/callsign";
+						else if(!Arrays.deepEquals(trajectory.getDoubleTableMatrix(), cachedTrajectory.getDoubleTableMatrix()))
+							difference = "table";
+					}
+
+					TrajectoryStateVectorsData4 otherSettingsTrajectory = new TrajectoryStateVectorsData4();
+					otherSettingsTrajectory.setDuplicateTimestampPolicy((duplicateTimestampPolicy == TrajectoryStateVectorsData4.DuplicateTimestampPolicy.DROP) ? TrajectoryStateVectorsData4.DuplicateTimestampPolicy.KEEP_ALL : TrajectoryStateVectorsData4.DuplicateTimestampPolicy.DROP);
+					if((difference == null) && (otherSettingsTrajectory.readInCacheFile(cacheFile.getPath()) != -8))
+						difference = "other duplicate timestamp policy not rejected";
+					if(pipelineChannelsOnly && (difference == null) && (new TrajectoryStateVectorsData4().readInCacheFile(cacheFile.getPath()) != -8))
+						difference = "cache file with pipeline channels only not rejected for all channels";
+
+					if(difference == null) {
+						TrajectoryStateVectorsData4 lazyTrajectory = new TrajectoryStateVectorsData4();
+						lazyTrajectory.setDuplicateTimestampPolicy(duplicateTimestampPolicy);
+						lazyTrajectory.setPipelineChannelsOnly(pipelineChannelsOnly);
+						lazyTrajectory.setLazyChannels(true);
+						int lazyErrorCode = lazyTrajectory.readInInterfaceDataBuffer(ByteBuffer.wrap(log));
+						int writeErrorCode = lazyTrajectory.writeCacheFile(cacheFile.getPath(), lazyErrorCode);
+						if(writeErrorCode == -3) {
+							if(!unparseableValues)
+								difference = "lazy channels: cache file not written without unparseable values";
+						} else if(writeErrorCode != 0)
+							difference = "lazy channels: cache file not written (" + writeErrorCode + ")";
+						else {
+							TrajectoryStateVectorsData4 cachedTrajectory = new TrajectoryStateVectorsData4();
+							cachedTrajectory.setDuplicateTimestampPolicy(duplicateTimestampPolicy);
+							cachedTrajectory.setPipelineChannelsOnly(pipelineChannelsOnly);
+							int cachedErrorCode = cachedTrajectory.readInCacheFile(cacheFile.getPath());
+							if(cachedErrorCode != errorCode)
+								difference = "lazy channels: error code " + cachedErrorCode + ", log: " + errorCode;
+							else if(!Arrays.deepEquals(trajectory.getDoubleTableMatrix(), cachedTrajectory.getDoubleTableMatrix()))
+								difference = "lazy channels: table";
+						}
+					}
+
+					caseCount++;
+					if(difference != null) {
+						differenceCount++;
+						if(firstDifference == null)
+							firstDifference = duplicateTimestampPolicy + (pipelineChannelsOnly ? ", pipeline channels only: " : ": ") + difference;
+					}
+				}
+		}
+		cacheFile.delete();
+		report("Cache file vs log read-in", caseCount, differenceCount, firstDifference);
+	}
+
+	private static final String UNPARSEABLE_VALUE = "abc";
+
+	/**
+	 * Returns a random log of one trajectory in Trino format (header line, NULL values; equal and unsorted timestamps within half of the logs, unparseable values within a third of the logs)
+	 */
+	private static String randomLog(Random random) {
+		StringBuilder log = new StringBuilder();
+		log.append("trino:osky> SELECT * FROM state_vectors_data4;\n");
+		log.append("    time    | icao24 | lat | lon | velocity | heading | vertrate | callsign | onground | alert | spi | squawk | baroaltitude | geoaltitude | lastposupdate | lastcontact | hour\n");
+		log.append("------------+--------+-----+-----+----------+---------+----------+----------+----------+-------+-----+--------+--------------+-------------+---------------+-------------+------\n");
+		String icao24 = String.format(Locale.US, "%06x", random.nextInt(1 << 24));
+		String callsign = String.format(Locale.US, "%-8s", "DLH" + random.nextInt(1000));
+		int numberOfSamples = random.nextInt(500);
+		boolean unsortedTimestamps = random.nextBoolean();
+		int unparseableValueRate = (random.nextInt(3) == 0) ? 1+random.nextInt(1000) : 0;		// (1 of unparseableValueRate values)
+		int time = 1494235200;
+		for(int i=0; i<numberOfSamples; i++) {
+			if(unsortedTimestamps)
+				time += (random.nextInt(10) == 0) ? -random.nextInt(3) : random.nextInt(6);		// (equal and unsorted timestamps)
+			else
+				time += 1+random.nextInt(5);
+			log.append(' ').append(time).append(" | ").append(icao24);
+			appendLogValue(log, random, Double.toString(50+random.nextDouble()), unparseableValueRate);
+			appendLogValue(log, random, Double.toString(8+random.nextDouble()), unparseableValueRate);
+			appendLogValue(log, random, Double.toString(random.nextDouble()*250), unparseableValueRate);
+			appendLogValue(log, random, Double.toString(random.nextDouble()*360), unparseableValueRate);
+			appendLogValue(log, random, Double.toString(random.nextGaussian()*10), unparseableValueRate);
+			log.append(" | ").append(callsign);
+			appendLogValue(log, random, Boolean.toString(random.nextBoolean()), unparseableValueRate);
+			appendLogValue(log, random, Boolean.toString(random.nextBoolean()), unparseableValueRate);
+			appendLogValue(log, random, Boolean.toString(random.nextBoolean()), unparseableValueRate);
+			appendLogValue(log, random, Integer.toString(random.nextInt(7777)), unparseableValueRate);
+			appendLogValue(log, random, Double.toString(random.nextDouble()*12000), unparseableValueRate);
+			appendLogValue(log, random, Double.toString(random.nextDouble()*12000), unparseableValueRate);
+			appendLogValue(log, random, String.format(Locale.US, "%.3f", time-random.nextDouble()*5), unparseableValueRate);
+			appendLogValue(log, random, String.format(Locale.US, "%.3f", time-random.nextDouble()), unparseableValueRate);
+			log.append(" | ").append(time-time%3600).append('\n');
+		}
+		return log.toString();
+	}
+
+	private static void appendLogValue(StringBuilder log, Random random, String value, int unparseableValueRate) {
+		if((unparseableValueRate > 0) && (random.nextInt(unparseableValueRate) == 0))
+			value = UNPARSEABLE_VALUE;
+		log.append(" | ").append((random.nextInt(8) == 0) ? "NULL" : value);
+	}
+	// ... TrajectoryCacheFile
+
+	// CompactTimeColumn ...
+	/**
+	 * CompactTimeColumn (random access, iterators from each start index, decoding of all and of selected samples) compared with the int[] it was built from, 
+	 * for time channels with small steps, negative steps and large jumps, around the checkpoint interval
+	 */
+	private static void checkCompactTimeColumn(Random random) {
+		long caseCount = 0;
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(int i=0; i<500; i++) {
+			int numberOfSamples = (i < 20) ? i*CompactTimeColumn.CHECKPOINT_INTERVAL/4 : random.nextInt(5000);
+			int[] time = new int[numberOfSamples];
+			int timestamp = random.nextInt();
+			for(int j=0; j<numberOfSamples; j++) {
+				timestamp += (random.nextInt(10) == 0) ? random.nextInt() : random.nextInt(12)-1;
+				time[j] = timestamp;
+			}
+			long[] selection = ValidityMask.allocate(numberOfSamples);
+			int selectedCount = 0;
+			for(int j=0; j<numberOfSamples; j++)
+				if(random.nextBoolean()) {
+					ValidityMask.set(selection, j, true);
+					selectedCount++;
+				}
+
+			CompactTimeColumn column = CompactTimeColumn.fromArray(time);
+			String difference = null;
+			if(column.size() != numberOfSamples)
+				difference = "size " + column.size();
+			for(int j=0; (j<numberOfSamples) && (difference == null); j++)
+				if(column.get(j) != time[j])
+					difference = "get(" + j + ")";
+			for(int startIndex=0; (startIndex<=numberOfSamples) && (difference == null); startIndex+=1+random.nextInt(16)) {
+				PrimitiveIterator.OfInt iterator = column.iterator(startIndex);
+				for(int j=startIndex; (j<numberOfSamples) && (difference == null); j++)
+					if(iterator.nextInt() != time[j])
+						difference = "iterator(" + startIndex + ") at " + j;
+				if((difference == null) && iterator.hasNext())
+					difference = "iterator(" + startIndex + ") behind the end";
+			}
+			double[] decodedTime = column.toDoubleArray();
+			for(int j=0; (j<numberOfSamples) && (difference == null); j++)
+				if(decodedTime[j] != time[j])
+					difference = "toDoubleArray() at " + j;
+			double[] selectedTime = new double[selectedCount];
+			column.decode(selection, selectedTime);
+			int selectedIndex = 0;
+			for(int j=ValidityMask.nextSetBit(selection, 0); (j>=0) && (difference == null); j=ValidityMask.nextSetBit(selection, j+1))
+				if(selectedTime[selectedIndex++] != time[j])
+					difference = "decode(selection) at " + j;
+
+			caseCount++;
+			if(difference != null) {
+				differenceCount++;
+				if(firstDifference == null)
+					firstDifference = numberOfSamples + " samples: " + difference;
+			}
+		}
+		report("CompactTimeColumn vs int[]", caseCount, differenceCount, firstDifference);
+	}
+	// ... CompactTimeColumn
+
+	// moving median ...
+	/**
+	 * TrajectoryVertical.filterMovingMedianBaroAlt() (two-heap sliding window, see class SlidingWindowMedian) compared with the former filter (window refilled and sorted for each sample), 
+	 * for random tables with repeated values, invalid samples and window sizes 1 to 61 (bit-identical results required)
+	 */
+	private static void checkMovingMedian(Random random) {
+		TrajectoryVertical trajectoryVertical = new TrajectoryVertical();
+		long differenceCount = 0;
+		String firstDifference = null;
+		int caseCount = 5000;
+		for(int i=0; i<caseCount; i++) {
+			int numberOfSamples = random.nextInt(300);
+			int halfWindowSize = (i%10 == 0) ? 30 : random.nextInt(8);
+			double validProbability = random.nextDouble();
+			TableVertical table = new TableVertical();
+			table.allocateArrayMemory(numberOfSamples);
+			for(int j=0; j<numberOfSamples; j++) {
+				table.baroAlt[j] = (random.nextInt(3) == 0) ? random.nextInt(5)*100 : random.nextGaussian()*1000;		// (repeated values)
+				table.vaSample[j] = random.nextDouble() < validProbability;
+			}
+
+			double[] baroAltReference = filterMovingMedianBaroAltReference(table.baroAlt, table.vaSample, halfWindowSize);
+			trajectoryVertical.filterMovingMedianBaroAlt(table, halfWindowSize);
+			if(!Arrays.equals(baroAltReference, table.baroAlt)) {
+				differenceCount++;
+				if(firstDifference == null)
+					firstDifference = numberOfSamples + " samples, half window size " + halfWindowSize;
+			}
+		}
+		report("Moving median (two heaps) vs sorted window", caseCount, differenceCount, firstDifference);
+	}
+
+	/**
+	 * Former TrajectoryVertical.filterMovingMedianBaroAlt() (reference)
+	 */
+	private static double[] filterMovingMedianBaroAltReference(double[] baroAlt, boolean[] vaSample, int halfWindowSize) {
+		double[] windowValues = new double[2*halfWindowSize+1];
+		double[] channelFiltered = new double[baroAlt.length];
+		for(int i=0; i<baroAlt.length; i++) {
+			windowValues[0] = baroAlt[i];
+			int windowSize = 1;
+			int halfCount = 0;
+			for(int j=-1; (halfCount<halfWindowSize) && (i+j >= 0); j--)
+				if(vaSample[i+j]) {
+					windowValues[windowSize++] = baroAlt[i+j];
+					halfCount++;
+				}
+			halfCount = 0;
+			for(int j=1; (halfCount<halfWindowSize) && (i+j < baroAlt.length); j++)
+				if(vaSample[i+j]) {
+					windowValues[windowSize++] = baroAlt[i+j];
+					halfCount++;
+				}
+			for(int j=0; j<windowSize; j++)
+				for(int k=j+1; k<windowSize; k++)
+					if(windowValues[k] < windowValues[j]) {
+						double sortTmpValue = windowValues[j];
+						windowValues[j] = windowValues[k];
+						windowValues[k] = sortTmpValue;
+					}
+			if(windowSize%2 == 0)
+				channelFiltered[i] = (windowValues[windowSize/2]+windowValues[windowSize/2-1])/2;
+			else
+				channelFiltered[i] = windowValues[(int)Math.round((double)windowSize/2-0.5)];
+		}
+		return channelFiltered;
+	}
+	// ... moving median
+
+	// RetainedSampleIndex ...
+	/**
+	 * RetainedSampleIndex (retained samples, findRightIndex() and Cursor.findRightIndex() for non-decreasing timestamps with occasional decreases) compared with a linear scan of the table, 
+	 * for random tables with equal timestamps and query timestamps between, on and outside the samples
+	 */
+	private static void checkRetainedSampleIndex(Random random) {
+		long caseCount = 0;
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(int i=0; i<2000; i++) {
+			int numberOfSamples = random.nextInt(400);
+			double[] time = new double[numberOfSamples];
+			boolean[] vaSample = new boolean[numberOfSamples];
+			boolean[] vrSample = new boolean[numberOfSamples];
+			double timestamp = random.nextInt(1000);
+			for(int j=0; j<numberOfSamples; j++) {
+				timestamp += random.nextInt(4);		// (equal timestamps)
+				time[j] = timestamp;
+				vaSample[j] = random.nextInt(4) != 0;
+				vrSample[j] = random.nextInt(4) == 0;
+			}
+			ArrayList<Integer> retainedIndexes = new ArrayList<Integer>();
+			for(int j=0; j<numberOfSamples; j++)
+				if(vaSample[j] && !vrSample[j])
+					retainedIndexes.add(j);
+
+			RetainedSampleIndex retainedSamples = new RetainedSampleIndex(time, vaSample, vrSample);
+			String difference = null;
+			if(retainedSamples.size() != retainedIndexes.size())
+				difference = "size " + retainedSamples.size() + ", reference: " + retainedIndexes.size();
+			for(int j=0; (j<retainedSamples.size()) && (difference == null); j++)
+				if((retainedSamples.tableIndexes[j] != retainedIndexes.get(j)) || (retainedSamples.time[j] != time[retainedIndexes.get(j)]))
+					difference = "retained sample " + j;
+
+			RetainedSampleIndex.Cursor cursor = retainedSamples.cursor();
+			double queryTimestamp = (numberOfSamples > 0) ? time[0]-2 : 0;
+			for(int j=0; (j<3*numberOfSamples+5) && (difference == null); j++) {
+				if(random.nextInt(20) == 0)
+					queryTimestamp -= random.nextInt(50);		// (decreasing timestamp: cursor is repositioned)
+				else
+					queryTimestamp += random.nextInt(3)*0.5;
+				int rightIndexReference = 0;		// (linear scan: first retained sample not before queryTimestamp)
+				while((rightIndexReference < retainedIndexes.size()) && (time[retainedIndexes.get(rightIndexReference)] < queryTimestamp))
+					rightIndexReference++;
+				int rightIndex = retainedSamples.findRightIndex(queryTimestamp);
+				int cursorRightIndex = cursor.findRightIndex(queryTimestamp);
+				if((rightIndex != rightIndexReference) || (cursorRightIndex != rightIndexReference))
+					difference = String.format(Locale.US, "timestamp %.1f: findRightIndex() %d, Cursor %d, reference %d", queryTimestamp, rightIndex, cursorRightIndex, rightIndexReference);
+			}
+
+			caseCount++;
+			if(difference != null) {
+				differenceCount++;
+				if(firstDifference == null)
+					firstDifference = numberOfSamples + " samples: " + difference;
+			}
+		}
+		report("RetainedSampleIndex/Cursor vs linear scan", caseCount, differenceCount, firstDifference);
+	}
+
+	/**
+	 * RetainedSampleIndex.sortedOrder() compared with a stable sort of the indexes (Collections.sort()), and TrajectoryVertical.interpolateBaroAlt(double[] timestamps, double[] out) 
+	 * compared with the former interpolation (linear scan of the table for each timestamp), for unsorted and sorted timestamps with NaN, 
+	 * more and fewer timestamps than retained samples (merge and binary search) (bit-identical results required)
+	 */
+	private static void checkBatchInterpolation(Random random) {
+		long caseCount = 0;
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(int i=0; i<1000; i++) {
+			int numberOfSamples = 1+random.nextInt(400);
+			TrajectoryVertical trajectoryVertical = new TrajectoryVertical();
+			TableVertical table = trajectoryVertical.table;
+			table.allocateArrayMemory(numberOfSamples);
+			double timestamp = random.nextInt(1000);
+			for(int j=0; j<numberOfSamples; j++) {
+				timestamp += 1+random.nextInt(10);
+				table.time[j] = timestamp;
+				table.baroAlt[j] = 30000 + random.nextGaussian()*2000;
+				table.vaSample[j] = random.nextInt(4) != 0;
+				table.vrSample[j] = random.nextInt(4) == 0;
+			}
+			final double[] timestamps = new double[(random.nextBoolean()) ? random.nextInt(numberOfSamples/4+1) : numberOfSamples+random.nextInt(2000)];
+			for(int j=0; j<timestamps.length; j++) {
+				switch(random.nextInt(5)) {
+				case 0:
+					timestamps[j] = table.time[random.nextInt(numberOfSamples)];		// (on a sample)
+					break;
+				case 1:
+					timestamps[j] = Double.NaN;
+					break;
+				default:
+					timestamps[j] = table.time[0]-20 + (table.time[numberOfSamples-1]-table.time[0]+40)*random.nextDouble();
+					break;
+				}
+			}
+			if(random.nextInt(4) == 0)
+				Arrays.sort(timestamps);
+
+			String difference = null;
+			ArrayList<Integer> orderReference = new ArrayList<Integer>();
+			for(int j=0; j<timestamps.length; j++)
+				if(!Double.isNaN(timestamps[j]))
+					orderReference.add(j);
+			Collections.sort(orderReference, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer index1, Integer index2) {
+					return Double.compare(timestamps[index1], timestamps[index2]);
+				}
+			});
+			int[] order = RetainedSampleIndex.sortedOrder(timestamps);
+			if(order.length != orderReference.size())
+				difference = "sortedOrder(): " + order.length + " indexes, reference: " + orderReference.size();
+			for(int j=0; (j<order.length) && (difference == null); j++)
+				if(order[j] != orderReference.get(j))
+					difference = "sortedOrder() at " + j;
+
+			double[] out = new double[timestamps.length];
+			trajectoryVertical.interpolateBaroAlt(timestamps, out);
+			for(int j=0; (j<timestamps.length) && (difference == null); j++) {
+				double baroAltReference = interpolateBaroAltReference(table, timestamps[j]);
+				if(baroAltReference == Double.MAX_VALUE)
+					baroAltReference = Double.NaN;
+				if(Double.doubleToLongBits(out[j]) != Double.doubleToLongBits(baroAltReference))
+					difference = String.format(Locale.US, "timestamp %.3f: %f, reference: %f", timestamps[j], out[j], baroAltReference);
+			}
+
+			caseCount++;
+			if(difference != null) {
+				differenceCount++;
+				if(firstDifference == null)
+					firstDifference = numberOfSamples + " samples, " + timestamps.length + " timestamps: " + difference;
+			}
+		}
+		report("sortedOrder()/batch interpolateBaroAlt() vs stable sort/linear scan", caseCount, differenceCount, firstDifference);
+	}
+
+	/**
+	 * Former TrajectoryVertical.interpolateBaroAlt() (reference)
+	 */
+	private static double interpolateBaroAltReference(TableVertical table, double timestamp) {
+		int leftIndex = -1;
+		int rightIndex = -1;
+		for(int i=0; i<table.vaSample.length; i++) {
+			if(!table.vaSample[i] || table.vrSample[i])
+				continue;
+			if(table.time[i] >= timestamp) {
+				rightIndex = i;
+				break;
+			}
+			leftIndex = i;
+		}
+		if(rightIndex == -1)
+			return Double.MAX_VALUE;
+		if(timestamp == table.time[rightIndex])
+			return table.baroAlt[rightIndex];
+		if(leftIndex == -1)
+			return Double.MAX_VALUE;
+		return table.baroAlt[leftIndex] + (table.baroAlt[rightIndex]-table.baroAlt[leftIndex])/(table.time[rightIndex]-table.time[leftIndex])*(timestamp-table.time[leftIndex]);
+	}
+	// ... RetainedSampleIndex
+
+	// cruise segments ...
+	/**
+	 * TrajectoryVertical.determineCruiseIndices() (cumulative in-band time) compared with the former segmentation (look-ahead of 60 s from each out-of-band sample), 
+	 * for random tables with level changes, noise, outliers, time gaps and invalid samples, with margins of 76 and 51 ft and minimum segment sample counts of 30 and 5
+	 */
+	private static void checkCruiseIndices(Random random) {
+		TrajectoryVertical trajectoryVertical = new TrajectoryVertical();
+		long caseCount = 0;
+		long segmentCount = 0;
+		long differenceCount = 0;
+		String firstDifference = null;
+		for(int i=0; i<3000; i++) {
+			int numberOfSamples = 50+random.nextInt(3000);
+			TableVertical table = new TableVertical();
+			table.allocateArrayMemory(numberOfSamples);
+			double altitude = random.nextInt(40000);
+			double noise = random.nextInt(4)*40;
+			double invalidProbability = random.nextDouble()*0.3;
+			int time = 0;
+			for(int j=0; j<numberOfSamples; j++) {
+				time += (random.nextInt(10) == 0) ? random.nextInt(30) : 1+random.nextInt(4);
+				table.time[j] = time;
+				if(random.nextInt(200) == 0)
+					altitude = Math.round(random.nextInt(40000)/1000.0)*1000;		// (level change)
+				if(random.nextInt(50) == 0)
+					altitude += random.nextGaussian()*300;
+				table.baroAlt[j] = altitude + random.nextGaussian()*noise + ((random.nextInt(20) == 0) ? 2000*random.nextGaussian() : 0);
+				table.vaSample[j] = random.nextDouble() >= invalidProbability;
+			}
+
+			for(double altitudeDeviationMargin : new double[] {76, 51})
+				for(int minSegmentSampleCount : new int[] {30, 5}) {
+					ArrayList<int[]> cruiseIndicesReference = determineCruiseIndicesReference(table, altitudeDeviationMargin, minSegmentSampleCount);
+					ArrayList<int[]> cruiseIndices = trajectoryVertical.determineCruiseIndices(table, altitudeDeviationMargin, minSegmentSampleCount);
+					caseCount++;
+					segmentCount += cruiseIndicesReference.size();
+					boolean equal = (cruiseIndices.size() == cruiseIndicesReference.size());
+					for(int k=0; equal && (k<cruiseIndices.size()); k++)
+						equal = Arrays.equals(cruiseIndices.get(k), cruiseIndicesReference.get(k));
+					if(!equal) {
+						differenceCount++;
+						if(firstDifference == null)
+							firstDifference = String.format(Locale.US, "%d samples, margin %.0f ft, min. sample count %d: %d segments, reference: %d segments", numberOfSamples, altitudeDeviationMargin, minSegmentSampleCount, cruiseIndices.size(), cruiseIndicesReference.size());
+					}
+				}
+		}
+		report("Cruise segments (cumulative in-band time) vs look-ahead (" + segmentCount + " segments)", caseCount, differenceCount, firstDifference);
+	}
+
+	/**
+	 * Former TrajectoryVertical.determineCruiseIndices() (reference)
+	 */
+	private static ArrayList<int[]> determineCruiseIndicesReference(TableVertical table, double altitudeDeviationMargin, int minSegmentSampleCount) {
+		ArrayList<int[]> cruiseIndices = new ArrayList<int[]>();
+		int segmentStartIndex = -1;
+		int segmentLastCruiseIndex = -1;
+		int segmentSampleCount = 0;
+		double segmentCruiseAltitude = 0;
+		boolean withinCruiseSegment = false;
+
+		sampleLoop:
+		for(int i=0; i<table.baroAlt.length; i++) {
+			if(!table.vaSample[i])
+				continue;
+			if(i <= segmentLastCruiseIndex)		// (gap was shifted)
+				continue;
+			if(withinCruiseSegment) {
+				if(Math.abs(table.baroAlt[i]-segmentCruiseAltitude) <= altitudeDeviationMargin) {
+					segmentLastCruiseIndex = i;
+					segmentSampleCount++;
+					continue;
+				}
+				// look ahead 60 sec.; when at least 30% is within margin, close gap
+				double timeWithinMargin = 0;
+				int previousValueIndex = -1;
+				for(int j=i+1; j<table.baroAlt.length; j++) {
+					if(!table.vaSample[j])
+						continue;
+					if(previousValueIndex == -1) {
+						previousValueIndex = j;
+						continue;
+					}
+					if((Math.abs(table.baroAlt[previousValueIndex]-segmentCruiseAltitude) <= altitudeDeviationMargin) && (Math.abs(table.baroAlt[j]-segmentCruiseAltitude) <= altitudeDeviationMargin))
+						timeWithinMargin += table.time[j]-table.time[previousValueIndex];
+					if(timeWithinMargin >= (double)60*0.3) {
+						segmentLastCruiseIndex = j;
+						continue sampleLoop;
+					}
+					if(table.time[j]-table.time[i] > 60)
+						break;
+					previousValueIndex = j;
+				}
+				// gap greater than 60 sec. / 30%:
+				if(segmentSampleCount >= minSegmentSampleCount)
+					cruiseIndices.add(new int[] {segmentStartIndex, segmentLastCruiseIndex});
+				withinCruiseSegment = false;
+				segmentSampleCount = 0;
+			}
+			segmentCruiseAltitude = 1000 * Math.floor((table.baroAlt[i]+500)/1000);		// (closest cruising level)
+			if(Math.abs(table.baroAlt[i]-segmentCruiseAltitude) <= altitudeDeviationMargin) {
+				segmentStartIndex = i;
+				segmentLastCruiseIndex = i;
+				segmentSampleCount = 1;
+				withinCruiseSegment = true;
+			}
+		}
+		return cruiseIndices;
+	}
+	// ... cruise segments
+
+}